@@ -31,10 +31,15 @@ import io.foojay.api.pkg.ReleaseStatus;
 import io.foojay.api.pkg.SemVer;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
+import io.foojay.api.util.Config;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.EphemeralIdCache;
+import io.foojay.api.util.ExecutorManager;
+import io.foojay.api.util.GithubBudget;
+import io.foojay.api.util.GithubReleaseCrawler;
 import io.foojay.api.util.Helper;
 import io.foojay.api.util.PkgCache;
+import io.foojay.api.util.PkgSnapshot;
 import io.micronaut.context.annotation.Requires;
 import io.micronaut.context.env.Environment;
 import org.slf4j.Logger;
@@ -42,18 +47,30 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
@@ -62,6 +79,9 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -74,10 +94,13 @@ public enum CacheManager {
     INSTANCE;
 
     private static final Logger                           LOGGER                     = LoggerFactory.getLogger(CacheManager.class);
-    private static       ExecutorService                  executor                   = Executors.newSingleThreadExecutor();
+    private static final int                              RECONCILE_THREADS          = 4;
+    private static final double                           MAX_REMOVAL_RATIO          = 0.5;
+    private static final long                             EXCLUSIVE_WAIT             = 100; // milliseconds
+    private static       ExecutorService                  executor                   = ExecutorManager.INSTANCE.newExecutor("pkg-fetch");
     private static       CompletionService<List<Pkg>>     service                    = new ExecutorCompletionService<>(executor);
 
-    public final         PkgCache<String, Pkg>            pkgCache                   = new PkgCache<>();
+    public final         PkgCache<String, Pkg>            pkgCache                   = new PkgCache<>(CacheManager::deriveMajorVersions);
     public final         EphemeralIdCache<String, String> ephemeralIdCache           = new EphemeralIdCache<>();
     public  final        Map<Integer, Boolean>            maintainedMajorVersions    = new ConcurrentHashMap<>(){{
         put(1, false);
@@ -104,7 +127,11 @@ public enum CacheManager {
     public               AtomicBoolean                    cleaning                   = new AtomicBoolean(false);
     private final        Map<Distro, Integer>             updateMinuteCounters         = new ConcurrentHashMap<>();
     private final        Map<String, Pkg>                 deltaPkgs                  = new ConcurrentHashMap<>();
-    private final        List<MajorVersion>               majorVersions              = new LinkedList<>();
+    public  final        PersistenceQueue                 persistenceQueue           = new PersistenceQueue(PersistenceQueue.MONGODB);
+    private final        Path                             snapshotPath               = Paths.get(Config.INSTANCE.getFoojaySnapshotFile());
+    private final        ScheduledExecutorService         snapshotWriter;
+    private volatile     long                             ephemeralIdEpoch           = Instant.now().getEpochSecond();
+    private              long                             snapshotGeneration         = -1;
 
 
     CacheManager() {
@@ -112,6 +139,17 @@ public enum CacheManager {
               .filter(distro -> Distro.NONE != distro)
               .filter(distro -> Distro.NOT_FOUND != distro)
               .forEach(distro -> updateMinuteCounters.put(distro, 720));
+        persistenceQueue.start();
+        ClusterManager.INSTANCE.start();
+
+        snapshotWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pkg-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = Config.INSTANCE.getFoojaySnapshotWriteInterval();
+        snapshotWriter.scheduleWithFixedDelay(this::writeSnapshot, interval, interval, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::writeSnapshot, "pkg-snapshot-shutdown"));
     }
 
 
@@ -121,6 +159,9 @@ public enum CacheManager {
         try {
             final long start = System.currentTimeMillis();
 
+            // Serve the packages of the last run immediately and load the current ones from mongodb in the background
+            if (preloadPkgCacheFromSnapshot()) { return true; }
+
             List<Pkg> pkgsFromMongoDb = new CopyOnWriteArrayList<>();
             pkgsFromMongoDb.addAll(MongoDbManager.INSTANCE.getPkgs());
 
@@ -131,20 +172,27 @@ public enum CacheManager {
                     LOGGER.debug("Cache data file ({}) not found in resources.", Constants.CACHE_DATA_FILE);
                     return false;
                 }
-                final String    jsonText  = Helper.readFromInputStream(inputStream);
-                final JsonArray jsonArray = gson.fromJson(jsonText, JsonArray.class);
+                final JsonArray jsonArray;
+                try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+                    jsonArray = gson.fromJson(reader, JsonArray.class);
+                }
                 List<Pkg>       pkgs      = new ArrayList<>();
+                PkgCache.Draft<String, Pkg> draft = pkgCache.draft();
                 for (int i = 0; i < jsonArray.size(); i++) {
                     JsonObject pkgJsonObj = jsonArray.get(i).getAsJsonObject();
                     Pkg pkg = new Pkg(pkgJsonObj.toString());
                     pkgs.add(pkg);
-                    pkgCache.add(pkg.getId(), pkg);
+                    draft.put(pkg.getId(), pkg);
                 }
+                pkgCache.publish(draft);
                 LOGGER.debug("Successfully preloaded cache with {} packages from json file in {} ms", pkgCache.size(), (System.currentTimeMillis() - start));
 
-                MongoDbManager.INSTANCE.insertAllPkgs(pkgs);
+                // In a cluster only the leader writes the packages, the followers receive them via the change stream
+                if (ClusterManager.INSTANCE.isLeader()) { MongoDbManager.INSTANCE.insertAllPkgs(pkgs); }
             } else {
-                pkgsFromMongoDb.forEach(pkg -> pkgCache.add(pkg.getId(), pkg));
+                PkgCache.Draft<String, Pkg> draft = pkgCache.draft();
+                pkgsFromMongoDb.forEach(pkg -> draft.put(pkg.getId(), pkg));
+                pkgCache.publish(draft);
                 LOGGER.debug("Successfully preloaded cache with {} packages from mongodb in {} ms", pkgCache.size(), (System.currentTimeMillis() - start));
             }
             updateEphemeralIdCache();
@@ -162,178 +210,218 @@ public enum CacheManager {
         // Pre-Load cache if it is empty
         if (pkgCache.isEmpty()) { preloadPkgCache(); }
 
+        // In a cluster only the leader refreshes the packages, the followers apply the changes from mongodb
+        if (!ClusterManager.INSTANCE.isLeader()) { return; }
+
         if (executor.isShutdown()) {
             try {
                 executor.awaitTermination(30, TimeUnit.SECONDS);
             } catch (InterruptedException e) {
                 LOGGER.error("Executor termination interrupted");
             }
+            // Tasks that did not react on the interrupt of the last cycle will be abandoned
+            if (!executor.isTerminated()) { LOGGER.warn("Package fetch tasks of the last cycle are still running"); }
         }
-        if (executor.isTerminated()) {
-            LOGGER.debug("Executor is terminated and will be reinitialized");
-            executor = Executors.newSingleThreadExecutor();
+        if (executor.isShutdown()) {
+            LOGGER.debug("Executor is shut down and will be reinitialized");
+            executor = ExecutorManager.INSTANCE.newExecutor("pkg-fetch");
             service  = new ExecutorCompletionService<>(executor);
         }
 
         long start = System.currentTimeMillis();
+        if (!pkgCacheIsUpdating.compareAndSet(false, true)) {
+            LOGGER.debug("Package cache is already being updated");
+            return;
+        }
         LOGGER.debug("Started updating package cache");
-        pkgCacheIsUpdating.set(true);
 
-        List<Pkg> pkgs = new CopyOnWriteArrayList<>(); // contains all packages found
         try {
-            List<Callable<List<Pkg>>> callables = new ArrayList<>();
-            // Update packages only if the updateMinuteCounter for each distro == the minUpdateIntervalInMinutes of that distro
-            // Increase all counters by 1 on each update call
-            Arrays.stream(Distro.values())
-                  .filter(distro -> Distro.NONE != distro)
-                  .filter(distro -> Distro.NOT_FOUND != distro)
-                  .forEach(distro -> {
-                      LOGGER.debug("Update minute counter for distro {} -> {}", distro.name(), updateMinuteCounters.get(distro));
-                      updateMinuteCounters.computeIfPresent(distro, (k, v) -> v + 1);
-            });
-
-            // Only update the distros where the counter == minUpdateIntervalInHours
-            Arrays.stream(Distro.values())
-                  .filter(distro -> distro != Distro.NONE)
-                  .filter(distro -> distro != Distro.NOT_FOUND)
-                  .forEach(distro -> {
-                      if (updateMinuteCounters.get(distro) >= distro.getMinUpdateIntervalInMinutes()) {
-                            callables.add(Helper.createTask(distro));
-                          LOGGER.debug("Adding package fetch task to callables for {}", distro.name());
-                          updateMinuteCounters.put(distro, 0);
-                          LOGGER.debug("Reset minute counter for distro {} -> {}", distro.name(), updateMinuteCounters.get(distro));
-                }
-            });
-
-            LOGGER.debug("Number of distros to update {}", callables.size());
+            List<Pkg>                       pkgs         = new CopyOnWriteArrayList<>(); // contains all packages found
+            List<GithubBudget.Reservation>  reservations = List.of();
+            try {
+                Map<Callable<List<Pkg>>, Distro> callables = new LinkedHashMap<>();
+                // Update packages only if the updateMinuteCounter for each distro == the minUpdateIntervalInMinutes of that distro
+                // Increase all counters by 1 on each update call
+                Arrays.stream(Distro.values())
+                      .filter(distro -> Distro.NONE != distro)
+                      .filter(distro -> Distro.NOT_FOUND != distro)
+                      .forEach(distro -> {
+                          LOGGER.debug("Update minute counter for distro {} -> {}", distro.name(), updateMinuteCounters.get(distro));
+                          updateMinuteCounters.computeIfPresent(distro, (k, v) -> v + 1);
+                });
 
-            for (final Callable<List<Pkg>> callable : callables) { service.submit(callable); }
+                // Only update the distros where the counter == minUpdateIntervalInHours
+                List<Distro> dueDistros = Arrays.stream(Distro.values())
+                                                .filter(distro -> distro != Distro.NONE)
+                                                .filter(distro -> distro != Distro.NOT_FOUND)
+                                                .filter(distro -> updateMinuteCounters.get(distro) >= distro.getMinUpdateIntervalInMinutes())
+                                                .collect(Collectors.toList());
+
+                // GitHub distros that do not fit into the remaining GitHub rate limit will be deferred (their counter will not be reset)
+                reservations = GithubBudget.INSTANCE.schedule(dueDistros, updateMinuteCounters, DownloadManager.INSTANCE.getDownloadsPerDistro());
+                reservations.forEach(reservation -> {
+                    final Distro distro = reservation.getDistro();
+                    callables.put(Helper.createTask(reservation), distro);
+                    LOGGER.debug("Adding package fetch task to callables for {}", distro.name());
+                    updateMinuteCounters.put(distro, 0);
+                    LOGGER.debug("Reset minute counter for distro {} -> {}", distro.name(), updateMinuteCounters.get(distro));
+                });
 
-            executor.shutdown();
-            while (!executor.isTerminated()) {
-                try {
-                    pkgs.addAll(service.take().get());
-                } catch (ExecutionException | InterruptedException e) {
-                    LOGGER.error("Error adding fetched packages to cache. {}", e.getMessage());
+                LOGGER.debug("Number of distros to update {}", callables.size());
+
+                final Map<Future<List<Pkg>>, Distro> pending = new HashMap<>();
+                callables.forEach((callable, distro) -> pending.put(service.submit(callable), distro));
+
+                executor.shutdown();
+                // Merge the packages of all distros that finished before the deadline of this cycle
+                final long deadline = System.currentTimeMillis() + Config.INSTANCE.getFoojayRefreshDeadline() * 1000L;
+                while (!pending.isEmpty()) {
+                    final long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) { break; }
+                    try {
+                        final Future<List<Pkg>> future = service.poll(remaining, TimeUnit.MILLISECONDS);
+                        if (null == future) { break; }
+                        final Distro distro = pending.remove(future);
+                        try {
+                            pkgs.addAll(future.get());
+                        } catch (ExecutionException e) {
+                            LOGGER.error("Error adding fetched {} packages to cache. {}", distro.getName(), e.getMessage());
+                        }
+                    } catch (InterruptedException e) {
+                        LOGGER.error("Waiting for fetched packages interrupted");
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
                 }
+                // Distros that missed the deadline will be due again in the next cycle
+                pending.values().forEach(distro -> {
+                    LOGGER.warn("Fetching {} packages missed the deadline of the refresh cycle", distro.getName());
+                    updateMinuteCounters.put(distro, distro.getMinUpdateIntervalInMinutes());
+                });
+            } finally {
+                executor.shutdownNow();
+                // Tasks dropped by shutdownNow() never start and would keep their GitHub budget reserved
+                reservations.forEach(GithubBudget.INSTANCE::releaseIfNotStarted);
             }
-        } finally {
-            executor.shutdownNow();
-        }
-
-        pkgs.forEach(pkg -> {
-            if (ArchiveType.NOT_FOUND == pkg.getArchiveType()) {
-                pkg.setArchiveType(ArchiveType.getFromFileName(pkg.getFileName()));
-            }
-            if (TermOfSupport.NOT_FOUND == pkg.getTermOfSupport()) {
-                pkg.setTermOfSupport(Helper.getTermOfSupport(pkg.getVersionNumber(), Distro.valueOf(pkg.getDistribution().getDistro().getName())));
-            }
-        });
 
-        pkgs.forEach(pkg -> {
-            if (!pkgCache.containsKey(pkg.getId()) && !deltaPkgs.containsKey(pkg.getId())) {
-                if (ReleaseStatus.EA == pkg.getReleaseStatus()) {
-                    pkg.setLatestBuildAvailable(true);
+            pkgs.forEach(pkg -> {
+                if (ArchiveType.NOT_FOUND == pkg.getArchiveType()) {
+                    pkg.setArchiveType(ArchiveType.getFromFileName(pkg.getFileName()));
+                }
+                if (TermOfSupport.NOT_FOUND == pkg.getTermOfSupport()) {
+                    pkg.setTermOfSupport(Helper.getTermOfSupport(pkg.getVersionNumber(), Distro.valueOf(pkg.getDistribution().getDistro().getName())));
                 }
+            });
 
-                List<Pkg> otherPkgs = deltaPkgs.values()
-                                               .stream()
-                                               .filter(p -> p.getDistribution().equals(pkg.getDistribution()))
-                                               .filter(p -> p.getFeatureVersion().getAsInt() == pkg.getFeatureVersion().getAsInt())
-                                               .filter(p -> p.getOperatingSystem()           == pkg.getOperatingSystem())
-                                               .filter(p -> p.getArchiveType()               == pkg.getArchiveType())
-                                               .filter(p -> p.getArchitecture()              == pkg.getArchitecture())
-                                               .filter(p -> p.getPackageType()               == pkg.getPackageType())
-                                               .filter(p -> p.getReleaseStatus()             == pkg.getReleaseStatus())
-                                               .collect(Collectors.toList());
+            // Build the next generation off to the side, readers will see the current generation until it will be published
+            final PkgCache.Draft<String, Pkg> draft = pkgCache.draft();
+            pkgs.forEach(pkg -> {
+                if (!draft.containsKey(pkg.getId()) && !deltaPkgs.containsKey(pkg.getId())) {
+                    if (ReleaseStatus.EA == pkg.getReleaseStatus()) {
+                        pkg.setLatestBuildAvailable(true);
+                    }
 
-                if (!otherPkgs.isEmpty()) {
-                    otherPkgs.forEach(p -> {
-                        if (p.getVersionNumber().compareTo(pkg.getVersionNumber()) < 0) {
-                            p.setLatestBuildAvailable(false);
-                        } else {
-                            pkg.setLatestBuildAvailable(false);
-                        }
-                    });
+                    List<Pkg> otherPkgs = deltaPkgs.values()
+                                                   .stream()
+                                                   .filter(p -> p.getDistribution().equals(pkg.getDistribution()))
+                                                   .filter(p -> p.getFeatureVersion().getAsInt() == pkg.getFeatureVersion().getAsInt())
+                                                   .filter(p -> p.getOperatingSystem()           == pkg.getOperatingSystem())
+                                                   .filter(p -> p.getArchiveType()               == pkg.getArchiveType())
+                                                   .filter(p -> p.getArchitecture()              == pkg.getArchitecture())
+                                                   .filter(p -> p.getPackageType()               == pkg.getPackageType())
+                                                   .filter(p -> p.getReleaseStatus()             == pkg.getReleaseStatus())
+                                                   .collect(Collectors.toList());
+
+                    if (!otherPkgs.isEmpty()) {
+                        otherPkgs.forEach(p -> {
+                            if (p.getVersionNumber().compareTo(pkg.getVersionNumber()) < 0) {
+                                draft.setLatestBuildAvailable(p, false);
+                            } else {
+                                draft.setLatestBuildAvailable(pkg, false);
+                            }
+                        });
+                    }
+                    deltaPkgs.put(pkg.getId(), pkg);
+                } else {
+                    // Default value for latest_build_available is false.
+                    // Therefore we need to set the latest_build_available for all pks found to the value from the cache
+                    final Pkg cachedPkg = draft.get(pkg.getId());
+                    if (null != cachedPkg) { pkg.setLatestBuildAvailable(cachedPkg.isLatestBuildAvailable()); }
                 }
-                deltaPkgs.put(pkg.getId(), pkg);
-            } else {
-                // Default value for latest_build_available is false.
-                // Therefore we need to set the latest_build_available for all pks found to the value from the cache
-                pkg.setLatestBuildAvailable(pkgCache.get(pkg.getId()).isLatestBuildAvailable());
-            }
-        });
+            });
 
-        // Check for each pkg in deltaPkgs if new version or new build and Update packages in pkgCache
-        List<Pkg> pkgsToUpdate = new ArrayList<>();
-        deltaPkgs.entrySet().forEach(entry -> {
-            List<Pkg> differentBuilds = Helper.getAllBuildsOfPackage(entry.getValue());
-            if (differentBuilds.isEmpty()) {
-                // New version
-                Optional<Pkg> pkgWithMaxVersionOptional = Helper.getPkgWithMaxVersionForGivenPackage(entry.getValue());
-                if (pkgWithMaxVersionOptional.isPresent()) {
-                    Pkg pkgWithMaxVersion = pkgWithMaxVersionOptional.get();
-                    if (pkgWithMaxVersion.isLatestBuildAvailable() && pkgWithMaxVersion.getReleaseStatus() == entry.getValue().getReleaseStatus()) {
-                        pkgsToUpdate.add(pkgWithMaxVersion);
+            // Check for each pkg in deltaPkgs if new version or new build and Update packages in pkgCache
+            List<Pkg> pkgsToUpdate = new ArrayList<>();
+            deltaPkgs.entrySet().forEach(entry -> {
+                List<Pkg> differentBuilds = Helper.getAllBuildsOfPackage(entry.getValue());
+                if (differentBuilds.isEmpty()) {
+                    // New version
+                    Optional<Pkg> pkgWithMaxVersionOptional = Helper.getPkgWithMaxVersionForGivenPackage(entry.getValue());
+                    if (pkgWithMaxVersionOptional.isPresent()) {
+                        Pkg pkgWithMaxVersion = pkgWithMaxVersionOptional.get();
+                        if (pkgWithMaxVersion.isLatestBuildAvailable() && pkgWithMaxVersion.getReleaseStatus() == entry.getValue().getReleaseStatus()) {
+                            pkgsToUpdate.add(pkgWithMaxVersion);
+                        }
                     }
+                } else {
+                    // New build of existing package
+                    pkgsToUpdate.addAll(differentBuilds.stream()
+                                                       .filter(pkg -> pkg.getReleaseStatus() == entry.getValue().getReleaseStatus())
+                                                       .filter(pkg -> pkg.isLatestBuildAvailable())
+                                                       .collect(Collectors.toList()));
                 }
-            } else {
-                // New build of existing package
-                pkgsToUpdate.addAll(differentBuilds.stream()
-                                                   .filter(pkg -> pkg.getReleaseStatus() == entry.getValue().getReleaseStatus())
-                                                   .filter(pkg -> pkg.isLatestBuildAvailable())
-                                                   .collect(Collectors.toList()));
+            });
+            pkgsToUpdate.forEach(pkg -> draft.setLatestBuildAvailable(pkg, false));
+
+            // Finally add all new packages to the next generation
+            pkgs.forEach(pkg -> draft.put(pkg.getId(), pkg));
+
+            //updateDistributionSpecificLatestBuild();
+
+            updateLatestBuild(draft, ReleaseStatus.GA);
+            updateLatestBuild(draft, ReleaseStatus.EA);
+            LOGGER.info("Latest build info updated for GA and EA releases with Java version number in package cache.");
+
+            // Check latest builds for GraalVM and set latest_build_available=true
+            for (int i = 19 ; i <= 40 ; i++) {
+                int featureVersion = i;
+                Distro.getDistributions()
+                      .stream()
+                      .filter(distribution -> distribution.getDistro() == Distro.GRAALVM_CE8 ||
+                                              distribution.getDistro() == Distro.GRAALVM_CE11 ||
+                                              distribution.getDistro() == Distro.LIBERICA_NATIVE ||
+                                              distribution.getDistro() == Distro.MANDREL)
+                      .forEach(distribution -> {
+                          Optional<Pkg> pkgWithMaxVersion = pkgs.stream()
+                                                                .filter(pkg -> pkg.getDistribution().getDistro() == distribution.getDistro())
+                                                                .filter(pkg -> featureVersion   == pkg.getJavaVersion().getFeature().getAsInt())
+                                                                .filter(pkg -> ReleaseStatus.GA == pkg.getReleaseStatus())
+                                                                .max(Comparator.comparing(Pkg::getJavaVersion));
+                          if (pkgWithMaxVersion.isPresent()) {
+                              SemVer maxVersion = pkgWithMaxVersion.get().getSemver();
+                              pkgs.stream()
+                                  .filter(pkg  -> pkg.getDistribution().getDistro() == distribution.getDistro())
+                                  .filter(pkg  -> maxVersion.compareTo(pkg.getSemver()) == 0)
+                                  .forEach(pkg -> draft.setLatestBuildAvailable(pkg, true));
+                          }
+                      });
             }
-        });
-        pkgsToUpdate.forEach(pkg -> pkg.setLatestBuildAvailable(false));
+            LOGGER.debug("\"Latest build info updated GraalVM versions in package cache.");
 
-        // Finally add all new packages to pkgCache
-        pkgs.forEach(pkg -> pkgCache.add(pkg.getId(), pkg));
+            // Publish the next generation with one swap
+            pkgCache.publish(draft);
+            LOGGER.info("Cache updated in {} ms, no of packages in cache {}", (System.currentTimeMillis() - start), pkgCache.size());
 
-        // Add the delta to mongodb
-        if (!deltaPkgs.isEmpty()) {
-            // Insert new packages into database
-            boolean successfullyAddedToMongoDb = MongoDbManager.INSTANCE.addNewPkgs(deltaPkgs.values());
-            if (successfullyAddedToMongoDb) { deltaPkgs.clear(); }
-        }
-
-        //updateDistributionSpecificLatestBuild();
-
-        updateLatestBuild(ReleaseStatus.GA);
-        updateLatestBuild(ReleaseStatus.EA);
-        LOGGER.info("Latest build info updated for GA and EA releases with Java version number in package cache.");
-
-        LOGGER.info("Cache updated in {} ms, no of packages in cache {}", (System.currentTimeMillis() - start), pkgCache.size());
-        pkgCacheIsUpdating.set(false);
-
-        // Check latest builds for GraalVM and set latest_build_available=true
-        for (int i = 19 ; i <= 40 ; i++) {
-            int featureVersion = i;
-            Distro.getDistributions()
-                  .stream()
-                  .filter(distribution -> distribution.getDistro() == Distro.GRAALVM_CE8 ||
-                                          distribution.getDistro() == Distro.GRAALVM_CE11 ||
-                                          distribution.getDistro() == Distro.LIBERICA_NATIVE ||
-                                          distribution.getDistro() == Distro.MANDREL)
-                  .forEach(distribution -> {
-                      Optional<Pkg> pkgWithMaxVersion = pkgs.stream()
-                                                            .filter(pkg -> pkg.getDistribution().getDistro() == distribution.getDistro())
-                                                            .filter(pkg -> featureVersion   == pkg.getJavaVersion().getFeature().getAsInt())
-                                                            .filter(pkg -> ReleaseStatus.GA == pkg.getReleaseStatus())
-                                                            .max(Comparator.comparing(Pkg::getJavaVersion));
-                      if (pkgWithMaxVersion.isPresent()) {
-                          SemVer maxVersion = pkgWithMaxVersion.get().getSemver();
-                          pkgs.stream()
-                              .filter(pkg  -> pkg.getDistribution().getDistro() == distribution.getDistro())
-                              .filter(pkg  -> maxVersion.compareTo(pkg.getSemver()) == 0)
-                              .forEach(pkg -> pkg.setLatestBuildAvailable(true));
-                      }
-                  });
+            // Queue the new packages and the changed latestBuildAvailable flags for mongodb, the published
+            // packages are immutable and will be written in the background
+            final Map<String, Pkg> publishedPkgs = pkgCache.getGeneration().getPkgs();
+            persistenceQueue.upsert(deltaPkgs.keySet().stream().map(publishedPkgs::get).filter(Objects::nonNull).collect(Collectors.toList()));
+            persistenceQueue.updateLatestBuildAvailable(draft.getLatestBuildAvailableChanged().stream().map(publishedPkgs::get).filter(Objects::nonNull).collect(Collectors.toList()));
+        } finally {
+            // A failed refresh must neither block later refreshes and cleanups nor leave stale packages behind
+            deltaPkgs.clear();
+            pkgCacheIsUpdating.set(false);
         }
-        LOGGER.debug("\"Latest build info updated GraalVM versions in package cache.");
-
-        // Synchronize latestBuildAvailable in mongodb database with cache
-        MongoDbManager.INSTANCE.syncLatestBuildAvailableInDatabaseWithCache(pkgCache.getPkgs());
 
         LOGGER.debug("Cache updated in {} ms, no of packages in cache {}", (System.currentTimeMillis() - start), pkgCache.size());
     }
@@ -341,11 +429,8 @@ public enum CacheManager {
     public void updateEphemeralIdCache() {
         LOGGER.debug("Updating ephemeral id cache (every 10m)");
         long startUpdating = System.currentTimeMillis();
-        ephemeralIdCacheIsUpdating.set(true);
-        ephemeralIdCache.clear();
-        final long epoch = Instant.now().getEpochSecond();
-        pkgCache.getKeys().forEach(id -> ephemeralIdCache.add(Helper.createEphemeralId(epoch, id), id));
-        ephemeralIdCacheIsUpdating.set(false);
+        ephemeralIdEpoch = Instant.now().getEpochSecond();
+        fillEphemeralIdCache(ephemeralIdEpoch);
         LOGGER.debug("Finished updating EphemeralIDCache in {}ms", (System.currentTimeMillis() - startUpdating));
 
         // Update all available major versions
@@ -355,34 +440,168 @@ public enum CacheManager {
         updateMaintainedMajorVersions();
     }
 
-    public void updateMajorVersions() {
-        LOGGER.debug("Updating major versions");
-        // Update all available major versions (exclude GraalVM based pkgs because they have different version numbers)
-        /*
-        while(CacheManager.INSTANCE.pkgCacheIsUpdating.get()) {
+    /**
+     * Replaces the packages in the package cache with the given packages
+     * @param pkgs The packages that should be in the package cache
+     */
+    public void replacePkgs(final Collection<Pkg> pkgs) {
+        final PkgCache.Draft<String, Pkg> draft = pkgCache.draft();
+        final Set<String>                 ids   = pkgs.stream().map(Pkg::getId).collect(Collectors.toSet());
+        pkgCache.getKeys().stream().filter(id -> !ids.contains(id)).collect(Collectors.toList()).forEach(draft::remove);
+        pkgs.forEach(pkg -> draft.put(pkg.getId(), pkg));
+        pkgCache.publish(draft);
+    }
+
+    /**
+     * Runs the given change of the package cache while no refresh, cleanup or other exclusive
+     * change is running, refreshes and cleanups that start in the meantime will be skipped
+     * @param update The change of the package cache
+     */
+    public void updateExclusively(final Runnable update) {
+        while (cleaning.get() || !pkgCacheIsUpdating.compareAndSet(false, true)) {
             try {
-                TimeUnit.SECONDS.sleep(1);
-                LOGGER.debug("Waiting for updating package cache");
-            } catch(InterruptedException e) {
+                TimeUnit.MILLISECONDS.sleep(EXCLUSIVE_WAIT);
+            } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
+                return;
             }
         }
-        */
-        majorVersions.clear();
-        majorVersions.addAll(pkgCache.getPkgs()
-                                     .stream()
-                                     .filter(pkg -> pkg.getDistribution().getDistro() != Distro.GRAALVM_CE8)
-                                     .filter(pkg -> pkg.getDistribution().getDistro() != Distro.GRAALVM_CE11)
-                                     .filter(pkg -> pkg.getDistribution().getDistro() != Distro.LIBERICA_NATIVE)
-                                     .filter(pkg -> pkg.getDistribution().getDistro() != Distro.MANDREL)
-                                     .map(pkg -> pkg.getVersionNumber().getFeature().getAsInt())
-                                     .distinct()
-                                     .map(majorVersion -> new MajorVersion(majorVersion))
-                                     .sorted(Comparator.comparing(MajorVersion::getVersionNumber).reversed())
-                                     .collect(Collectors.toList()));
+        try {
+            update.run();
+        } finally {
+            pkgCacheIsUpdating.set(false);
+        }
+    }
+
+    /**
+     * Writes the package cache to the snapshot file if it has changed since the last write
+     */
+    public synchronized void writeSnapshot() {
+        if (!initialized.get()) { return; }
+        final PkgCache.Generation<String, Pkg> generation = pkgCache.getGeneration();
+        if (generation.getNumber() == snapshotGeneration) { return; }
+        final long start = System.currentTimeMillis();
+        try {
+            PkgSnapshot.write(snapshotPath, generation.getPkgs().values(), persistenceQueue.getPendingUpserts(), ephemeralIdEpoch);
+            snapshotGeneration = generation.getNumber();
+            LOGGER.debug("Wrote snapshot of {} packages in {} ms", generation.getPkgs().size(), (System.currentTimeMillis() - start));
+        } catch (IOException e) {
+            LOGGER.error("Error writing package snapshot to {}. {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    private boolean preloadPkgCacheFromSnapshot() {
+        final long                  start    = System.currentTimeMillis();
+        final Optional<PkgSnapshot> snapshot = PkgSnapshot.read(snapshotPath);
+        if (snapshot.isEmpty() || snapshot.get().getPkgs().isEmpty()) { return false; }
+
+        replacePkgs(snapshot.get().getPkgs());
+        // Keep the ephemeral ids of the last run valid
+        ephemeralIdEpoch = snapshot.get().getEphemeralIdEpoch();
+        fillEphemeralIdCache(ephemeralIdEpoch);
+        initialized.set(true);
+        LOGGER.debug("Successfully preloaded cache with {} packages from snapshot of {} in {} ms", pkgCache.size(), snapshot.get().getCreated(), (System.currentTimeMillis() - start));
+
+        final Thread reconciler = new Thread(() -> updateExclusively(() -> reconcileWithMongoDb(snapshot.get().getPkgs(), snapshot.get().getPendingPkgIds())), "pkg-snapshot-reconcile");
+        reconciler.setDaemon(true);
+        reconciler.start();
+        return true;
+    }
+
+    /*
+     * Replaces the packages of the snapshot with the packages in mongodb. Packages that have been
+     * changed since the snapshot was loaded are kept. Packages that are only in the snapshot will be
+     * removed (e.g. they have been removed by a cleanup after the snapshot was written), unless their
+     * upsert was still pending in the persistence queue when the snapshot was written. These will be
+     * kept and queued for mongodb by the leader, followers remove them because mongodb is written by
+     * the leader.
+     */
+    private void reconcileWithMongoDb(final List<Pkg> snapshotPkgs, final Set<String> pendingPkgIds) {
+        final long      start           = System.currentTimeMillis();
+        final boolean   leader          = ClusterManager.INSTANCE.isLeader();
+        final List<Pkg> pkgsFromMongoDb = MongoDbManager.INSTANCE.getPkgs();
+        if (pkgsFromMongoDb.isEmpty()) {
+            LOGGER.debug("No packages in mongodb, keeping the packages from the snapshot");
+            if (leader) { persistenceQueue.upsert(snapshotPkgs); }
+            return;
+        }
+
+        final Map<String, Pkg>            snapshot     = snapshotPkgs.stream().collect(Collectors.toMap(Pkg::getId, pkg -> pkg, (pkg1, pkg2) -> pkg2));
+        final Map<String, Pkg>            current      = pkgCache.getGeneration().getPkgs();
+        final Set<String>                 mongoDbIds   = new HashSet<>();
+        final List<Pkg>                   snapshotOnly = new ArrayList<>();
+        final PkgCache.Draft<String, Pkg> draft        = pkgCache.draft();
+        for (Pkg pkg : pkgsFromMongoDb) {
+            mongoDbIds.add(pkg.getId());
+            // Don't bring back packages that have been removed since the snapshot was loaded
+            final Pkg cached = current.get(pkg.getId());
+            if (null == cached ? !snapshot.containsKey(pkg.getId()) : cached == snapshot.get(pkg.getId())) { draft.put(pkg.getId(), pkg); }
+        }
+        snapshot.forEach((id, pkg) -> {
+            if (mongoDbIds.contains(id) || current.get(id) != pkg) { return; }
+            if (leader && pendingPkgIds.contains(id)) {
+                snapshotOnly.add(pkg);
+            } else {
+                draft.remove(id);
+            }
+        });
+        pkgCache.publish(draft);
+        updateEphemeralIds(draft.getAdded(), draft.getRemoved());
+        if (!snapshotOnly.isEmpty()) { persistenceQueue.upsert(snapshotOnly); }
+        LOGGER.debug("Reconciled cache with {} packages from mongodb in {} ms, {} unpersisted packages from snapshot", pkgCache.size(), (System.currentTimeMillis() - start), snapshotOnly.size());
+    }
+
+    /**
+     * Adds the ephemeral ids of the given packages and removes the ephemeral ids of the given removed
+     * packages, using the current epoch so the ephemeral ids of all other packages stay valid
+     * @param addedPkgIds The ids of the packages that have been added or changed
+     * @param removedPkgIds The ids of the packages that have been removed
+     */
+    public void updateEphemeralIds(final Collection<String> addedPkgIds, final Set<String> removedPkgIds) {
+        final long epoch = ephemeralIdEpoch;
+        if (!removedPkgIds.isEmpty()) { ephemeralIdCache.removePkgIds(removedPkgIds); }
+        addedPkgIds.forEach(id -> ephemeralIdCache.add(Helper.createEphemeralId(epoch, id), id));
+    }
+
+    /**
+     * Creates the ephemeral ids of all packages in the package cache with the current epoch
+     */
+    public void refreshEphemeralIds() { fillEphemeralIdCache(ephemeralIdEpoch); }
+
+    // Adds the new ephemeral ids before the outdated ones are removed, so the cache is never empty
+    private void fillEphemeralIdCache(final long epoch) {
+        ephemeralIdCacheIsUpdating.set(true);
+        final Set<String> ephemeralIds = new HashSet<>();
+        pkgCache.getKeys().forEach(id -> {
+            final String ephemeralId = Helper.createEphemeralId(epoch, id);
+            ephemeralIds.add(ephemeralId);
+            ephemeralIdCache.add(ephemeralId, id);
+        });
+        ephemeralIdCache.getEphemeralIds().retainAll(ephemeralIds);
+        ephemeralIdCacheIsUpdating.set(false);
+    }
+
+    public void updateMajorVersions() {
+        LOGGER.debug("Updating major versions");
+        // Major versions are part of each generation, publish the current packages again to pick up changed maintained versions
+        pkgCache.refresh();
         LOGGER.debug("Successfully updated major versions");
     }
 
+    // Update all available major versions (exclude GraalVM based pkgs because they have different version numbers)
+    private static List<MajorVersion> deriveMajorVersions(final Collection<Pkg> pkgs) {
+        return pkgs.stream()
+                   .filter(pkg -> pkg.getDistribution().getDistro() != Distro.GRAALVM_CE8)
+                   .filter(pkg -> pkg.getDistribution().getDistro() != Distro.GRAALVM_CE11)
+                   .filter(pkg -> pkg.getDistribution().getDistro() != Distro.LIBERICA_NATIVE)
+                   .filter(pkg -> pkg.getDistribution().getDistro() != Distro.MANDREL)
+                   .map(pkg -> pkg.getVersionNumber().getFeature().getAsInt())
+                   .distinct()
+                   .map(majorVersion -> new MajorVersion(majorVersion))
+                   .sorted(Comparator.comparing(MajorVersion::getVersionNumber).reversed())
+                   .collect(Collectors.toList());
+    }
+
     public void updateMaintainedMajorVersions() {
         LOGGER.debug("Updating maintained major versions");
         final Properties maintainedProperties = new Properties();
@@ -402,81 +621,98 @@ public enum CacheManager {
     public void cleanupPkgCache() {
         LOGGER.debug("Cleanup cache and update database (every 3h27m)");
 
-        if (cleaning.get() || pkgCacheIsUpdating.get()) { return; }
+        if (cleaning.get() || pkgCacheIsUpdating.get() || !ClusterManager.INSTANCE.isLeader()) { return; }
         final long start = System.currentTimeMillis();
         LOGGER.debug("Started cleaning up the cache");
         cleaning.set(true);
 
-        // Oracle packages
-        ExecutorService              oracleExecutor    = Executors.newSingleThreadExecutor();
-        CompletionService<List<Pkg>> oracleService     = new ExecutorCompletionService<>(oracleExecutor);
-        List<Pkg>                    oraclePkgsFromWeb = new ArrayList<>();
         try {
-            // Get packages from Oracle
-            oracleService.submit(Helper.createTask(Distro.ORACLE));
-            oracleExecutor.shutdown();
-            while (!oracleExecutor.isTerminated()) {
-                try {
-                    oraclePkgsFromWeb.addAll(oracleService.take().get());
-                } catch (ExecutionException | InterruptedException e) {
-                    LOGGER.error("Error adding fetched Oracle packages to list. {}", e.getMessage());
+            // Fetch the complete upstream state of all distros in parallel (GitHub distros only if they fit into the rate limit)
+            final List<Distro> distros = Arrays.stream(Distro.values())
+                                               .filter(distro -> Distro.NONE != distro)
+                                               .filter(distro -> Distro.NOT_FOUND != distro)
+                                               .collect(Collectors.toList());
+            final Map<Distro, Future<Optional<List<Pkg>>>> fetches           = new EnumMap<>(Distro.class);
+            final ExecutorService                          reconcileExecutor = ExecutorManager.INSTANCE.newExecutor("pkg-cleanup");
+            final Semaphore                                permits           = new Semaphore(RECONCILE_THREADS);
+            final List<GithubBudget.Reservation>           reservations      = GithubBudget.INSTANCE.schedule(distros, updateMinuteCounters, DownloadManager.INSTANCE.getDownloadsPerDistro());
+            try {
+                reservations.forEach(reservation -> fetches.put(reservation.getDistro(), reconcileExecutor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return GithubReleaseCrawler.INSTANCE.crawlCompletely(Helper.createTask(reservation));
+                    } finally {
+                        permits.release();
+                    }
+                })));
+                reconcileExecutor.shutdown();
+
+                // Group the cached packages by distro in one pass
+                final Map<Distro, List<Pkg>> cachedPkgsPerDistro = new EnumMap<>(Distro.class);
+                pkgCache.getPkgs().stream()
+                        .filter(pkg -> null != pkg.getDistribution())
+                        .forEach(pkg -> cachedPkgsPerDistro.computeIfAbsent(pkg.getDistribution().getDistro(), distro -> new ArrayList<>()).add(pkg));
+
+                final List<Pkg> pkgsToRemove = new ArrayList<>();
+                for (Entry<Distro, Future<Optional<List<Pkg>>>> fetch : fetches.entrySet()) {
+                    final Distro              distro = fetch.getKey();
+                    final Optional<List<Pkg>> pkgsFromWeb;
+                    try {
+                        pkgsFromWeb = fetch.getValue().get();
+                    } catch (ExecutionException e) {
+                        LOGGER.error("Error fetching {} packages for cleanup. {}", distro.getName(), e.getMessage());
+                        continue;
+                    } catch (InterruptedException e) {
+                        LOGGER.warn("Cleanup interrupted, no packages will be removed");
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    pkgsToRemove.addAll(getPkgsToRemove(distro, pkgsFromWeb, cachedPkgsPerDistro.getOrDefault(distro, List.of())));
                 }
-            }
-        } finally {
-            oracleExecutor.shutdownNow();
-        }
-
-        List<Pkg> oraclePkgsFromCache = CacheManager.INSTANCE.pkgCache.getPkgs()
-                                                                      .stream()
-                                                                      .filter(pkg -> Distro.ORACLE.get().equals(pkg.getDistribution()))
-                                                                      .collect(Collectors.toList());
-
-        if (oraclePkgsFromCache.size() > oraclePkgsFromWeb.size()) {
-            List<String> oracleFilenamesFromWeb = oraclePkgsFromWeb.stream().map(pkgWeb -> pkgWeb.getFileName()).collect(Collectors.toList());
-            List<Pkg>    oraclePkgsToRemove     = oraclePkgsFromCache.stream().filter(pkgCache -> !oracleFilenamesFromWeb.contains(pkgCache.getFileName())).collect(Collectors.toList());
-            LOGGER.debug("{} Oracle packages need to be removed from cache", oraclePkgsToRemove.size());
-            CacheManager.INSTANCE.pkgCache.getPkgs().removeAll(oraclePkgsToRemove);
-            MongoDbManager.INSTANCE.removePkgs(oraclePkgsToRemove);
-        } else {
-            LOGGER.debug("Oracle packages are up to date");
-        }
 
-        // Redhat
-        ExecutorService              redhatExecutor    = Executors.newSingleThreadExecutor();
-        CompletionService<List<Pkg>> redhatService     = new ExecutorCompletionService<>(redhatExecutor);
-        List<Pkg>                    redhatPkgsFromWeb = new ArrayList<>();
-        try {
-            // Get packages from Redhat
-            redhatService.submit(Helper.createTask(Distro.RED_HAT));
-            redhatExecutor.shutdown();
-            while (!redhatExecutor.isTerminated()) {
-                try {
-                    redhatPkgsFromWeb.addAll(redhatService.take().get());
-                } catch (ExecutionException | InterruptedException e) {
-                    LOGGER.error("Error adding fetched Redhat packages to list. {}", e.getMessage());
+                // Apply all removals in one batch
+                if (pkgsToRemove.isEmpty()) {
+                    LOGGER.debug("All packages are up to date");
+                } else {
+                    final Set<String> idsToRemove = pkgsToRemove.stream().map(Pkg::getId).collect(Collectors.toSet());
+                    pkgCache.removeAll(idsToRemove);
+                    ephemeralIdCache.removePkgIds(idsToRemove);
+                    persistenceQueue.remove(pkgsToRemove);
+                    LOGGER.debug("Removed {} packages from cache", pkgsToRemove.size());
                 }
+            } finally {
+                reconcileExecutor.shutdownNow();
+                // Fetches that never started (e.g. waiting for a permit) would keep their GitHub budget reserved
+                reservations.forEach(GithubBudget.INSTANCE::releaseIfNotStarted);
             }
         } finally {
-            redhatExecutor.shutdownNow();
+            cleaning.set(false);
         }
+        LOGGER.debug("Cache cleaned up in {} ms", (System.currentTimeMillis() - start));
+    }
 
-        List<Pkg> redhatPkgsFromCache = CacheManager.INSTANCE.pkgCache.getPkgs()
-                                                                      .stream()
-                                                                      .filter(pkg -> Distro.RED_HAT.get().equals(pkg.getDistribution()))
-                                                                      .collect(Collectors.toList());
-
-        if (redhatPkgsFromCache.size() > redhatPkgsFromWeb.size()) {
-            List<String> redhatFilenamesFromWeb = redhatPkgsFromWeb.stream().map(pkgWeb -> pkgWeb.getFileName()).collect(Collectors.toList());
-            List<Pkg>    redhatPkgsToRemove     = redhatPkgsFromCache.stream().filter(pkgCache -> !redhatFilenamesFromWeb.contains(pkgCache.getFileName())).collect(Collectors.toList());
-            LOGGER.debug("{} Redhat packages need to be removed from cache", redhatPkgsToRemove.size());
-            CacheManager.INSTANCE.pkgCache.getPkgs().removeAll(redhatPkgsToRemove);
-            MongoDbManager.INSTANCE.removePkgs(redhatPkgsToRemove);
-        } else {
-            LOGGER.debug("Redhat packages are up to date");
+    /**
+     * Returns the cached packages of the given distro whose filename was not found upstream.
+     * Nothing will be removed if the upstream fetch was incomplete or empty, or if it would remove
+     * more than MAX_REMOVAL_RATIO of the cached packages, which usually indicates a partial fetch.
+     */
+    private List<Pkg> getPkgsToRemove(final Distro distro, final Optional<List<Pkg>> pkgsFromWeb, final List<Pkg> pkgsFromCache) {
+        if (pkgsFromWeb.isEmpty()) {
+            LOGGER.debug("{} packages could not be fetched completely, skip cleanup", distro.getName());
+            return List.of();
         }
-
-        cleaning.set(false);
-        LOGGER.debug("Cache cleaned up in {} ms", (System.currentTimeMillis() - start));
+        if (pkgsFromWeb.get().isEmpty()) {
+            LOGGER.debug("No {} packages fetched, skip cleanup", distro.getName());
+            return List.of();
+        }
+        final Set<String> filenamesFromWeb = pkgsFromWeb.get().stream().map(Pkg::getFileName).collect(Collectors.toSet());
+        final List<Pkg>   pkgsToRemove     = pkgsFromCache.stream().filter(pkg -> !filenamesFromWeb.contains(pkg.getFileName())).collect(Collectors.toList());
+        if (pkgsToRemove.size() > pkgsFromCache.size() * MAX_REMOVAL_RATIO) {
+            LOGGER.warn("{} of {} {} packages would be removed, skip cleanup", pkgsToRemove.size(), pkgsFromCache.size(), distro.getName());
+            return List.of();
+        }
+        LOGGER.debug("{} {} packages need to be removed from cache", pkgsToRemove.size(), distro.getName());
+        return pkgsToRemove;
     }
 
     private void updateDistributionSpecificLatestBuild() {
@@ -629,25 +865,21 @@ public enum CacheManager {
         LOGGER.debug("Updated latest build available for all packages.");
     }
 
-    private void updateLatestBuild(final ReleaseStatus releaseStatus) {
+    private void updateLatestBuild(final PkgCache.Draft<String, Pkg> draft, final ReleaseStatus releaseStatus) {
         Distro.getDistrosWithJavaVersioning()
               .stream()
               .forEach(distro -> {
                   MajorVersion.getAllMajorVersions().forEach(majorVersion -> {
                       final int mv   = majorVersion.getAsInt();
-                      List<Pkg> pkgs = pkgCache.getPkgs()
-                                               .stream()
-                                               .filter(pkg -> pkg.getReleaseStatus() == releaseStatus)
-                                               .filter(pkg -> pkg.getDistribution().getDistro() == distro)
-                                               .filter(pkg -> pkg.getJavaVersion().getMajorVersion().getAsInt() == mv)
-                                               .collect(Collectors.toList());
+                      List<Pkg> pkgs = draft.getPkgs()
+                                            .stream()
+                                            .filter(pkg -> pkg.getReleaseStatus() == releaseStatus)
+                                            .filter(pkg -> pkg.getDistribution().getDistro() == distro)
+                                            .filter(pkg -> pkg.getJavaVersion().getMajorVersion().getAsInt() == mv)
+                                            .collect(Collectors.toList());
                       SemVer maxSemVer = pkgs.stream().max(Comparator.comparing(Pkg::getSemver)).map(pkg -> pkg.getSemver()).orElse(null);
                       if (null != maxSemVer) {
-                          pkgs.forEach(pkg -> pkg.setLatestBuildAvailable(false));
-                          pkgs.stream()
-                              .filter(pkg -> pkg.getSemver().compareTo(maxSemVer) == 0)
-                              .collect(Collectors.toList())
-                              .forEach(pkg -> pkg.setLatestBuildAvailable(true));
+                          pkgs.forEach(pkg -> draft.setLatestBuildAvailable(pkg, pkg.getSemver().compareTo(maxSemVer) == 0));
                       }
                   });
               });
@@ -658,9 +890,6 @@ public enum CacheManager {
     }
 
     public List<MajorVersion> getMajorVersions() {
-        if (majorVersions.isEmpty()) {
-            updateMajorVersions();
-        }
-        return majorVersions;
+        return pkgCache.getMajorVersions();
     }
 }
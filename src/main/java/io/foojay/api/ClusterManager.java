@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.foojay.api.pkg.Pkg;
+import io.foojay.api.util.Config;
+import io.foojay.api.util.PkgCache;
+import org.bson.BsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Coordinates several API nodes that share one mongodb (FOOJAY_API_CLUSTER=true).
+ * The nodes elect a leader with a lease document in mongodb. Only the leader refreshes the
+ * package cache from the upstream sources and writes the changes to mongodb. The followers
+ * tail a change stream on the packages collection and apply the changes to their package
+ * cache, so all nodes serve the same packages without scraping the upstream sources.
+ * Change streams need mongodb to run as replica set, a single node replica set is sufficient.
+ * Without FOOJAY_API_CLUSTER every node is its own leader.
+ */
+public enum ClusterManager {
+    INSTANCE;
+
+    private static final Logger              LOGGER           = LoggerFactory.getLogger(ClusterManager.class);
+    private static final String              LEASE_NAME       = "pkg-refresh";
+    private static final int                 MAX_CHANGES      = 1000;
+    private static final long                RETRY_DELAY      = 5; // seconds
+    private static final int                 HISTORY_LOST     = 286;
+    private static final int                 FATAL_ERROR      = 280;
+    private        final boolean             clustered;
+    private        final long                leaseDuration;
+    private        final String              nodeId;
+    // Package id per document id (_id), only accessed by the follower thread
+    private        final Map<String, String> pkgIdsByDocumentId = new HashMap<>();
+    private        volatile boolean          leader;
+    private        volatile boolean          running;
+    private              BsonDocument        resumeToken;
+    private              ScheduledExecutorService leaseRenewer;
+    private              Thread              follower;
+
+
+    ClusterManager() {
+        clustered     = Config.INSTANCE.getFoojayCluster();
+        leaseDuration = Config.INSTANCE.getFoojayLease();
+        nodeId        = getHostName() + "-" + UUID.randomUUID();
+        leader        = !clustered;
+        running       = false;
+    }
+
+
+    public boolean isClustered() { return clustered; }
+
+    /**
+     * Returns true if this node holds the lease to refresh the packages, always true if the
+     * node is not part of a cluster
+     * @return true if this node should refresh the packages
+     */
+    public boolean isLeader() { return leader; }
+
+    public String getNodeId() { return nodeId; }
+
+    /**
+     * Starts the lease renewal and the change stream follower if this node is part of a cluster
+     */
+    public synchronized void start() {
+        if (!clustered || running) { return; }
+        running = true;
+        LOGGER.info("Starting cluster node {}", nodeId);
+
+        leaseRenewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Renew well before the lease expires, so one failed renewal doesn't cost the leadership
+        leaseRenewer.scheduleWithFixedDelay(this::renewLease, 0, Math.max(1, leaseDuration / 3), TimeUnit.SECONDS);
+
+        follower = new Thread(this::follow, "cluster-follower");
+        follower.setDaemon(true);
+        follower.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "cluster-shutdown"));
+    }
+
+    /**
+     * Stops following and releases the lease, so another node can take over immediately
+     */
+    public synchronized void shutdown() {
+        if (!running) { return; }
+        running = false;
+        leaseRenewer.shutdownNow();
+        follower.interrupt();
+        if (leader) {
+            leader = false;
+            MongoDbManager.INSTANCE.releaseLease(LEASE_NAME, nodeId);
+        }
+    }
+
+    /**
+     * Applies one change of the packages collection to the given draft
+     * @param draft The draft of the package cache
+     * @param pkgIdsByDocumentId The package id per document id, will be updated
+     * @param operationType The type of the change
+     * @param documentId The document id (_id) of the changed document
+     * @param pkg The changed package or null if it has been deleted
+     * @return false if the change cannot be applied incrementally (e.g. the collection was dropped)
+     */
+    static boolean apply(final PkgCache.Draft<String, Pkg> draft, final Map<String, String> pkgIdsByDocumentId, final OperationType operationType, final String documentId, final Pkg pkg) {
+        switch (operationType) {
+            case INSERT:
+            case REPLACE:
+            case UPDATE:
+                // No package if the document has been deleted before the lookup, the delete follows
+                if (null == pkg) { return true; }
+                final String previousPkgId = pkgIdsByDocumentId.put(documentId, pkg.getId());
+                if (null != previousPkgId && !previousPkgId.equals(pkg.getId())) { draft.remove(previousPkgId); }
+                draft.put(pkg.getId(), pkg);
+                return true;
+            case DELETE:
+                final String pkgId = pkgIdsByDocumentId.remove(documentId);
+                if (null != pkgId) { draft.remove(pkgId); }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void renewLease() {
+        try {
+            final boolean acquired = MongoDbManager.INSTANCE.acquireLease(LEASE_NAME, nodeId, leaseDuration);
+            if (acquired && !leader) { LOGGER.info("Node {} became leader", nodeId); }
+            if (!acquired && leader) { LOGGER.warn("Node {} lost leadership", nodeId); }
+            leader = acquired;
+        } catch (Exception e) {
+            LOGGER.error("Error renewing lease of node {}. {}", nodeId, e.getMessage());
+            leader = false;
+        }
+    }
+
+    private void follow() {
+        while (running) {
+            if (leader) {
+                // The leader's cache is the source of the changes, start from a full load when following again
+                resumeToken = null;
+                sleep(RETRY_DELAY);
+                continue;
+            }
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Pkg>> cursor = MongoDbManager.INSTANCE.watchPkgs(resumeToken)) {
+                // The stream was opened before loading, so no change between load and first event is lost
+                if (null == resumeToken) { resync(); }
+                while (running && !leader) {
+                    if (!applyChanges(cursor)) {
+                        resumeToken = null;
+                        break;
+                    }
+                }
+            } catch (MongoException e) {
+                LOGGER.error("Error following package changes. {}", e.getMessage());
+                if (HISTORY_LOST == e.getCode() || FATAL_ERROR == e.getCode()) { resumeToken = null; }
+                sleep(RETRY_DELAY);
+            } catch (Exception e) {
+                LOGGER.error("Error applying package changes. {}", e.getMessage());
+                resumeToken = null;
+                sleep(RETRY_DELAY);
+            }
+        }
+    }
+
+    // Applies the available changes (at most MAX_CHANGES) as one generation
+    private boolean applyChanges(final MongoChangeStreamCursor<ChangeStreamDocument<Pkg>> cursor) {
+        final PkgCache<String, Pkg>       pkgCache    = CacheManager.INSTANCE.pkgCache;
+        PkgCache.Draft<String, Pkg>       draft       = null;
+        int                               noOfChanges = 0;
+        boolean                           applied     = true;
+        ChangeStreamDocument<Pkg>         change;
+        while (applied && noOfChanges < MAX_CHANGES && null != (change = cursor.tryNext())) {
+            if (null == draft) { draft = pkgCache.draft(); }
+            final BsonDocument documentKey = change.getDocumentKey();
+            final String       documentId  = null == documentKey ? null : MongoDbManager.toDocumentId(documentKey.get("_id"));
+            applied = apply(draft, pkgIdsByDocumentId, change.getOperationType(), documentId, change.getFullDocument());
+            noOfChanges++;
+        }
+        if (null != draft && applied) {
+            pkgCache.publish(draft);
+            // Keep the epoch, ephemeral ids that have been handed out before stay valid
+            CacheManager.INSTANCE.updateEphemeralIds(draft.getAdded(), draft.getRemoved());
+            LOGGER.debug("Applied {} package changes from mongodb", noOfChanges);
+        }
+        if (null != cursor.getResumeToken()) { resumeToken = cursor.getResumeToken(); }
+        return applied;
+    }
+
+    // Replaces the package cache with the packages in mongodb
+    private void resync() {
+        final Map<String, String> pkgIds = MongoDbManager.INSTANCE.getPkgIdsByDocumentId();
+        final List<Pkg>           pkgs   = MongoDbManager.INSTANCE.getPkgs();
+        pkgIdsByDocumentId.clear();
+        pkgIdsByDocumentId.putAll(pkgIds);
+        if (pkgs.isEmpty()) {
+            LOGGER.warn("No packages in mongodb, keeping the package cache");
+            return;
+        }
+        // Not concurrently with the reconcile of a snapshot that has been loaded on startup
+        CacheManager.INSTANCE.updateExclusively(() -> {
+            CacheManager.INSTANCE.replacePkgs(pkgs);
+            CacheManager.INSTANCE.refreshEphemeralIds();
+        });
+        LOGGER.info("Synchronized {} packages from mongodb", pkgs.size());
+    }
+
+    private void sleep(final long seconds) {
+        try {
+            TimeUnit.SECONDS.sleep(seconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static String getHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
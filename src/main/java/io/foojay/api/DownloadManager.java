@@ -19,23 +19,73 @@
 
 package io.foojay.api;
 
-
+import io.foojay.api.pkg.Architecture;
+import io.foojay.api.pkg.Distro;
+import io.foojay.api.pkg.OperatingSystem;
+import io.foojay.api.pkg.Pkg;
+import io.foojay.api.util.Config;
+import io.foojay.api.util.DownloadStatistics;
+import io.foojay.api.util.DownloadStatistics.Key;
+import io.foojay.api.util.HeavyHitters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 
+/**
+ * Counts the downloads per package id in memory and writes them behind to mongodb.
+ * Counting a download never waits on the database, the increments that have not been
+ * stored yet will be sent as one batch of $inc updates every FOOJAY_API_DOWNLOAD_FLUSH
+ * seconds and when the JVM shuts down.
+ * Every download is also counted in time buckets (see DownloadStatistics) which answer
+ * queries like the downloads of a distro and major version on an architecture in a given week,
+ * and in heavy hitters sketches which return the most downloaded packages without sorting.
+ */
 public enum DownloadManager {
     INSTANCE;
 
-    private static final Logger                          LOGGER    = LoggerFactory.getLogger(DownloadManager.class);
-    private        final ConcurrentHashMap<String, Long> downloads = new ConcurrentHashMap<>();
+    private static final Logger                             LOGGER              = LoggerFactory.getLogger(DownloadManager.class);
+    private static final int                                TOP_CAPACITY        = 1000;
+    private static final int                                TOP_CAPACITY_DISTRO = 200;
+    private        final ConcurrentHashMap<String, Counter> downloads           = new ConcurrentHashMap<>();
+    private        final AtomicBoolean                      preloaded           = new AtomicBoolean(false);
+    private        final DownloadStatistics                 statistics          = new DownloadStatistics();
+    private        final HeavyHitters<String>               mostDownloaded      = new HeavyHitters<>(TOP_CAPACITY);
+    private        final Map<Distro, HeavyHitters<String>>  mostDownloadedPerDistro;
+    private        final ScheduledExecutorService           flusher;
+
+
+    DownloadManager() {
+        final Map<Distro, HeavyHitters<String>> perDistro = new EnumMap<>(Distro.class);
+        for (Distro distro : Distro.values()) { perDistro.put(distro, new HeavyHitters<>(TOP_CAPACITY_DISTRO)); }
+        mostDownloadedPerDistro = Collections.unmodifiableMap(perDistro);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "download-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = Config.INSTANCE.getFoojayDownloadFlushInterval();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "download-flush-shutdown"));
+    }
 
 
     public void preloadDownloads() {
+        if (!preloaded.compareAndSet(false, true)) { return; }
         Map<String, Long> downloadsFromMongoDb = new HashMap<>();
         if (MongoDbManager.INSTANCE.isConnected()) {
             downloadsFromMongoDb = MongoDbManager.INSTANCE.getDowloads();
@@ -44,25 +94,166 @@ public enum DownloadManager {
         if (downloadsFromMongoDb.isEmpty()) {
             LOGGER.debug("Downloads in mongodb are empty.");
         } else {
-            downloads.putAll(downloadsFromMongoDb);
+            downloadsFromMongoDb.forEach((pkgId, noOfDownloads) -> {
+                if (null == noOfDownloads) { return; }
+                downloads.computeIfAbsent(pkgId, id -> new Counter()).stored.addAndGet(noOfDownloads);
+                offerMostDownloaded(CacheManager.INSTANCE.pkgCache.get(pkgId), pkgId, noOfDownloads);
+            });
             LOGGER.debug("Successfully loaded downloads for {} package ids from mongodb.", downloadsFromMongoDb.size());
         }
+        if (MongoDbManager.INSTANCE.isConnected()) {
+            statistics.load(MongoDbManager.INSTANCE.getDownloadStatistics());
+            statistics.rollup(Instant.now());
+        }
     }
 
     public void increaseCounterForId(final String pkgId) {
-        if (downloads.isEmpty()) { preloadDownloads(); }
+        if (!preloaded.get()) { preloadDownloads(); }
+
+        final Pkg pkg = CacheManager.INSTANCE.pkgCache.get(pkgId);
+        if (null == pkg) { return; }
+        downloads.computeIfAbsent(pkgId, id -> new Counter()).increments.increment();
+        statistics.record(pkg, Instant.now());
+        offerMostDownloaded(pkg, pkgId, 1);
+    }
 
-        if (!CacheManager.INSTANCE.pkgCache.getKeys().contains(pkgId)) { return; }
-        long noOfDownloads = downloads.containsKey(pkgId) ? downloads.get(pkgId) : 0L;
-        noOfDownloads++;
-        downloads.put(pkgId, noOfDownloads);
+    /**
+     * Returns the n most downloaded package ids with their estimated downloads, the most
+     * downloaded package id first. The counts include the downloads loaded from mongodb,
+     * see HeavyHitters for the guarantees of the estimates.
+     * @param n The max number of package ids
+     * @return the n most downloaded package ids
+     */
+    public List<HeavyHitters.Counter<String>> getMostDownloaded(final int n) { return mostDownloaded.getTop(n); }
+
+    /**
+     * Returns the n most downloaded package ids of the given distro with their estimated downloads
+     * @param distro The distro
+     * @param n The max number of package ids
+     * @return the n most downloaded package ids of the given distro
+     */
+    public List<HeavyHitters.Counter<String>> getMostDownloaded(final Distro distro, final int n) {
+        final HeavyHitters<String> heavyHitters = null == distro ? null : mostDownloadedPerDistro.get(distro);
+        return null == heavyHitters ? List.of() : heavyHitters.getTop(n);
+    }
+
+    public long getDownloadsForId(final String pkgId) {
+        final Counter counter = downloads.get(pkgId);
+        return null == counter ? 0 : counter.getTotal();
+    }
+
+    public Map<Distro, Long> getDownloadsPerDistro() {
+        Map<Distro, Long> downloadsPerDistro = new EnumMap<>(Distro.class);
+        downloads.forEach((pkgId, counter) -> {
+            Pkg pkg = CacheManager.INSTANCE.pkgCache.get(pkgId);
+            if (null == pkg || null == pkg.getDistribution()) { return; }
+            downloadsPerDistro.merge(pkg.getDistribution().getDistro(), counter.getTotal(), Long::sum);
+        });
+        return downloadsPerDistro;
+    }
+
+    /**
+     * Returns the number of downloads of the given package id in the given range
+     * @param pkgId The package id
+     * @param from Start of the range (inclusive)
+     * @param to End of the range (exclusive)
+     * @return the number of downloads of the given package id in the given range
+     */
+    public long getDownloadsForId(final String pkgId, final Instant from, final Instant to) {
+        return statistics.getDownloadsForId(pkgId, from, to);
+    }
+
+    /**
+     * Returns the number of downloads in the given range that match the given criteria,
+     * null criteria match everything
+     * @param from Start of the range (inclusive)
+     * @param to End of the range (exclusive)
+     * @param distro The distro or null
+     * @param majorVersion The major version or null
+     * @param operatingSystem The operating system or null
+     * @param architecture The architecture or null
+     * @return the number of downloads in the given range that match the given criteria
+     */
+    public long getDownloads(final Instant from, final Instant to, final Distro distro, final Integer majorVersion, final OperatingSystem operatingSystem, final Architecture architecture) {
+        return statistics.getDownloads(from, to, key -> (null == distro          || distro          == key.getDistro())          &&
+                                                        (null == majorVersion    || majorVersion    == key.getMajorVersion())    &&
+                                                        (null == operatingSystem || operatingSystem == key.getOperatingSystem()) &&
+                                                        (null == architecture    || architecture    == key.getArchitecture()));
+    }
+
+    public Map<Distro, Long> getDownloadsPerDistro(final Instant from, final Instant to) {
+        return statistics.getDownloadsPer(from, to, Key::getDistro);
+    }
 
-        // Store package id and no of downloads for this package
+    public Map<Integer, Long> getDownloadsPerMajorVersion(final Instant from, final Instant to) {
+        return statistics.getDownloadsPer(from, to, Key::getMajorVersion);
+    }
+
+    public Map<OperatingSystem, Long> getDownloadsPerOperatingSystem(final Instant from, final Instant to) {
+        return statistics.getDownloadsPer(from, to, Key::getOperatingSystem);
+    }
+
+    public Map<Architecture, Long> getDownloadsPerArchitecture(final Instant from, final Instant to) {
+        return statistics.getDownloadsPer(from, to, Key::getArchitecture);
+    }
+
+    /**
+     * Sends the increments of all counters that have not been stored yet as one batch of
+     * $inc updates to mongodb, followed by the pending download statistics. Only the counters
+     * whose increments have been applied are marked as stored, the others will be sent with
+     * the next flush.
+     */
+    public synchronized void flush() {
         try {
-            MongoDbManager.INSTANCE.upsertDownloadForId(pkgId, noOfDownloads);
-            LOGGER.debug("Successfully stored download for package id {} to mongodb.", pkgId);
+            final Map<String, Long> increments = new HashMap<>();
+            downloads.forEach((pkgId, counter) -> {
+                final long pending = counter.increments.sum() - counter.flushed;
+                if (pending > 0) { increments.put(pkgId, pending); }
+            });
+            if (!increments.isEmpty()) {
+                final Set<String> written = MongoDbManager.INSTANCE.incrementDownloads(increments);
+                written.forEach(pkgId -> downloads.get(pkgId).flushed += increments.get(pkgId));
+                LOGGER.debug("Successfully stored downloads for {} of {} package ids to mongodb.", written.size(), increments.size());
+            }
         } catch (Exception e) {
-            LOGGER.error("Error storing download download for package id {} to mongodb. {}", pkgId, e);
+            LOGGER.error("Error storing downloads to mongodb. {}", e.getMessage());
+        }
+        try {
+            statistics.flush(MongoDbManager.INSTANCE::incrementDownloadStatistics);
+            statistics.rollup(Instant.now());
+        } catch (Exception e) {
+            LOGGER.error("Error storing download statistics to mongodb. {}", e.getMessage());
+        }
+    }
+
+    private void offerMostDownloaded(final Pkg pkg, final String pkgId, final long noOfDownloads) {
+        mostDownloaded.offer(pkgId, noOfDownloads);
+        if (null == pkg || null == pkg.getDistribution()) { return; }
+        mostDownloadedPerDistro.get(pkg.getDistribution().getDistro()).offer(pkgId, noOfDownloads);
+    }
+
+    /**
+     * Stops the periodic flush and stores all remaining increments
+     */
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        flush();
+    }
+
+
+    private static final class Counter {
+        // Downloads loaded from mongodb are kept apart from the increments of this instance
+        private final AtomicLong stored     = new AtomicLong(0);
+        private final LongAdder  increments = new LongAdder();
+        // Increments that have been stored in mongodb, only accessed in flush()
+        private       long       flushed    = 0;
+
+
+        private long getTotal() { return stored.get() + increments.sum(); }
     }
 }
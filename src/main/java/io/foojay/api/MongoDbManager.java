@@ -19,37 +19,81 @@
 
 package io.foojay.api;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.MongoCredential;
 import com.mongodb.MongoException;
+import com.mongodb.MongoWriteException;
 import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.result.UpdateResult;
 import io.foojay.api.pkg.Pkg;
+import io.foojay.api.pkg.PkgCodec;
 import io.foojay.api.util.Config;
 import io.foojay.api.util.Constants;
-import io.foojay.api.util.OutputFormat;
+import io.foojay.api.util.DownloadStatistics.HourIncrement;
+import io.foojay.api.util.ExecutorManager;
+import io.foojay.api.util.Helper;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.conversions.Bson;
-import org.bson.json.JsonParseException;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.or;
+import static com.mongodb.client.model.Projections.excludeId;
+import static com.mongodb.client.model.Projections.fields;
+import static com.mongodb.client.model.Projections.include;
 import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.inc;
 import static com.mongodb.client.model.Updates.set;
 import static io.foojay.api.pkg.Pkg.FIELD_FILENAME;
 import static io.foojay.api.pkg.Pkg.FIELD_LATEST_BUILD_AVAILABLE;
@@ -58,17 +102,33 @@ import static io.foojay.api.pkg.Pkg.FIELD_LATEST_BUILD_AVAILABLE;
 public enum MongoDbManager {
     INSTANCE;
 
-    private static final Logger        LOGGER           = LoggerFactory.getLogger(MongoDbManager.class);
-
-    private static final String        FIELD_PACKAGE_ID = "id";
-    private static final String        FIELD_DOWNLOADS  = "downloads";
-
-    private              MongoClient   mongoClient;
-    private              boolean       connected;
-    private              MongoDatabase database;
+    private static final Logger           LOGGER           = LoggerFactory.getLogger(MongoDbManager.class);
+
+    private static final String           FIELD_PACKAGE_ID = "id";
+    private static final String           FIELD_DOWNLOADS  = "downloads";
+    private static final String           FIELD_HOUR       = "hour";
+    private static final String           FIELD_AGGREGATES = "aggregates";
+    private static final String           FIELD_KEY        = "key";
+    private static final String           FIELD_UNIQUE     = "unique";
+    private static final String           FIELD_ID         = "_id";
+    private static final String           FIELD_OWNER      = "owner";
+    private static final String           FIELD_EXPIRES    = "expires";
+    private static final BulkWriteOptions UNORDERED        = new BulkWriteOptions().ordered(false);
+    private static final PkgCodec         PKG_CODEC        = new PkgCodec();
+    private static final Bson             PKG_PROJECTION   = fields(include(PkgCodec.DECODED_FIELDS), excludeId());
+    private static final List<Index>      INDEXES          = List.of(new Index(Constants.PACKAGES_COLLECTION, FIELD_PACKAGE_ID, true),
+                                                                     new Index(Constants.PACKAGES_COLLECTION, FIELD_FILENAME, false),
+                                                                     new Index(Constants.DOWNLOADS_COLLECTION, FIELD_PACKAGE_ID, true),
+                                                                     new Index(Constants.STATISTICS_COLLECTION, FIELD_HOUR, true));
+
+    private        final int              batchSize;
+    private              MongoClient      mongoClient;
+    private              boolean          connected;
+    private              MongoDatabase    database;
 
 
     MongoDbManager() {
+        batchSize = Config.INSTANCE.getFoojayMongoDbBatchSize();
         connected = false;
     }
 
@@ -86,6 +146,7 @@ public enum MongoDbManager {
                 mongoClient = MongoClients.create(MongoClientSettings.builder()
                                                                      .applyToClusterSettings(builder -> builder.hosts(Arrays.asList(new ServerAddress(Config.INSTANCE.getFoojayMongoDbUrl(), Config.INSTANCE.getFoojayMongoDbPort()))))
                                                                      .credential(credential)
+                                                                     .codecRegistry(CodecRegistries.fromRegistries(MongoClientSettings.getDefaultCodecRegistry(), CodecRegistries.fromCodecs(PKG_CODEC)))
                                                                      .build());
 
                 database = mongoClient.getDatabase(Config.INSTANCE.getFoojayMongoDbDatabase());
@@ -102,6 +163,7 @@ public enum MongoDbManager {
                     LOGGER.debug("Creating mongodb collection {}", Constants.DOWNLOADS_COLLECTION);
                     database.createCollection(Constants.DOWNLOADS_COLLECTION, null);
                 }
+                ensureIndexes();
             } catch (MongoException e) {
                 connected = false;
                 LOGGER.debug("Error connecting to mongodb at {}:{}. {}", Config.INSTANCE.getFoojayMongoDbUrl(), Config.INSTANCE.getFoojayMongoDbPort(), e.getMessage());
@@ -111,6 +173,49 @@ public enum MongoDbManager {
 
     public boolean isConnected() { return connected; }
 
+    /**
+     * Creates the indexes the filters of this class rely on (package id, filename, hour) if they
+     * don't exist yet and logs the indexes that are still missing afterwards, e.g. because
+     * a unique index cannot be created on a collection that contains duplicates.
+     * @return true if all indexes exist
+     */
+    public boolean ensureIndexes() {
+        if (null == database) { return false; }
+        try {
+            for (Index index : INDEXES) {
+                try {
+                    database.getCollection(index.collection).createIndex(Indexes.ascending(index.field), new IndexOptions().unique(index.unique));
+                } catch (MongoException e) {
+                    LOGGER.error("Error creating index on {}.{}. {}", index.collection, index.field, e.getMessage());
+                }
+            }
+            final List<String> missingIndexes = getMissingIndexes();
+            if (missingIndexes.isEmpty()) {
+                LOGGER.debug("All {} mongodb indexes exist.", INDEXES.size());
+                return true;
+            }
+            LOGGER.error("Missing mongodb indexes {}, queries on these fields will scan the whole collection.", missingIndexes);
+            return false;
+        } catch (MongoException e) {
+            LOGGER.error("Error verifying mongodb indexes. {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the indexes that are missing in the form collection.field
+     * @return the indexes that are missing in the form collection.field
+     */
+    public List<String> getMissingIndexes() {
+        final List<String>                missingIndexes = new ArrayList<>();
+        final Map<String, List<Document>> indexes        = new HashMap<>();
+        for (Index index : INDEXES) {
+            final List<Document> existingIndexes = indexes.computeIfAbsent(index.collection, collection -> database.getCollection(collection).listIndexes().into(new ArrayList<>()));
+            if (!hasIndex(existingIndexes, index.field, index.unique)) { missingIndexes.add(index.collection + "." + index.field); }
+        }
+        return missingIndexes;
+    }
+
     public void connect() {
         if (connected) { return; }
         init();
@@ -134,16 +239,59 @@ public enum MongoDbManager {
             LOGGER.error("Constants.BUNDLES_COLLECTION not set.");
             return new ArrayList<>();
         };
-        final MongoCollection<Document> collection = database.getCollection(Constants.PACKAGES_COLLECTION);
-        final List<Pkg>                 result     = new ArrayList<>();
-        collection.find().forEach(document -> {
-            Pkg pkg = new Pkg(document.toJson());
-            result.add(pkg);
-        });
+        final List<Pkg> result;
+        if (Config.INSTANCE.getFoojayParallelDecode()) {
+            result = getPkgsDecodedInParallel();
+        } else {
+            // Decoded by the PkgCodec while iterating the cursor
+            result = database.getCollection(Constants.PACKAGES_COLLECTION, Pkg.class)
+                             .find()
+                             .projection(PKG_PROJECTION)
+                             .batchSize(batchSize)
+                             .into(new ArrayList<>());
+        }
         LOGGER.debug("Successfully returned {} packages from mongodb.", result.size());
         return result;
     }
 
+    /**
+     * Fetches the raw package documents and decodes them in batches on an executor. Each batch
+     * will be submitted as soon as it is full, so the cursor keeps fetching while the previous
+     * batches are decoded and the raw bytes of a batch can be collected once it is decoded.
+     * @return list of all packages in the packages collection
+     */
+    private List<Pkg> getPkgsDecodedInParallel() {
+        final ExecutorService         executor = ExecutorManager.INSTANCE.newExecutor("mongodb-decode");
+        final List<Future<List<Pkg>>> futures  = new ArrayList<>();
+        try {
+            List<RawBsonDocument> batch = new ArrayList<>(batchSize);
+            for (RawBsonDocument document : database.getCollection(Constants.PACKAGES_COLLECTION, RawBsonDocument.class).find().projection(PKG_PROJECTION).batchSize(batchSize)) {
+                batch.add(document);
+                if (batch.size() == batchSize) {
+                    futures.add(executor.submit(decodeTask(batch)));
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) { futures.add(executor.submit(decodeTask(batch))); }
+
+            // Collect in the order of the cursor
+            final List<Pkg> result = new ArrayList<>();
+            for (Future<List<Pkg>> future : futures) { result.addAll(future.get()); }
+            return result;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error decoding packages from mongodb. " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Decoding packages from mongodb interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Callable<List<Pkg>> decodeTask(final List<RawBsonDocument> documents) {
+        return () -> documents.stream().map(document -> document.decode(PKG_CODEC)).collect(Collectors.toList());
+    }
+
     /**
      * Inserts given list of packages to packages collection
      * @param pkgs
@@ -166,16 +314,18 @@ public enum MongoDbManager {
             LOGGER.error("Constants.BUNDLES_COLLECTION not set.");
             return;
         };
-        final MongoCollection<Document> collection = database.getCollection(Constants.PACKAGES_COLLECTION);
-        final List<Document>            documents  = new ArrayList<>();
-        for (Pkg pkg : pkgs) {
-            try {
-                documents.add(Document.parse(pkg.toString(OutputFormat.FULL_COMPRESSED)));
-            } catch (JsonParseException e) {
-                LOGGER.error("Error parsing json when adding package {}. {}", pkg.getId(), e.getMessage());
-            }
+        final MongoCollection<Pkg> collection = database.getCollection(Constants.PACKAGES_COLLECTION, Pkg.class);
+        final InsertManyOptions    options    = new InsertManyOptions().ordered(false);
+        // Each batch runs on its own thread
+        final List<Callable<Boolean>> batches = Helper.partition(pkgs, batchSize).stream().map(batch -> (Callable<Boolean>) () -> {
+            collection.insertMany(batch, options);
+            return true;
+        }).collect(Collectors.toList());
+        final int noOfInserted = ExecutorManager.INSTANCE.invokeAll("mongodb-insert", batches).size();
+        if (noOfInserted < batches.size()) {
+            LOGGER.error("Error inserting {} of {} batches of packages to mongodb.", batches.size() - noOfInserted, batches.size());
+            return;
         }
-        collection.insertMany(documents);
         LOGGER.debug("Successfully inserted {} packages to mongodb.", pkgs.size());
     }
 
@@ -203,15 +353,14 @@ public enum MongoDbManager {
             return false;
         };
 
-        MongoCollection<Document> collection = database.getCollection(Constants.PACKAGES_COLLECTION);
-        ReplaceOptions replaceOptions = new ReplaceOptions().upsert(true);
-        for (Pkg pkg : pkgs) {
-            try {
-                Document document = Document.parse(pkg.toString(OutputFormat.FULL_COMPRESSED));
-                collection.replaceOne(eq(FIELD_PACKAGE_ID, pkg.getId()), document, replaceOptions);
-            } catch (JsonParseException e) {
-                LOGGER.error("Error parsing json when adding package {}. {}", pkg.getId(), e.getMessage());
-            }
+        final MongoCollection<Pkg>  collection     = database.getCollection(Constants.PACKAGES_COLLECTION, Pkg.class);
+        final ReplaceOptions        replaceOptions = new ReplaceOptions().upsert(true);
+        final List<WriteModel<Pkg>> replacements   = pkgs.stream()
+                                                         .<WriteModel<Pkg>>map(pkg -> new ReplaceOneModel<>(eq(FIELD_PACKAGE_ID, pkg.getId()), pkg, replaceOptions))
+                                                         .collect(Collectors.toList());
+        if (bulkWrite("mongodb-add", collection, replacements) < 0) {
+            LOGGER.error("Error adding new packages to mongodb.");
+            return false;
         }
         LOGGER.debug("Successfully added {} new packages to mongodb.", pkgs.size());
         return true;
@@ -241,16 +390,19 @@ public enum MongoDbManager {
             return false;
         };
 
-        MongoCollection<Document> collection = database.getCollection(Constants.PACKAGES_COLLECTION);
-        for (Pkg pkg : pkgs) {
-            try {
-                Bson deleteFilter = eq(FIELD_FILENAME, pkg.getFileName());
-                collection.deleteOne(deleteFilter);
-            } catch (JsonParseException e) {
-                LOGGER.error("Error when deleting package {}. {}", pkg.getId(), e.getMessage());
-            }
+        // Delete by the unique package id, other packages can share the filename. One delete per
+        // batch of ids keeps the size of the $in filters bounded.
+        final MongoCollection<Document>  collection = database.getCollection(Constants.PACKAGES_COLLECTION);
+        final Set<String>                pkgIds     = pkgs.stream().map(Pkg::getId).collect(Collectors.toSet());
+        final List<WriteModel<Document>> deletions  = Helper.partition(pkgIds, batchSize).stream()
+                                                            .<WriteModel<Document>>map(batch -> new DeleteManyModel<>(in(FIELD_PACKAGE_ID, batch)))
+                                                            .collect(Collectors.toList());
+        final long noOfDeleted = bulkWrite("mongodb-remove", collection, deletions);
+        if (noOfDeleted < 0) {
+            LOGGER.error("Error when deleting {} packages.", pkgs.size());
+            return false;
         }
-        LOGGER.debug("Successfully deleted {} packages from mongodb.", pkgs.size());
+        LOGGER.debug("Successfully deleted {} packages from mongodb.", noOfDeleted);
         return true;
     }
 
@@ -337,6 +489,224 @@ public enum MongoDbManager {
         LOGGER.debug("Successfully updated no of downloads for id {}", pkgId);
     }
 
+    /**
+     * Adds the given number of downloads to the downloads of each package id with one $inc
+     * update per package id, sent as unordered bulk writes. Increments that are not part of the
+     * returned package ids have not been applied and can be sent again.
+     * @param increments The number of downloads that should be added per package id
+     * @return the package ids whose downloads have been incremented
+     */
+    public Set<String> incrementDownloads(final Map<String, Long> increments) {
+        if (!connected) { init(); }
+        if (null == Config.INSTANCE.getFoojayMongoDbDatabase()) {
+            LOGGER.debug("Could not increment downloads because FOOJAY_MONGODB_DATABASE environment variable was not set.");
+            return Set.of();
+        }
+        if (null == database) {
+            LOGGER.error("Database is not set.");
+            database = mongoClient.getDatabase(Config.INSTANCE.getFoojayMongoDbDatabase());
+        }
+        if (null == Constants.DOWNLOADS_COLLECTION) {
+            LOGGER.error("Constants.DOWNLOADS_COLLECTION not set.");
+            return Set.of();
+        }
+        final MongoCollection<Document>  collection    = database.getCollection(Constants.DOWNLOADS_COLLECTION);
+        final UpdateOptions              updateOptions = new UpdateOptions().upsert(true);
+        final List<String>               pkgIds        = new ArrayList<>(increments.keySet());
+        final List<WriteModel<Document>> updates       = pkgIds.stream()
+                                                               .<WriteModel<Document>>map(pkgId -> new UpdateOneModel<>(eq(FIELD_PACKAGE_ID, pkgId), inc(FIELD_DOWNLOADS, increments.get(pkgId)), updateOptions))
+                                                               .collect(Collectors.toList());
+        final BitSet      applied = new BitSet(updates.size());
+        final Set<String> written = new HashSet<>();
+        if (bulkWrite("mongodb-downloads", collection, updates, applied) < 0) {
+            LOGGER.error("Error incrementing downloads for {} of {} package ids", updates.size() - applied.cardinality(), increments.size());
+        } else {
+            LOGGER.debug("Successfully incremented downloads for {} package ids", increments.size());
+        }
+        applied.stream().forEach(index -> written.add(pkgIds.get(index)));
+        return written;
+    }
+
+    /**
+     * Removes the downloads of the given package ids
+     * @param pkgIds The package ids whose downloads should be removed
+     */
+    void removeDownloads(final Collection<String> pkgIds) {
+        if (!connected || null == database || pkgIds.isEmpty()) { return; }
+        try {
+            database.getCollection(Constants.DOWNLOADS_COLLECTION).deleteMany(in(FIELD_PACKAGE_ID, pkgIds));
+        } catch (MongoException e) {
+            LOGGER.error("Error removing downloads of {} package ids. {}", pkgIds.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the persisted download statistics, one hour increment per hour
+     * @return the persisted download statistics
+     */
+    public List<HourIncrement> getDownloadStatistics() {
+        if (!connected) { init(); }
+        if (null == Config.INSTANCE.getFoojayMongoDbDatabase()) {
+            LOGGER.debug("Cannot return download statistics because FOOJAY_MONGODB_DATABASE environment variable was not set.");
+            return new ArrayList<>();
+        }
+        if (null == database) {
+            LOGGER.error("Database is not set.");
+            database = mongoClient.getDatabase(Config.INSTANCE.getFoojayMongoDbDatabase());
+        }
+        if (null == Constants.STATISTICS_COLLECTION) {
+            LOGGER.error("Constants.STATISTICS_COLLECTION not set.");
+            return new ArrayList<>();
+        }
+
+        final List<HourIncrement> increments = new ArrayList<>();
+        final Consumer<Document>  consumer   = document -> {
+            final HourIncrement increment = new HourIncrement(document.getLong(FIELD_HOUR));
+            readCounts(document.get(FIELD_DOWNLOADS, Document.class), increment.getPkgs());
+            readCounts(document.get(FIELD_AGGREGATES, Document.class), increment.getAggregates());
+            increments.add(increment);
+        };
+        database.getCollection(Constants.STATISTICS_COLLECTION).find().forEach(consumer);
+
+        LOGGER.debug("Successfully restored download statistics of {} hours from mongodb.", increments.size());
+        return increments;
+    }
+
+    /**
+     * Adds the given hour increments to the persisted download statistics. Each hour is stored
+     * in one document that holds the downloads per package id and per aggregated key, all counts
+     * of one hour are sent as one $inc update and all hours as unordered bulk writes. Hours that
+     * are not part of the returned hours have not been applied and can be sent again.
+     * @param increments The downloads per hour that should be added
+     * @return the start of the hours whose increments have been added
+     */
+    public Set<Long> incrementDownloadStatistics(final Collection<HourIncrement> increments) {
+        if (!connected) { init(); }
+        if (null == Config.INSTANCE.getFoojayMongoDbDatabase()) {
+            LOGGER.debug("Could not increment download statistics because FOOJAY_MONGODB_DATABASE environment variable was not set.");
+            return Set.of();
+        }
+        if (null == database) {
+            LOGGER.error("Database is not set.");
+            database = mongoClient.getDatabase(Config.INSTANCE.getFoojayMongoDbDatabase());
+        }
+        if (null == Constants.STATISTICS_COLLECTION) {
+            LOGGER.error("Constants.STATISTICS_COLLECTION not set.");
+            return Set.of();
+        }
+        final MongoCollection<Document>  collection    = database.getCollection(Constants.STATISTICS_COLLECTION);
+        final UpdateOptions              updateOptions = new UpdateOptions().upsert(true);
+        final List<WriteModel<Document>> updates       = new ArrayList<>();
+        final List<Long>                 hours         = new ArrayList<>();
+        final Set<Long>                  written       = new HashSet<>();
+        for (HourIncrement increment : increments) {
+            final List<Bson> incs = new ArrayList<>();
+            increment.getPkgs().forEach((pkgId, downloads) -> incs.add(inc(FIELD_DOWNLOADS + "." + pkgId, downloads)));
+            increment.getAggregates().forEach((key, downloads) -> incs.add(inc(FIELD_AGGREGATES + "." + key, downloads)));
+            if (incs.isEmpty()) {
+                written.add(increment.getStart());
+                continue;
+            }
+            updates.add(new UpdateOneModel<>(eq(FIELD_HOUR, increment.getStart()), combine(incs), updateOptions));
+            hours.add(increment.getStart());
+        }
+        final BitSet applied = new BitSet(updates.size());
+        if (bulkWrite("mongodb-download-statistics", collection, updates, applied) < 0) {
+            LOGGER.error("Error incrementing download statistics of {} of {} hours", updates.size() - applied.cardinality(), updates.size());
+        } else {
+            LOGGER.debug("Successfully incremented download statistics of {} hours", updates.size());
+        }
+        applied.stream().forEach(index -> written.add(hours.get(index)));
+        return written;
+    }
+
+    /**
+     * Returns the package ids of all package documents with the document id (_id) as key.
+     * Change stream delete events only contain the document id of the deleted document.
+     * @return the package ids of all package documents with the document id as key
+     */
+    public Map<String, String> getPkgIdsByDocumentId() {
+        if (!connected) { init(); }
+        if (null == Config.INSTANCE.getFoojayMongoDbDatabase()) {
+            LOGGER.debug("Cannot return package ids because FOOJAY_MONGODB_DATABASE environment variable was not set.");
+            return new HashMap<>();
+        }
+        if (null == database) {
+            LOGGER.error("Database is not set.");
+            database = mongoClient.getDatabase(Config.INSTANCE.getFoojayMongoDbDatabase());
+        }
+        final Map<String, String> pkgIds = new HashMap<>();
+        database.getCollection(Constants.PACKAGES_COLLECTION)
+                .find()
+                .projection(include(FIELD_PACKAGE_ID))
+                .batchSize(batchSize)
+                .forEach(document -> pkgIds.put(toDocumentId(document.get(FIELD_ID)), document.getString(FIELD_PACKAGE_ID)));
+        return pkgIds;
+    }
+
+    /**
+     * Opens a change stream on the packages collection. Inserted, replaced and updated packages
+     * will be decoded by the PkgCodec. Change streams need a replica set, a single node replica
+     * set is sufficient.
+     * @param resumeToken The resume token of the last processed event or null to start now
+     * @return a cursor on the changes of the packages collection
+     */
+    public MongoChangeStreamCursor<ChangeStreamDocument<Pkg>> watchPkgs(final BsonDocument resumeToken) {
+        if (!connected) { init(); }
+        if (null == database) { throw new MongoException("Database is not set."); }
+        ChangeStreamIterable<Pkg> changeStream = database.getCollection(Constants.PACKAGES_COLLECTION, Pkg.class)
+                                                         .watch()
+                                                         .fullDocument(FullDocument.UPDATE_LOOKUP)
+                                                         .maxAwaitTime(1, TimeUnit.SECONDS)
+                                                         .batchSize(batchSize);
+        if (null != resumeToken) { changeStream = changeStream.resumeAfter(resumeToken); }
+        return changeStream.cursor();
+    }
+
+    /**
+     * Acquires or renews the lease with the given name for the given owner. The lease can only
+     * be acquired if it is not held by another owner or if it expired.
+     * @param name The name of the lease
+     * @param owner The unique id of the node
+     * @param durationSeconds Seconds until the lease expires
+     * @return true if the given owner holds the lease
+     */
+    public boolean acquireLease(final String name, final String owner, final long durationSeconds) {
+        if (!connected) { init(); }
+        if (null == database) { return false; }
+        final Date now     = new Date();
+        final Date expires = new Date(now.getTime() + TimeUnit.SECONDS.toMillis(durationSeconds));
+        try {
+            final UpdateResult result = database.getCollection(Constants.LEASES_COLLECTION)
+                                                .updateOne(and(eq(FIELD_ID, name), or(eq(FIELD_OWNER, owner), lt(FIELD_EXPIRES, now))),
+                                                           combine(set(FIELD_OWNER, owner), set(FIELD_EXPIRES, expires)),
+                                                           new UpdateOptions().upsert(true));
+            return result.getMatchedCount() > 0 || null != result.getUpsertedId();
+        } catch (MongoWriteException e) {
+            // The upsert fails with a duplicate key if another owner holds a valid lease
+            if (ErrorCategory.DUPLICATE_KEY == e.getError().getCategory()) { return false; }
+            LOGGER.error("Error acquiring lease {}. {}", name, e.getMessage());
+            return false;
+        } catch (MongoException e) {
+            LOGGER.error("Error acquiring lease {}. {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Releases the lease with the given name if it is held by the given owner
+     * @param name The name of the lease
+     * @param owner The unique id of the node
+     */
+    public void releaseLease(final String name, final String owner) {
+        if (!connected || null == database) { return; }
+        try {
+            database.getCollection(Constants.LEASES_COLLECTION).deleteOne(and(eq(FIELD_ID, name), eq(FIELD_OWNER, owner)));
+        } catch (MongoException e) {
+            LOGGER.error("Error releasing lease {}. {}", name, e.getMessage());
+        }
+    }
+
     public void updateLatestBuildAvailable(final List<Pkg> pkgs) {
         if (!connected) { init(); }
         if (null == Config.INSTANCE.getFoojayMongoDbDatabase()) {
@@ -351,17 +721,28 @@ public enum MongoDbManager {
             LOGGER.error("Constants.PACKAGES_COLLECTION not set.");
             return;
         }
-        MongoCollection<Document> collection = database.getCollection(Constants.PACKAGES_COLLECTION);
-        pkgs.forEach(pkg -> collection.updateOne(eq(FIELD_PACKAGE_ID, pkg.getId()), set(FIELD_LATEST_BUILD_AVAILABLE, false)));
-
+        final MongoCollection<Document>  collection = database.getCollection(Constants.PACKAGES_COLLECTION);
+        final List<WriteModel<Document>> updates    = pkgs.stream()
+                                                          .<WriteModel<Document>>map(pkg -> new UpdateOneModel<>(eq(FIELD_PACKAGE_ID, pkg.getId()), set(FIELD_LATEST_BUILD_AVAILABLE, false)))
+                                                          .collect(Collectors.toList());
+        if (bulkWrite("mongodb-update", collection, updates) < 0) {
+            LOGGER.error("Error updating latest build available for {} packages", pkgs.size());
+            return;
+        }
         LOGGER.debug("Successfully updated latest build available for {} packages", pkgs.size());
     }
 
-    public void syncLatestBuildAvailableInDatabaseWithCache(final Collection<Pkg> pkgs) {
+    /**
+     * Sets latest_build_available of the given packages in the packages collection to the value
+     * of the packages in one unordered bulk write. Only pass the packages whose flag has changed.
+     * @param pkgs The packages whose latest_build_available flag should be synced
+     * @return true when the flags of all given packages have been synced successfully
+     */
+    public boolean syncLatestBuildAvailableInDatabaseWithCache(final Collection<Pkg> pkgs) {
         if (!connected) { init(); }
         if (null == Config.INSTANCE.getFoojayMongoDbDatabase()) {
             LOGGER.debug("Could not sync cache with database because FOOJAY_MONGODB_DATABASE environment variable was not set.");
-            return;
+            return false;
         }
         if (null == database) {
             LOGGER.error("Database is not set.");
@@ -369,11 +750,122 @@ public enum MongoDbManager {
         }
         if (null == Constants.PACKAGES_COLLECTION) {
             LOGGER.error("Constants.PACKAGES_COLLECTION not set.");
-            return;
+            return false;
         }
-        MongoCollection<Document> collection = database.getCollection(Constants.PACKAGES_COLLECTION);
-        pkgs.forEach(pkg -> collection.updateOne(eq(FIELD_PACKAGE_ID, pkg.getId()), set(FIELD_LATEST_BUILD_AVAILABLE, pkg.isLatestBuildAvailable())));
+        final MongoCollection<Document>  collection = database.getCollection(Constants.PACKAGES_COLLECTION);
+        final List<WriteModel<Document>> updates    = pkgs.stream()
+                                                          .<WriteModel<Document>>map(pkg -> new UpdateOneModel<>(eq(FIELD_PACKAGE_ID, pkg.getId()), set(FIELD_LATEST_BUILD_AVAILABLE, pkg.isLatestBuildAvailable())))
+                                                          .collect(Collectors.toList());
+        if (bulkWrite("mongodb-sync", collection, updates) < 0) {
+            LOGGER.error("Error syncing latest build available for {} packages", pkgs.size());
+            return false;
+        }
+        LOGGER.debug("Successfully synced latest build available for {} changed packages in cache", pkgs.size());
+        return true;
+    }
+
+    /**
+     * Sends the given write models to the given collection as unordered bulk writes of at most
+     * FOOJAY_API_MONGODB_BATCH models. Each batch runs on its own thread, so the number of
+     * round trips is the number of batches instead of the number of models.
+     * @param name The name of the operation used for logging and thread names
+     * @param collection The collection the models should be written to
+     * @param models The write models
+     * @return the number of documents inserted, upserted, modified or deleted, or -1 if a batch failed
+     */
+    private <T> long bulkWrite(final String name, final MongoCollection<T> collection, final List<WriteModel<T>> models) {
+        return bulkWrite(name, collection, models, new BitSet(models.size()));
+    }
 
-        LOGGER.debug("Successfully synced latest build available for all packages in cache {}", pkgs.size());
+    /**
+     * Same as bulkWrite(name, collection, models) but sets the indices of all models that have been
+     * applied in the given bit set, also if their batch failed partially. The writes of a batch that
+     * failed without a write result (e.g. a network error) are treated as not applied.
+     * @param name The name of the operation used for logging and thread names
+     * @param collection The collection the models should be written to
+     * @param models The write models
+     * @param applied The bit set that will contain the indices of the applied models
+     * @return the number of documents inserted, upserted, modified or deleted, or -1 if a write failed
+     */
+    private <T> long bulkWrite(final String name, final MongoCollection<T> collection, final List<WriteModel<T>> models, final BitSet applied) {
+        if (models.isEmpty()) { return 0; }
+        final AtomicLong                noOfWrites = new AtomicLong(0);
+        final AtomicBoolean             failed     = new AtomicBoolean(false);
+        final List<List<WriteModel<T>>> batches    = Helper.partition(models, batchSize);
+        final List<Callable<BitSet>>    tasks      = new ArrayList<>(batches.size());
+        int offset = 0;
+        for (List<WriteModel<T>> batch : batches) {
+            final int start = offset;
+            tasks.add(() -> {
+                final BitSet batchApplied = new BitSet();
+                batchApplied.set(start, start + batch.size());
+                try {
+                    final BulkWriteResult result = collection.bulkWrite(batch, UNORDERED);
+                    noOfWrites.addAndGet(result.getInsertedCount() + result.getUpserts().size() + result.getModifiedCount() + result.getDeletedCount());
+                } catch (MongoBulkWriteException e) {
+                    // Unordered batches apply all writes that don't fail
+                    LOGGER.error("{} of {} writes of {} failed. {}", e.getWriteErrors().size(), batch.size(), name, e.getMessage());
+                    e.getWriteErrors().forEach(error -> batchApplied.clear(start + error.getIndex()));
+                    failed.set(true);
+                }
+                return batchApplied;
+            });
+            offset += batch.size();
+        }
+        final List<BitSet> results = ExecutorManager.INSTANCE.invokeAll(name, tasks);
+        results.forEach(applied::or);
+        return failed.get() || results.size() < tasks.size() ? -1 : noOfWrites.get();
+    }
+
+    /**
+     * Returns true if one of the given index descriptions (as returned by listIndexes()) can be
+     * used to filter by the given field. A unique index has to be on the given field only.
+     * @param indexes The index descriptions of a collection
+     * @param field The field that will be filtered by
+     * @param unique True if the values of the field have to be unique
+     * @return true if one of the given index descriptions can be used to filter by the given field
+     */
+    static boolean hasIndex(final List<Document> indexes, final String field, final boolean unique) {
+        return indexes.stream().anyMatch(index -> {
+            final Document key = index.get(FIELD_KEY, Document.class);
+            if (null == key || key.isEmpty() || !field.equals(key.keySet().iterator().next())) { return false; }
+            return !unique || (key.size() == 1 && Boolean.TRUE.equals(index.get(FIELD_UNIQUE)));
+        });
+    }
+
+    /**
+     * Returns the given document id (_id) as string, object ids as hex string
+     * @param documentId The document id as read from a Document or from a change stream document key
+     * @return the given document id as string
+     */
+    public static String toDocumentId(final Object documentId) {
+        if (documentId instanceof BsonValue) {
+            final BsonValue value = (BsonValue) documentId;
+            if (value.isObjectId()) { return value.asObjectId().getValue().toHexString(); }
+            if (value.isString())   { return value.asString().getValue(); }
+        }
+        if (documentId instanceof ObjectId) { return ((ObjectId) documentId).toHexString(); }
+        return String.valueOf(documentId);
+    }
+
+    private static void readCounts(final Document document, final Map<String, Long> counts) {
+        if (null == document) { return; }
+        document.forEach((key, value) -> {
+            if (value instanceof Number) { counts.put(key, ((Number) value).longValue()); }
+        });
+    }
+
+
+    private static final class Index {
+        private final String  collection;
+        private final String  field;
+        private final boolean unique;
+
+
+        private Index(final String collection, final String field, final boolean unique) {
+            this.collection = collection;
+            this.field      = field;
+            this.unique     = unique;
+        }
     }
 }
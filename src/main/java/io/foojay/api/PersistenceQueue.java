@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api;
+
+import io.foojay.api.pkg.Pkg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Applies changes of the package cache to the database in the background, so the cache can
+ * publish a new generation without waiting for the database.
+ * The queue holds at most one change per package id. A newer change of a package replaces
+ * the pending one (e.g. a removal replaces an upsert), which keeps the order per package id
+ * and bounds the queue by the number of packages. The pending changes are written in batches
+ * by one background thread. If the database fails, the changes stay in the queue and will
+ * be retried with exponential backoff.
+ */
+public class PersistenceQueue {
+    private static final Logger                            LOGGER         = LoggerFactory.getLogger(PersistenceQueue.class);
+    private static final long                              DRAIN_INTERVAL = 1;   // seconds
+    private static final long                              MIN_BACKOFF    = 1;   // seconds
+    private static final long                              MAX_BACKOFF    = 300; // seconds
+    private        final ConcurrentHashMap<String, Change> pending        = new ConcurrentHashMap<>();
+    private        final Store                             store;
+    private              ScheduledExecutorService          drainer;
+    private              int                               failures;
+    private              long                              nextAttempt;
+
+
+    public PersistenceQueue(final Store store) {
+        this.store       = store;
+        this.failures    = 0;
+        this.nextAttempt = 0;
+    }
+
+
+    /**
+     * Starts the background thread that drains the queue
+     */
+    public synchronized void start() {
+        if (null != drainer) { return; }
+        drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "persistence-queue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        drainer.scheduleWithFixedDelay(this::drainIfDue, DRAIN_INTERVAL, DRAIN_INTERVAL, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "persistence-queue-shutdown"));
+    }
+
+    /**
+     * Queues the given packages to be inserted or replaced
+     * @param pkgs The packages that have been added or changed
+     */
+    public void upsert(final Collection<Pkg> pkgs) { pkgs.forEach(pkg -> offer(Operation.UPSERT, pkg)); }
+
+    /**
+     * Queues the latest_build_available flag of the given packages to be updated
+     * @param pkgs The packages whose latest_build_available flag changed
+     */
+    public void updateLatestBuildAvailable(final Collection<Pkg> pkgs) { pkgs.forEach(pkg -> offer(Operation.UPDATE_LATEST_BUILD_AVAILABLE, pkg)); }
+
+    /**
+     * Queues the given packages to be removed
+     * @param pkgs The packages that have been removed
+     */
+    public void remove(final Collection<Pkg> pkgs) { pkgs.forEach(pkg -> offer(Operation.REMOVE, pkg)); }
+
+    public int size() { return pending.size(); }
+
+    public boolean isEmpty() { return pending.isEmpty(); }
+
+    /**
+     * Returns the ids of the packages that are queued to be inserted or replaced, which
+     * means they might not be in the database yet
+     * @return the ids of the packages with a pending upsert
+     */
+    public Set<String> getPendingUpserts() {
+        final Set<String> pkgIds = new HashSet<>();
+        pending.forEach((pkgId, change) -> { if (Operation.UPSERT == change.operation) { pkgIds.add(pkgId); } });
+        return pkgIds;
+    }
+
+    /**
+     * Writes all pending changes, one batch per operation. Changes that have been written
+     * will be removed from the queue unless a newer change of the same package id arrived
+     * in the meantime.
+     * @return true if all pending changes have been written
+     */
+    public synchronized boolean drain() {
+        if (pending.isEmpty()) { return true; }
+        final Map<Operation, Map<String, Change>> batches = new EnumMap<>(Operation.class);
+        pending.forEach((pkgId, change) -> batches.computeIfAbsent(change.operation, operation -> new HashMap<>()).put(pkgId, change));
+
+        boolean success = true;
+        for (Entry<Operation, Map<String, Change>> batch : batches.entrySet()) {
+            final Operation           operation = batch.getKey();
+            final Map<String, Change> changes   = batch.getValue();
+            final List<Pkg>           pkgs      = new ArrayList<>(changes.size());
+            changes.values().forEach(change -> pkgs.add(change.pkg));
+            if (apply(operation, pkgs)) {
+                changes.forEach(pending::remove);
+            } else {
+                LOGGER.error("Error writing {} {} changes to the database, retrying later.", pkgs.size(), operation.name().toLowerCase());
+                success = false;
+            }
+        }
+        if (success) {
+            failures    = 0;
+            nextAttempt = 0;
+        } else {
+            failures++;
+            nextAttempt = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.min(MAX_BACKOFF, MIN_BACKOFF << Math.min(failures, 16)));
+        }
+        return success && pending.isEmpty();
+    }
+
+    /**
+     * Stops the background thread and writes the remaining changes
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (null != drainer) { drainer.shutdown(); }
+        }
+        if (!drain()) { LOGGER.error("{} changes could not be written to the database on shutdown.", pending.size()); }
+    }
+
+    private void offer(final Operation operation, final Pkg pkg) {
+        if (null == pkg) { return; }
+        pending.merge(pkg.getId(), new Change(operation, pkg), PersistenceQueue::coalesce);
+    }
+
+    private synchronized void drainIfDue() {
+        if (System.nanoTime() - nextAttempt < 0) { return; }
+        try {
+            drain();
+        } catch (Exception e) {
+            LOGGER.error("Error draining persistence queue. {}", e.getMessage());
+        }
+    }
+
+    private boolean apply(final Operation operation, final List<Pkg> pkgs) {
+        try {
+            switch (operation) {
+                case UPSERT                       : return store.upsert(pkgs);
+                case UPDATE_LATEST_BUILD_AVAILABLE: return store.updateLatestBuildAvailable(pkgs);
+                case REMOVE                       : return store.remove(pkgs);
+                default                           : return false;
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error writing {} changes to the database. {}", operation.name().toLowerCase(), e.getMessage());
+            return false;
+        }
+    }
+
+    private static Change coalesce(final Change pendingChange, final Change newChange) {
+        if (Operation.UPDATE_LATEST_BUILD_AVAILABLE == newChange.operation) {
+            // A pending removal wins, a pending upsert writes the flag anyway
+            if (Operation.REMOVE == pendingChange.operation) { return pendingChange; }
+            if (Operation.UPSERT == pendingChange.operation) { return new Change(Operation.UPSERT, newChange.pkg); }
+        }
+        return newChange;
+    }
+
+
+    /**
+     * The database the changes will be written to, each method returns true on success
+     */
+    public interface Store {
+        boolean upsert(Collection<Pkg> pkgs);
+
+        boolean updateLatestBuildAvailable(Collection<Pkg> pkgs);
+
+        boolean remove(Collection<Pkg> pkgs);
+    }
+
+
+    /**
+     * Writes the changes to mongodb
+     */
+    public static final Store MONGODB = new Store() {
+        @Override public boolean upsert(final Collection<Pkg> pkgs) { return MongoDbManager.INSTANCE.addNewPkgs(pkgs); }
+
+        @Override public boolean updateLatestBuildAvailable(final Collection<Pkg> pkgs) { return MongoDbManager.INSTANCE.syncLatestBuildAvailableInDatabaseWithCache(pkgs); }
+
+        @Override public boolean remove(final Collection<Pkg> pkgs) { return MongoDbManager.INSTANCE.removePkgs(pkgs); }
+    };
+
+
+    private enum Operation { UPSERT, UPDATE_LATEST_BUILD_AVAILABLE, REMOVE }
+
+
+    private static final class Change {
+        private final Operation operation;
+        private final Pkg       pkg;
+
+
+        private Change(final Operation operation, final Pkg pkg) {
+            this.operation = operation;
+            this.pkg       = pkg;
+        }
+    }
+}
@@ -37,6 +37,7 @@ import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
 import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
 import io.foojay.api.util.Helper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -279,11 +280,7 @@ public class AOJ implements Distribution {
                 if (installerName.contains("testimage") || installerName.contains("debugimage")) { continue; }
 
                 if (Architecture.NONE == arc) {
-                    arc = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                       .filter(entry -> installerName.contains(entry.getKey()))
-                                                       .findFirst()
-                                                       .map(Entry::getValue)
-                                                       .orElse(Architecture.NONE);
+                    arc = FilenameClassifier.INSTANCE.classify(installerName).getArchitecture().orElse(Architecture.NONE);
                 }
 
                 if (Architecture.NONE == arc) {
@@ -344,11 +341,7 @@ public class AOJ implements Distribution {
                 if (packageName.contains("testimage") || packageName.contains("debugimage")) { continue; }
 
                 if (Architecture.NONE == arc) {
-                    arc = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                       .filter(entry -> packageName.contains(entry.getKey()))
-                                                       .findFirst()
-                                                       .map(Entry::getValue)
-                                                       .orElse(Architecture.NONE);
+                    arc = FilenameClassifier.INSTANCE.classify(packageName).getArchitecture().orElse(Architecture.NONE);
                 }
 
                 if (Architecture.NONE == arc) {
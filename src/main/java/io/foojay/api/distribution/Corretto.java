@@ -35,18 +35,18 @@ import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
 import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
 import io.foojay.api.util.Helper;
 import io.foojay.api.util.Pair;
+import io.foojay.api.util.ThreadLocalMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -60,7 +60,7 @@ public class Corretto implements Distribution {
     private static final Logger                       LOGGER                  = LoggerFactory.getLogger(Corretto.class);
 
     private static final Pattern                      FILENAME_PREFIX_PATTERN = Pattern.compile("(java-(\\d+)?\\.?(\\d+)?\\.?(\\d+)?\\.?-)|(amazon-corretto-)(jdk_|devel-)?");
-    private static final Matcher                      FILENAME_PREFIX_MATCHER = FILENAME_PREFIX_PATTERN.matcher("");
+    private static final ThreadLocalMatcher           FILENAME_PREFIX_MATCHER = new ThreadLocalMatcher(FILENAME_PREFIX_PATTERN);
     private static final String                       PACKAGE_URL             = "https://api.github.com/repos/corretto/";// jdk8: corretto-8, jdk11: corretto-11, jdk15: corretto-jdk
 
     // URL parameters
@@ -224,11 +224,7 @@ public class Corretto implements Distribution {
                 continue;
             }
 
-            Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                             .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                             .findFirst()
-                                                             .map(Entry::getValue)
-                                                             .orElse(Architecture.NONE);
+            Architecture arch = FilenameClassifier.INSTANCE.classify(withoutPrefix).getArchitecture().orElse(Architecture.NONE);
             if (Architecture.NONE == arch) {
                 LOGGER.debug("Architecture not found in Corretto for filename: {}", filename);
                 continue;
@@ -238,11 +234,7 @@ public class Corretto implements Distribution {
             pkg.setBitness(arch.getBitness());
 
 
-            OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                  .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                  .findFirst()
-                                                                  .map(Entry::getValue)
-                                                                  .orElse(OperatingSystem.NONE);
+            OperatingSystem os = FilenameClassifier.INSTANCE.classify(withoutPrefix).getOperatingSystem().orElse(OperatingSystem.NONE);
             if (OperatingSystem.NONE == os) {
                 switch (pkg.getArchiveType()) {
                     case DEB:
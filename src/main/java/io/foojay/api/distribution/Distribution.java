@@ -34,8 +34,12 @@ import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
 import io.foojay.api.scopes.Scope;
+import io.foojay.api.util.Helper;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 
 public interface Distribution {
@@ -80,4 +84,16 @@ public interface Distribution {
     List<Pkg> getPkgFromJson(JsonObject jsonObj, VersionNumber versionNumber, boolean latest, OperatingSystem operatingSystem,
                              Architecture architecture, Bitness bitness, ArchiveType archiveType, PackageType packageType,
                              Boolean javafxBundled, ReleaseStatus releaseStatus, TermOfSupport termOfSupport);
+
+    /**
+     * Reads the given json stream (a single object or an array of objects) one object at a time,
+     * calls getPkgFromJson() for each of them and hands the resulting packages to the given consumer.
+     * This avoids holding the complete response and its json tree in memory.
+     */
+    default void getPkgFromJson(InputStream inputStream, VersionNumber versionNumber, boolean latest, OperatingSystem operatingSystem,
+                                Architecture architecture, Bitness bitness, ArchiveType archiveType, PackageType packageType,
+                                Boolean javafxBundled, ReleaseStatus releaseStatus, TermOfSupport termOfSupport, Consumer<Pkg> consumer) throws IOException {
+        Helper.forEachJsonObject(inputStream, jsonObj -> getPkgFromJson(jsonObj, versionNumber, latest, operatingSystem, architecture, bitness, archiveType, packageType,
+                                                                         javafxBundled, releaseStatus, termOfSupport).forEach(consumer));
+    }
 }
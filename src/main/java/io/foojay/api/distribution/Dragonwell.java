@@ -37,6 +37,7 @@ import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
 import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
 import io.foojay.api.util.Helper;
 import io.foojay.api.util.Pair;
 import org.slf4j.Logger;
@@ -188,11 +189,7 @@ public class Dragonwell implements Distribution {
             pkg.setFileName(fileName);
             pkg.setDirectDownloadUri(downloadLink);
 
-            Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                             .filter(entry -> fileName.contains(entry.getKey()))
-                                                             .findFirst()
-                                                             .map(Entry::getValue)
-                                                             .orElse(Architecture.NONE);
+            Architecture arch = FilenameClassifier.INSTANCE.classify(fileName).getArchitecture().orElse(Architecture.NONE);
             if (Architecture.NONE != architecture && architecture != arch) { continue; }
             if (Bitness.NONE != bitness && bitness != arch.getBitness()) { continue; }
             pkg.setArchitecture(arch);
@@ -217,11 +214,7 @@ public class Dragonwell implements Distribution {
 
             pkg.setReleaseStatus(rs);
 
-            OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                  .filter(entry -> fileName.contains(entry.getKey()))
-                                                                  .findFirst()
-                                                                  .map(Entry::getValue)
-                                                                  .orElse(OperatingSystem.NONE);
+            OperatingSystem os = FilenameClassifier.INSTANCE.classify(fileName).getOperatingSystem().orElse(OperatingSystem.NONE);
 
             if (OperatingSystem.NONE == os) {
                 switch (pkg.getArchiveType()) {
@@ -37,16 +37,16 @@ import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
 import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.ThreadLocalMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -65,7 +65,7 @@ public class GraalVMCE11 implements Distribution {
     private static final String                       GITHUB_USER             = "graalvm";
     private static final String                       PACKAGE_URL             = "https://api.github.com/repos/" + GITHUB_USER + "/graalvm-ce-builds/releases";
     private static final Pattern                      FILENAME_PATTERN        = Pattern.compile("^(graalvm-ce-java11)(.*)(\\.tar\\.gz|\\.zip)$");
-    private static final Matcher                      FILENAME_MATCHER        = FILENAME_PATTERN.matcher("");
+    private static final ThreadLocalMatcher           FILENAME_MATCHER        = new ThreadLocalMatcher(FILENAME_PATTERN);
 
     // URL parameters
     private static final String                       ARCHITECTURE_PARAM      = "";
@@ -160,8 +160,7 @@ public class GraalVMCE11 implements Distribution {
             if (filename.endsWith(Constants.FILE_ENDING_TXT) || filename.endsWith(Constants.FILE_ENDING_JAR) ||
                 filename.endsWith(Constants.FILE_ENDING_SHA1) || filename.endsWith(Constants.FILE_ENDING_SHA256)) { continue; }
 
-            FILENAME_MATCHER.reset(filename);
-            if (!FILENAME_MATCHER.matches()) { continue; }
+            if (!FILENAME_MATCHER.reset(filename).matches()) { continue; }
 
             String   strippedFilename = filename.replaceFirst("graalvm-ce-java11-", "").replaceAll("(\\.tar\\.gz|\\.zip)", "");
             String[] filenameParts    = strippedFilename.split("-");
@@ -178,11 +177,7 @@ public class GraalVMCE11 implements Distribution {
             if (SRC_TAR == ext || (ArchiveType.NONE != archiveType && ext != archiveType)) { continue; }
             pkg.setArchiveType(ext);
 
-            Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                             .filter(entry -> strippedFilename.contains(entry.getKey()))
-                                                             .findFirst()
-                                                             .map(Entry::getValue)
-                                                             .orElse(Architecture.NONE);
+            Architecture arch = FilenameClassifier.INSTANCE.classify(strippedFilename).getArchitecture().orElse(Architecture.NONE);
             if (Architecture.NONE == arch) {
                 LOGGER.debug("Architecture not found in GraalVM CE11 for filename: {}", filename);
                 continue;
@@ -209,11 +204,7 @@ public class GraalVMCE11 implements Distribution {
 
             pkg.setReleaseStatus(GA);
 
-            OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                  .filter(entry -> strippedFilename.contains(entry.getKey()))
-                                                                  .findFirst()
-                                                                  .map(Entry::getValue)
-                                                                  .orElse(OperatingSystem.NONE);
+            OperatingSystem os = FilenameClassifier.INSTANCE.classify(strippedFilename).getOperatingSystem().orElse(OperatingSystem.NONE);
 
             if (OperatingSystem.NONE == os) {
                 switch (pkg.getArchiveType()) {
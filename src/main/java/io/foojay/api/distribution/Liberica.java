@@ -35,6 +35,7 @@ import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
 import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
 import io.foojay.api.util.Helper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,7 +44,6 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
@@ -312,11 +312,7 @@ public class Liberica implements Distribution {
         if (ArchiveType.SRC_TAR == ext) { return pkgs; }
         pkg.setArchiveType(ArchiveType.fromText(packageType));
 
-        Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                         .filter(entry -> fileName.contains(entry.getKey()))
-                                                         .findFirst()
-                                                         .map(Entry::getValue)
-                                                         .orElse(Architecture.NONE);
+        Architecture arch = FilenameClassifier.INSTANCE.classify(fileName).getArchitecture().orElse(Architecture.NONE);
         Bitness bit = arch.getBitness();
 
         if (Architecture.NONE == arch) {
@@ -329,11 +325,7 @@ public class Liberica implements Distribution {
 
         OperatingSystem osFound = OperatingSystem.fromText(os);
         if (OperatingSystem.NONE == osFound) {
-            osFound = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                       .filter(entry -> fileName.contains(entry.getKey()))
-                                                       .findFirst()
-                                                       .map(Entry::getValue)
-                                                       .orElse(OperatingSystem.NONE);
+            osFound = FilenameClassifier.INSTANCE.classify(fileName).getOperatingSystem().orElse(OperatingSystem.NONE);
         }
         if (OperatingSystem.NONE == osFound) {
             LOGGER.debug("Operating Sytsem not found in Liberica for filename: {}", fileName);
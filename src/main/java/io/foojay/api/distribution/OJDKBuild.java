@@ -19,7 +19,6 @@
 
 package io.foojay.api.distribution;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -38,23 +37,17 @@ import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
 import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
+import io.foojay.api.util.GithubReleaseCrawler;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.ThreadLocalMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpClient.Redirect;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.http.HttpResponse.BodyHandlers;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -67,16 +60,16 @@ import static io.foojay.api.pkg.ReleaseStatus.GA;
 public class OJDKBuild implements Distribution {
     private static final Logger        LOGGER                  = LoggerFactory.getLogger(OJDKBuild.class);
 
-    private static final Pattern       FILENAME_PREFIX_PATTERN = Pattern.compile(".*-openjdk(-debug)?(-jre)?-");
-    private static final Matcher       FILENAME_PREFIX_MATCHER = FILENAME_PREFIX_PATTERN.matcher("");
-    private static final String        GITHUB_USER             = "ojdkbuild";
-    private static final String        GITHUB_REPOSITORY       = "ojdkbuild";
-    private static final String        PACKAGE_URL             = "https://api.github.com/repos/" + GITHUB_USER + "/" + GITHUB_REPOSITORY + "/releases?per_page=100";
-    public  static final List<String>  PACKAGE_URLS            = List.of("https://api.github.com/repos/" + GITHUB_USER + "/" + GITHUB_REPOSITORY + "/releases?per_page=100",
-                                                                         "https://api.github.com/repos/" + GITHUB_USER + "/contrib_jdk8u-ci/releases?per_page=100",
-                                                                         "https://api.github.com/repos/" + GITHUB_USER + "/contrib_jdk11u-ci/releases?per_page=100",
-                                                                         "https://api.github.com/repos/" + GITHUB_USER + "/contrib_jdk8u_aarch32-ci/releases?per_page=100",
-                                                                         "https://api.github.com/repos/" + GITHUB_USER + "/contrib_jdk11u_arm32-ci/releases?per_page=100");
+    private static final Pattern            FILENAME_PREFIX_PATTERN = Pattern.compile(".*-openjdk(-debug)?(-jre)?-");
+    private static final ThreadLocalMatcher FILENAME_PREFIX_MATCHER = new ThreadLocalMatcher(FILENAME_PREFIX_PATTERN);
+    private static final String             GITHUB_USER             = "ojdkbuild";
+    private static final String             GITHUB_REPOSITORY       = "ojdkbuild";
+    private static final String             PACKAGE_URL             = "https://api.github.com/repos/" + GITHUB_USER + "/" + GITHUB_REPOSITORY + "/releases?per_page=100";
+    public  static final List<String>       PACKAGE_URLS            = List.of("https://api.github.com/repos/" + GITHUB_USER + "/" + GITHUB_REPOSITORY + "/releases?per_page=100",
+                                                                              "https://api.github.com/repos/" + GITHUB_USER + "/contrib_jdk8u-ci/releases?per_page=100",
+                                                                              "https://api.github.com/repos/" + GITHUB_USER + "/contrib_jdk11u-ci/releases?per_page=100",
+                                                                              "https://api.github.com/repos/" + GITHUB_USER + "/contrib_jdk8u_aarch32-ci/releases?per_page=100",
+                                                                              "https://api.github.com/repos/" + GITHUB_USER + "/contrib_jdk11u_arm32-ci/releases?per_page=100");
 
 
     // URL parameters
@@ -177,11 +170,7 @@ public class OJDKBuild implements Distribution {
 
             Pkg pkg = new Pkg();
 
-            ArchiveType ext = Constants.ARCHIVE_TYPE_LOOKUP.entrySet().stream()
-                                                           .filter(entry -> fileName.endsWith(entry.getKey()))
-                                                           .findFirst()
-                                                           .map(Entry::getValue)
-                                                           .orElse(ArchiveType.NONE);
+            ArchiveType ext = FilenameClassifier.INSTANCE.classify(fileName).getArchiveTypeBySuffix().orElse(ArchiveType.NONE);
             if (ArchiveType.NONE == ext) {
                 LOGGER.debug("Archive Type not found in OJDKBuild for filename: {}", fileName);
                 return pkgs;
@@ -227,11 +216,7 @@ public class OJDKBuild implements Distribution {
                     break;
             }
 
-            Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                             .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                             .findFirst()
-                                                             .map(Entry::getValue)
-                                                             .orElse(Architecture.NONE);
+            Architecture arch = FilenameClassifier.INSTANCE.classify(withoutPrefix).getArchitecture().orElse(Architecture.NONE);
 
             if (Architecture.NONE == arch) {
                 LOGGER.debug("Architecture not found in OJDKBuild for filename: {}", fileName);
@@ -241,11 +226,7 @@ public class OJDKBuild implements Distribution {
             pkg.setArchitecture(arch);
             pkg.setBitness(arch.getBitness());
 
-            OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                  .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                  .findFirst()
-                                                                  .map(Entry::getValue)
-                                                                  .orElse(OperatingSystem.NONE);
+            OperatingSystem os = FilenameClassifier.INSTANCE.classify(withoutPrefix).getOperatingSystem().orElse(OperatingSystem.NONE);
             if (OperatingSystem.NONE == os) {
                 switch (pkg.getArchiveType()) {
                     case DEB:
@@ -280,26 +261,7 @@ public class OJDKBuild implements Distribution {
         try {
             for (String packageUrl : PACKAGE_URLS) {
                 // Get all packages from github
-                String      query   = packageUrl;
-                HttpClient  client = HttpClient.newBuilder().followRedirects(Redirect.NEVER).version(java.net.http.HttpClient.Version.HTTP_2).build();
-                HttpRequest request = HttpRequest.newBuilder().uri(URI.create(query)).setHeader("User-Agent", "DiscoAPI").GET().build();
-                try {
-                    HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-                    if (response.statusCode() == 200) {
-                        String      bodyText = response.body();
-                        Gson        gson     = new Gson();
-                        JsonElement element  = gson.fromJson(bodyText, JsonElement.class);
-                        if (element instanceof JsonArray) {
-                            JsonArray jsonArray = element.getAsJsonArray();
-                            pkgs.addAll(getAllPkgs(jsonArray));
-                        }
-                    } else {
-                        // Problem with url request
-                        LOGGER.debug("Response ({}) {} ", response.statusCode(), response.body());
-                    }
-                } catch (InterruptedException | IOException e) {
-                    LOGGER.error("Error fetching packages for distribution {} from {}", getName(), query);
-                }
+                GithubReleaseCrawler.INSTANCE.crawl(packageUrl, release -> pkgs.addAll(getAllPkgs(Helper.toJsonArray(release))));
             }
         } catch (Exception e) {
             LOGGER.error("Error fetching all packages from OJDKBuild. {}", e);
@@ -330,11 +292,7 @@ public class OJDKBuild implements Distribution {
 
                 Pkg pkg = new Pkg();
 
-                ArchiveType ext = Constants.ARCHIVE_TYPE_LOOKUP.entrySet().stream()
-                                                               .filter(entry -> fileName.endsWith(entry.getKey()))
-                                                               .findFirst()
-                                                               .map(Entry::getValue)
-                                                               .orElse(ArchiveType.NONE);
+                ArchiveType ext = FilenameClassifier.INSTANCE.classify(fileName).getArchiveTypeBySuffix().orElse(ArchiveType.NONE);
                 if (ArchiveType.NONE == ext) {
                     LOGGER.debug("Archive Type not found in OJDKBuild for filename: {}", fileName);
                     continue;
@@ -360,11 +318,7 @@ public class OJDKBuild implements Distribution {
                 pkg.setReleaseStatus(withoutPrefix.contains(Constants.EA_POSTFIX) ? EA : GA);
 
 
-                Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                                 .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                 .findFirst()
-                                                                 .map(Entry::getValue)
-                                                                 .orElse(Architecture.NONE);
+                Architecture arch = FilenameClassifier.INSTANCE.classify(withoutPrefix).getArchitecture().orElse(Architecture.NONE);
                 if (Architecture.NONE == arch) {
                     LOGGER.debug("Architecture not found in OJDKBuild for filename: {}", fileName);
                     continue;
@@ -372,11 +326,7 @@ public class OJDKBuild implements Distribution {
                 pkg.setArchitecture(arch);
                 pkg.setBitness(arch.getBitness());
 
-                OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                      .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                      .findFirst()
-                                                                      .map(Entry::getValue)
-                                                                      .orElse(OperatingSystem.NONE);
+                OperatingSystem os = FilenameClassifier.INSTANCE.classify(withoutPrefix).getOperatingSystem().orElse(OperatingSystem.NONE);
                 if (OperatingSystem.NONE == os) {
                     switch (pkg.getArchiveType()) {
                         case DEB:
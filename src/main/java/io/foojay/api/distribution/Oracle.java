@@ -34,16 +34,16 @@ import io.foojay.api.pkg.SemVer;
 import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
-import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
 import io.foojay.api.util.Helper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
@@ -160,8 +160,7 @@ public class Oracle implements Distribution {
         List<Pkg> pkgs = new ArrayList<>();
         try {
             for (String packageUrl : PACKAGE_URLS) {
-                String html = Helper.getTextFromUrl(packageUrl);
-                pkgs.addAll(getAllPkgsFromHtml(html, packageUrl));
+                pkgs.addAll(getAllPkgsFromFileNames(Helper.getDownloadHrefsFromUrl(packageUrl), packageUrl));
             }
         } catch (Exception e) {
             LOGGER.error("Error fetching all packages from Oracle. {}", e);
@@ -170,9 +169,12 @@ public class Oracle implements Distribution {
     }
 
     public List<Pkg> getAllPkgsFromHtml(final String html, final String packageUrl) {
+        if (null == html || html.isEmpty()) { return new ArrayList<>(); }
+        return getAllPkgsFromFileNames(Helper.getDownloadHrefsFromString(html), packageUrl);
+    }
+
+    public List<Pkg> getAllPkgsFromFileNames(final Collection<String> fileNames, final String packageUrl) {
         List<Pkg> pkgs = new ArrayList<>();
-        if (null == html || html.isEmpty()) { return pkgs; }
-        List<String> fileNames = new ArrayList<>(Helper.getDownloadHrefsFromString(html));
         for (String filename : fileNames) {
             if (filename.contains("-demos") || filename.contains("-p-")) { continue; }
             if (filename.endsWith(".sh") || filename.endsWith("iftw.exe")) { continue; }
@@ -203,18 +205,10 @@ public class Oracle implements Distribution {
 
                 osArchParts     = nameParts[1].split("-");
                 operatingSystem = OperatingSystem.fromText(osArchParts[0]);
-                architecture    = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                               .filter(entry -> filename.contains(entry.getKey()))
-                                                               .findFirst()
-                                                               .map(Entry::getValue)
-                                                               .orElse(Architecture.NONE);
+                architecture    = FilenameClassifier.INSTANCE.classify(filename).getArchitecture().orElse(Architecture.NONE);
 
                 bitness     = architecture.getBitness();
-                archiveType = Constants.ARCHIVE_TYPE_LOOKUP.entrySet().stream()
-                                                           .filter(entry -> filename.endsWith(entry.getKey()))
-                                                           .findFirst()
-                                                           .map(Entry::getValue)
-                                                           .orElse(ArchiveType.NONE);
+                archiveType = FilenameClassifier.INSTANCE.classify(filename).getArchiveTypeBySuffix().orElse(ArchiveType.NONE);
                 termOfSupport = Helper.getTermOfSupport(versionNumber);
                 javafxBundled = versionNumber.getMajorVersion().getAsInt() < 11;
             } else {
@@ -232,25 +226,12 @@ public class Oracle implements Distribution {
 
                 versionNumber   = VersionNumber.fromText(nameParts[0]);
 
-                operatingSystem = Constants.OPERATING_SYSTEM_LOOKUP.entrySet()
-                                                                   .stream()
-                                                                   .filter(entry -> filename.contains(entry.getKey()))
-                                                                   .findFirst()
-                                                                   .map(Entry::getValue)
-                                                                   .orElse(OperatingSystem.NONE);
+                operatingSystem = FilenameClassifier.INSTANCE.classify(filename).getOperatingSystem().orElse(OperatingSystem.NONE);
 
-                architecture    = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                               .filter(entry -> filename.contains(entry.getKey()))
-                                                               .findFirst()
-                                                               .map(Entry::getValue)
-                                                               .orElse(Architecture.NONE);
+                architecture    = FilenameClassifier.INSTANCE.classify(filename).getArchitecture().orElse(Architecture.NONE);
 
                 bitness     = architecture.getBitness();
-                archiveType = Constants.ARCHIVE_TYPE_LOOKUP.entrySet().stream()
-                                                           .filter(entry -> filename.endsWith(entry.getKey()))
-                                                           .findFirst()
-                                                           .map(Entry::getValue)
-                                                           .orElse(ArchiveType.NONE);
+                archiveType = FilenameClassifier.INSTANCE.classify(filename).getArchiveTypeBySuffix().orElse(ArchiveType.NONE);
                 termOfSupport = Helper.getTermOfSupport(versionNumber);
                 if (filename.contains("javafx")) {
                     javafxBundled = true;
@@ -38,21 +38,21 @@ import io.foojay.api.pkg.SemVer;
 import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
-import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.ThreadLocalMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.TreeSet;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -79,7 +79,7 @@ public class OracleOpenJDK implements Distribution {
     private static final String                       GITHUB_PACKAGE_11_URL      = "https://api.github.com/repos/" + GITHUB_USER + "/openjdk11-upstream-binaries";
     private static final String                       FILENAME_PREFIX            = "openjdk-";
     private static final Pattern                      FILENAME_PREFIX_PATTERN    = Pattern.compile("OpenJDK(8|11)U-");
-    private static final Matcher                      FILENAME_PREFIX_MATCHER    = FILENAME_PREFIX_PATTERN.matcher("");
+    private static final ThreadLocalMatcher           FILENAME_PREFIX_MATCHER    = new ThreadLocalMatcher(FILENAME_PREFIX_PATTERN);
 
     // URL parameters
     private static final String                       ARCHITECTURE_PARAM         = "";
@@ -264,12 +264,7 @@ public class OracleOpenJDK implements Distribution {
                 pkg.setDistributionVersion(vNumber);
 
 
-                PackageType packageTypeFound = Constants.PACKAGE_TYPE_LOOKUP.entrySet()
-                                                                            .stream()
-                                                                            .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                            .findFirst()
-                                                                            .map(Entry::getValue)
-                                                                            .orElse(PackageType.NONE);
+                PackageType packageTypeFound = FilenameClassifier.INSTANCE.classify(withoutPrefix).getPackageType().orElse(PackageType.NONE);
 
                 switch (packageType) {
                     case NONE:
@@ -285,12 +280,7 @@ public class OracleOpenJDK implements Distribution {
                         break;
                 }
 
-                ReleaseStatus releaseStatusFound = Constants.RELEASE_STATUS_LOOKUP.entrySet()
-                                                                                  .stream()
-                                                                                  .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                                  .findFirst()
-                                                                                  .map(Entry::getValue)
-                                                                                  .orElse(ReleaseStatus.GA);
+                ReleaseStatus releaseStatusFound = FilenameClassifier.INSTANCE.classify(withoutPrefix).getReleaseStatus().orElse(ReleaseStatus.GA);
 
                 switch (releaseStatus) {
                     case NONE:
@@ -306,11 +296,7 @@ public class OracleOpenJDK implements Distribution {
                         break;
                 }
 
-                Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                                 .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                 .findFirst()
-                                                                 .map(Entry::getValue)
-                                                                 .orElse(Architecture.NONE);
+                Architecture arch = FilenameClassifier.INSTANCE.classify(withoutPrefix).getArchitecture().orElse(Architecture.NONE);
                 if (Architecture.NONE == arch) {
                     LOGGER.debug("Architecture not found in Oracle OpenJDK for filename: {}", fileName);
                     continue;
@@ -319,11 +305,7 @@ public class OracleOpenJDK implements Distribution {
                 pkg.setArchitecture(arch);
                 pkg.setBitness(arch.getBitness());
 
-                OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                      .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                      .findFirst()
-                                                                      .map(Entry::getValue)
-                                                                      .orElse(OperatingSystem.NONE);
+                OperatingSystem os = FilenameClassifier.INSTANCE.classify(withoutPrefix).getOperatingSystem().orElse(OperatingSystem.NONE);
                 if (OperatingSystem.NONE == os) {
                     switch (pkg.getArchiveType()) {
                         case DEB:
@@ -394,31 +376,17 @@ public class OracleOpenJDK implements Distribution {
                 pkg.setJavaVersion(vNumber);
                 pkg.setDistributionVersion(vNumber);
 
-                ReleaseStatus releaseStatus = Constants.RELEASE_STATUS_LOOKUP.entrySet()
-                                                                             .stream()
-                                                                             .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                             .findFirst()
-                                                                             .map(Entry::getValue)
-                                                                             .orElse(ReleaseStatus.GA);
+                ReleaseStatus releaseStatus = FilenameClassifier.INSTANCE.classify(withoutPrefix).getReleaseStatus().orElse(ReleaseStatus.GA);
                 pkg.setReleaseStatus(releaseStatus);
 
-                PackageType packageType = Constants.PACKAGE_TYPE_LOOKUP.entrySet()
-                                                                       .stream()
-                                                                       .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                       .findFirst()
-                                                                       .map(Entry::getValue)
-                                                                       .orElse(PackageType.NONE);
+                PackageType packageType = FilenameClassifier.INSTANCE.classify(withoutPrefix).getPackageType().orElse(PackageType.NONE);
                 if (PackageType.NONE == packageType) {
                     LOGGER.debug("Package Type not found in Oracle OpenJDK for filename: {}", fileName);
                     continue;
                 }
                 pkg.setPackageType(packageType);
 
-                Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                                 .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                 .findFirst()
-                                                                 .map(Entry::getValue)
-                                                                 .orElse(Architecture.NONE);
+                Architecture arch = FilenameClassifier.INSTANCE.classify(withoutPrefix).getArchitecture().orElse(Architecture.NONE);
                 if (Architecture.NONE == arch) {
                     LOGGER.debug("Architecture not found in Oracle OpenJDK for filename: {}", fileName);
                     continue;
@@ -427,11 +395,7 @@ public class OracleOpenJDK implements Distribution {
                 pkg.setArchitecture(arch);
                 pkg.setBitness(arch.getBitness());
 
-                OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                      .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                      .findFirst()
-                                                                      .map(Entry::getValue)
-                                                                      .orElse(OperatingSystem.NONE);
+                OperatingSystem os = FilenameClassifier.INSTANCE.classify(withoutPrefix).getOperatingSystem().orElse(OperatingSystem.NONE);
                 if (OperatingSystem.NONE == os) {
                     switch (pkg.getArchiveType()) {
                         case DEB:
@@ -467,8 +431,7 @@ public class OracleOpenJDK implements Distribution {
 
         // Get packages from archive
         try {
-            String html = Helper.getTextFromUrl(JDK_ARCHIVE_URL);
-            pkgs.addAll(extractPackagesFromHtml(html));
+            pkgs.addAll(extractPackagesFromHrefs(Helper.getFileHrefsFromUrl(JDK_ARCHIVE_URL)));
         } catch (Exception e) {
             LOGGER.debug("Error fetching packages from Oracle OpenJDK archive url. {}", e.getMessage());
         }
@@ -478,8 +441,7 @@ public class OracleOpenJDK implements Distribution {
         for (int i = latestMajorVersion ; i > latestMajorVersion - 3 ; i--) {
             String jdkUrl = JDK_URL + i + "/";
             try {
-                String html = Helper.getTextFromUrl(jdkUrl);
-                pkgs.addAll(extractPackagesFromHtml(html));
+                pkgs.addAll(extractPackagesFromHrefs(Helper.getFileHrefsFromUrl(jdkUrl)));
             } catch (Exception e) {
                 LOGGER.debug("Error fetching packages from Oracle OpenJDK url {}. {}", jdkUrl, e.getMessage());
             }
@@ -507,11 +469,7 @@ public class OracleOpenJDK implements Distribution {
             ArchiveType ext = ArchiveType.getFromFileName(fileName);
             pkg.setArchiveType(ext);
 
-            ReleaseStatus rs = Constants.RELEASE_STATUS_LOOKUP.entrySet().stream()
-                                                              .filter(entry -> downloadLink.contains(entry.getKey()))
-                                                              .findFirst()
-                                                              .map(Entry::getValue)
-                                                              .orElse(ReleaseStatus.NONE);
+            ReleaseStatus rs = FilenameClassifier.INSTANCE.classify(downloadLink).getReleaseStatus().orElse(ReleaseStatus.NONE);
             if (ReleaseStatus.NONE == rs) {
                 LOGGER.debug("Releas Status not found in Oracle OpenJDK for downloadLink: {}", downloadLink);
             } else {
@@ -543,11 +501,7 @@ public class OracleOpenJDK implements Distribution {
                 pkg.setReleaseStatus(rs);
 
 
-                OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                      .filter(entry -> fileName.contains(entry.getKey()))
-                                                                      .findFirst()
-                                                                      .map(Entry::getValue)
-                                                                      .orElse(OperatingSystem.NONE);
+                OperatingSystem os = FilenameClassifier.INSTANCE.classify(fileName).getOperatingSystem().orElse(OperatingSystem.NONE);
                     pkg.setOperatingSystem(os);
                     switch (os) {
                         case WINDOWS:
@@ -611,11 +565,7 @@ public class OracleOpenJDK implements Distribution {
         ArchiveType ext = ArchiveType.getFromFileName(fileName);
         pkg.setArchiveType(ext);
 
-        ReleaseStatus rs = Constants.RELEASE_STATUS_LOOKUP.entrySet().stream()
-                                                          .filter(entry -> directDownloadLink.contains(entry.getKey()))
-                                                          .findFirst()
-                                                          .map(Entry::getValue)
-                                                          .orElse(ReleaseStatus.NONE);
+        ReleaseStatus rs = FilenameClassifier.INSTANCE.classify(directDownloadLink).getReleaseStatus().orElse(ReleaseStatus.NONE);
         if (ReleaseStatus.NONE == rs) {
             LOGGER.debug("Release Status not found in Oracle OpenJDK for downloadLink: {}", downloadLink);
             return null;
@@ -652,9 +602,8 @@ public class OracleOpenJDK implements Distribution {
         return pkg;
     }
 
-    private List<Pkg> extractPackagesFromHtml(final String html) {
-        final List<Pkg> pkgs      = new ArrayList<>();
-        List<String>    fileHrefs = new ArrayList<>(Helper.getFileHrefsFromString(html));
+    private List<Pkg> extractPackagesFromHrefs(final Collection<String> fileHrefs) {
+        final List<Pkg> pkgs = new ArrayList<>();
         for (String href : fileHrefs) {
             String          filename        = Helper.getFileNameFromText(href);
             String[]        nameParts       = filename.split("_");
@@ -34,16 +34,16 @@ import io.foojay.api.pkg.SemVer;
 import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
-import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
 import io.foojay.api.util.Helper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
@@ -156,8 +156,7 @@ public class RedHat implements Distribution {
     public List<Pkg> getAllPkgs() {
         List<Pkg> pkgs = new ArrayList<>();
         try {
-            final String htmlAllJDKs  = Helper.getTextFromUrl(PACKAGE_ALL_URL);
-            pkgs.addAll(getAllPkgsFromHtml(htmlAllJDKs));
+            pkgs.addAll(getAllPkgsFromFileNames(Helper.getFileHrefsFromUrl(PACKAGE_ALL_URL)));
         } catch (Exception e) {
             LOGGER.error("Error fetching all packages from RedHat. {}", e);
         }
@@ -165,9 +164,12 @@ public class RedHat implements Distribution {
     }
 
     public List<Pkg> getAllPkgsFromHtml(final String html) {
+        if (null == html || html.isEmpty()) { return new ArrayList<>(); }
+        return getAllPkgsFromFileNames(Helper.getFileHrefsFromString(html));
+    }
+
+    public List<Pkg> getAllPkgsFromFileNames(final Collection<String> fileNames) {
         List<Pkg> pkgs = new ArrayList<>();
-        if (null == html || html.isEmpty()) { return pkgs; }
-        List<String> fileNames = new ArrayList<>(Helper.getFileHrefsFromString(html));
         for (String filename : fileNames) {
             if (filename.endsWith("sources.zip") || filename.endsWith("src.zip")) { continue; }
 
@@ -186,11 +188,7 @@ public class RedHat implements Distribution {
                 pkg.setPackageType(JDK);
             }
 
-            Architecture architecture = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                                     .filter(entry -> filename.contains(entry.getKey()))
-                                                                     .findFirst()
-                                                                     .map(Entry::getValue)
-                                                                     .orElse(Architecture.NONE);
+            Architecture architecture = FilenameClassifier.INSTANCE.classify(filename).getArchitecture().orElse(Architecture.NONE);
             if (Architecture.NONE == architecture) {
                 LOGGER.debug("Architecture not found in Redhat for filename: {}", filename);
                 continue;
@@ -198,22 +196,14 @@ public class RedHat implements Distribution {
             pkg.setArchitecture(architecture);
             pkg.setBitness(architecture.getBitness());
 
-            OperatingSystem operatingSystem = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                               .filter(entry -> filename.contains(entry.getKey()))
-                                                                               .findFirst()
-                                                                               .map(Entry::getValue)
-                                                                               .orElse(OperatingSystem.NONE);
+            OperatingSystem operatingSystem = FilenameClassifier.INSTANCE.classify(filename).getOperatingSystem().orElse(OperatingSystem.NONE);
             if (OperatingSystem.NONE == operatingSystem) {
                 LOGGER.debug("Operating System not found in Redhat for filename: {}", filename);
                 continue;
             }
             pkg.setOperatingSystem(operatingSystem);
 
-            ArchiveType archiveType = Constants.ARCHIVE_TYPE_LOOKUP.entrySet().stream()
-                                                                   .filter(entry -> filename.contains(entry.getKey()))
-                                                                   .findFirst()
-                                                                   .map(Entry::getValue)
-                                                                   .orElse(ArchiveType.NONE);
+            ArchiveType archiveType = FilenameClassifier.INSTANCE.classify(filename).getArchiveType().orElse(ArchiveType.NONE);
             if (ArchiveType.NONE == archiveType) {
                 LOGGER.debug("Archive Type not found in Redhat for filename: {}", filename);
                 continue;
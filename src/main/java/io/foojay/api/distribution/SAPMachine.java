@@ -39,23 +39,19 @@ import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
 import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.ThreadLocalMatcher;
+import io.foojay.api.util.UpstreamResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpClient.Redirect;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.http.HttpResponse.BodyHandlers;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -78,7 +74,7 @@ public class SAPMachine implements Distribution {
 
     public  static final Pattern                      SAP_MACHINE_EA_PATTERN  = Pattern.compile("(-ea\\.|-eabeta\\.)([0-9]*)");
     private static final Pattern                      FILENAME_PREFIX_PATTERN = Pattern.compile("sapmachine-");
-    private static final Matcher                      FILENAME_PREFIX_MATCHER = FILENAME_PREFIX_PATTERN.matcher("");
+    private static final ThreadLocalMatcher           FILENAME_PREFIX_MATCHER = new ThreadLocalMatcher(FILENAME_PREFIX_PATTERN);
     private static final String                       GITHUB_USER             = "SAP";
     private static final String                       GITHUB_REPOSITORY       = "SapMachine";
     private static final String                       PACKAGE_URL             = "https://api.github.com/repos/" + GITHUB_USER + "/" + GITHUB_REPOSITORY + "/releases";
@@ -186,11 +182,7 @@ public class SAPMachine implements Distribution {
 
             Pkg pkg = new Pkg();
 
-            ArchiveType ext = Constants.ARCHIVE_TYPE_LOOKUP.entrySet().stream()
-                                                                      .filter(entry -> fileName.endsWith(entry.getKey()))
-                                                                      .findFirst()
-                                                                      .map(Entry::getValue)
-                                                                      .orElse(ArchiveType.NONE);
+            ArchiveType ext = FilenameClassifier.INSTANCE.classify(fileName).getArchiveTypeBySuffix().orElse(ArchiveType.NONE);
             if (ArchiveType.NONE == ext) {
                 LOGGER.debug("Archive Type not found in SAP Machine for filename: {}", fileName);
                 return pkgs;
@@ -236,11 +228,7 @@ public class SAPMachine implements Distribution {
                     break;
             }
 
-            Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                             .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                             .findFirst()
-                                                             .map(Entry::getValue)
-                                                             .orElse(Architecture.NONE);
+            Architecture arch = FilenameClassifier.INSTANCE.classify(withoutPrefix).getArchitecture().orElse(Architecture.NONE);
 
             if (Architecture.NONE == arch) {
                 LOGGER.debug("Architecture not found in SAP Machine for filename: {}", fileName);
@@ -250,11 +238,7 @@ public class SAPMachine implements Distribution {
             pkg.setArchitecture(arch);
             pkg.setBitness(arch.getBitness());
 
-            OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                  .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                  .findFirst()
-                                                                  .map(Entry::getValue)
-                                                                  .orElse(OperatingSystem.NONE);
+            OperatingSystem os = FilenameClassifier.INSTANCE.classify(withoutPrefix).getOperatingSystem().orElse(OperatingSystem.NONE);
             if (OperatingSystem.NONE == os) {
                 switch (pkg.getArchiveType()) {
                     case DEB:
@@ -304,11 +288,7 @@ public class SAPMachine implements Distribution {
 
                 Pkg pkg = new Pkg();
 
-                ArchiveType ext = Constants.ARCHIVE_TYPE_LOOKUP.entrySet().stream()
-                                                               .filter(entry -> fileName.endsWith(entry.getKey()))
-                                                               .findFirst()
-                                                               .map(Entry::getValue)
-                                                               .orElse(ArchiveType.NONE);
+                ArchiveType ext = FilenameClassifier.INSTANCE.classify(fileName).getArchiveTypeBySuffix().orElse(ArchiveType.NONE);
                 if (ArchiveType.NONE == ext) {
                     LOGGER.debug("Archive Type not found in SAP Machine for filename: {}", fileName);
                     continue;
@@ -334,11 +314,7 @@ public class SAPMachine implements Distribution {
                 pkg.setReleaseStatus(withoutPrefix.contains(Constants.EA_POSTFIX) ? EA : GA);
 
 
-                Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                                 .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                 .findFirst()
-                                                                 .map(Entry::getValue)
-                                                                 .orElse(Architecture.NONE);
+                Architecture arch = FilenameClassifier.INSTANCE.classify(withoutPrefix).getArchitecture().orElse(Architecture.NONE);
                 if (Architecture.NONE == arch) {
                     LOGGER.debug("Architecture not found in SAP Machine for filename: {}", fileName);
                     continue;
@@ -346,11 +322,7 @@ public class SAPMachine implements Distribution {
                 pkg.setArchitecture(arch);
                 pkg.setBitness(arch.getBitness());
 
-                OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                      .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                      .findFirst()
-                                                                      .map(Entry::getValue)
-                                                                      .orElse(OperatingSystem.NONE);
+                OperatingSystem os = FilenameClassifier.INSTANCE.classify(withoutPrefix).getOperatingSystem().orElse(OperatingSystem.NONE);
                 if (OperatingSystem.NONE == os) {
                     switch (pkg.getArchiveType()) {
                         case DEB:
@@ -384,12 +356,10 @@ public class SAPMachine implements Distribution {
 
     public List<Pkg> getAllPkgsFromJsonUrl() {
         List<Pkg>   pkgs      = new ArrayList<>();
-        HttpClient  clientSAP = HttpClient.newBuilder().followRedirects(Redirect.NEVER).version(java.net.http.HttpClient.Version.HTTP_2).build();
-        HttpRequest request   = HttpRequest.newBuilder().uri(URI.create(PACKAGE_JSON_URL)).setHeader("User-Agent", "DiscoAPI").GET().build();
         try {
-            HttpResponse<String> response = clientSAP.send(request, BodyHandlers.ofString());
-            if (response.statusCode() == 200) {
-                String      bodyText = response.body();
+            UpstreamResponse response = Helper.fetch(PACKAGE_JSON_URL);
+            if (response.getStatusCode() == 200) {
+                String      bodyText = response.getBody();
                 Gson        gson     = new Gson();
                 JsonElement element  = gson.fromJson(bodyText, JsonElement.class);
                 if (element instanceof JsonObject) {
@@ -491,7 +461,7 @@ public class SAPMachine implements Distribution {
                 }
             } else {
                 // Problem with url request
-                LOGGER.debug("Response ({}) {} ", response.statusCode(), response.body());
+                LOGGER.debug("Response ({}) {} ", response.getStatusCode(), response.getBody());
             }
         } catch (InterruptedException | IOException e) {
             LOGGER.error("Error fetching packages for distribution {} from {}", getName(), PACKAGE_JSON_URL);
@@ -504,8 +474,7 @@ public class SAPMachine implements Distribution {
         List<Pkg> pkgs = new ArrayList<>();
         try {
             for (String packageUrl : PACKAGE_URLS) {
-                String html = Helper.getTextFromUrl(packageUrl);
-                pkgs.addAll(getAllPkgsFromHtml(html, packageUrl));
+                pkgs.addAll(getAllPkgsFromHrefs(Helper.getFileHrefsFromUrl(packageUrl), packageUrl));
             }
         } catch (Exception e) {
             LOGGER.error("Error fetching all packages from SAP Machine. {}", e);
@@ -514,9 +483,12 @@ public class SAPMachine implements Distribution {
     }
 
     public List<Pkg> getAllPkgsFromHtml(final String html, final String packageUrl) {
+        if (null == html || html.isEmpty()) { return new ArrayList<>(); }
+        return getAllPkgsFromHrefs(Helper.getFileHrefsFromString(html), packageUrl);
+    }
+
+    public List<Pkg> getAllPkgsFromHrefs(final Collection<String> fileHrefs, final String packageUrl) {
         List<Pkg> pkgs = new ArrayList<>();
-        if (null == html || html.isEmpty()) { return pkgs; }
-        List<String> fileHrefs = new ArrayList<>(Helper.getFileHrefsFromString(html));
         List<String> fileNames = new ArrayList<>();
         for (String href : fileHrefs) { fileNames.add(Helper.getFileNameFromText(href)); }
 
@@ -527,23 +499,13 @@ public class SAPMachine implements Distribution {
             final MajorVersion    majorVersion    = versionNumber.getMajorVersion();
             final PackageType     packageType     = withoutPrefix.startsWith("jdk") ? JDK : JRE;
 
-            OperatingSystem operatingSystem = Constants.OPERATING_SYSTEM_LOOKUP.entrySet()
-                                                                               .stream()
-                                                                               .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                               .findFirst()
-                                                                               .map(Entry::getValue)
-                                                                               .orElse(OperatingSystem.NONE);
+            OperatingSystem operatingSystem = FilenameClassifier.INSTANCE.classify(withoutPrefix).getOperatingSystem().orElse(OperatingSystem.NONE);
             if (OperatingSystem.NONE == operatingSystem) {
                 LOGGER.debug("Operating System not found in SAP Machine for filename: {}", filename);
                 continue;
             }
 
-            final Architecture architecture = Constants.ARCHITECTURE_LOOKUP.entrySet()
-                                                                           .stream()
-                                                                                            .filter(entry -> withoutPrefix.contains(entry.getKey()))
-                                                                                            .findFirst()
-                                                                                            .map(Entry::getValue)
-                                                                                            .orElse(Architecture.NONE);
+            final Architecture architecture = FilenameClassifier.INSTANCE.classify(withoutPrefix).getArchitecture().orElse(Architecture.NONE);
             if (Architecture.NONE == architecture) {
                 LOGGER.debug("Architecture not found in SAP Machine for filename: {}", filename);
                 continue;
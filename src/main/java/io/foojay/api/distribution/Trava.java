@@ -16,7 +16,6 @@
 
 package io.foojay.api.distribution;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -35,24 +34,18 @@ import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
 import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
+import io.foojay.api.util.GithubReleaseCrawler;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.ThreadLocalMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpClient.Redirect;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.http.HttpResponse.BodyHandlers;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.TreeSet;
 import java.util.regex.MatchResult;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -65,12 +58,12 @@ import static io.foojay.api.pkg.ReleaseStatus.GA;
 public class Trava implements Distribution {
     private static final Logger LOGGER = LoggerFactory.getLogger(Trava.class);
 
-    private static final Pattern      DOWNLOAD_PATTERN = Pattern.compile("(.*\\/download\\/dcevm)(\\-)?(.*)(\\/.*)");
-    private static final Matcher      DOWNLOAD_MATCHER = DOWNLOAD_PATTERN.matcher("");
-    private static final String       GITHUB_USER      = "TravaOpenJDK";
-    private static final String       PACKAGE_URL      = "https://github.com/TravaOpenJDK/";
-    public  static final List<String> PACKAGE_URLS     = List.of("https://api.github.com/repos/" + GITHUB_USER + "/trava-jdk-8-dcevm/releases?per_page=100",
-                                                                 "https://api.github.com/repos/" + GITHUB_USER + "/trava-jdk-11-dcevm/releases?per_page=100");
+    private static final Pattern            DOWNLOAD_PATTERN = Pattern.compile("(.*\\/download\\/dcevm)(\\-)?(.*)(\\/.*)");
+    private static final ThreadLocalMatcher DOWNLOAD_MATCHER = new ThreadLocalMatcher(DOWNLOAD_PATTERN);
+    private static final String             GITHUB_USER      = "TravaOpenJDK";
+    private static final String             PACKAGE_URL      = "https://github.com/TravaOpenJDK/";
+    public  static final List<String>       PACKAGE_URLS     = List.of("https://api.github.com/repos/" + GITHUB_USER + "/trava-jdk-8-dcevm/releases?per_page=100",
+                                                                       "https://api.github.com/repos/" + GITHUB_USER + "/trava-jdk-11-dcevm/releases?per_page=100");
 
 
     // URL parameters
@@ -161,8 +154,7 @@ public class Trava implements Distribution {
             String downloadLink = assetJsonObj.get("browser_download_url").getAsString();
 
             VersionNumber vNumber = new VersionNumber();
-            DOWNLOAD_MATCHER.reset(downloadLink);
-            final List<MatchResult> results = DOWNLOAD_MATCHER.results().collect(Collectors.toList());
+            final List<MatchResult> results = DOWNLOAD_MATCHER.reset(downloadLink).results().collect(Collectors.toList());
             if (results.size() > 0) {
                 MatchResult result = results.get(0);
                 vNumber = VersionNumber.fromText(result.group(3));
@@ -177,11 +169,7 @@ public class Trava implements Distribution {
 
             Pkg pkg = new Pkg();
 
-            ArchiveType ext = Constants.ARCHIVE_TYPE_LOOKUP.entrySet().stream()
-                                                           .filter(entry -> fileName.endsWith(entry.getKey()))
-                                                           .findFirst()
-                                                           .map(Entry::getValue)
-                                                           .orElse(ArchiveType.NONE);
+            ArchiveType ext = FilenameClassifier.INSTANCE.classify(fileName).getArchiveTypeBySuffix().orElse(ArchiveType.NONE);
             if (ArchiveType.NONE == ext) {
                 LOGGER.debug("Archive Type not found in Trava for filename: {}", fileName);
                 return pkgs;
@@ -227,11 +215,7 @@ public class Trava implements Distribution {
                     break;
             }
 
-            Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                             .filter(entry -> fileName.contains(entry.getKey()))
-                                                             .findFirst()
-                                                             .map(Entry::getValue)
-                                                             .orElse(Architecture.NONE);
+            Architecture arch = FilenameClassifier.INSTANCE.classify(fileName).getArchitecture().orElse(Architecture.NONE);
 
             if (Architecture.NONE == arch) {
                 LOGGER.debug("Architecture not found in Trava for filename: {}", fileName);
@@ -241,11 +225,7 @@ public class Trava implements Distribution {
             pkg.setArchitecture(arch);
             pkg.setBitness(arch.getBitness());
 
-            OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                  .filter(entry -> fileName.contains(entry.getKey()))
-                                                                  .findFirst()
-                                                                  .map(Entry::getValue)
-                                                                  .orElse(OperatingSystem.NONE);
+            OperatingSystem os = FilenameClassifier.INSTANCE.classify(fileName).getOperatingSystem().orElse(OperatingSystem.NONE);
             if (OperatingSystem.NONE == os) {
                 switch (pkg.getArchiveType()) {
                     case DEB:
@@ -280,26 +260,7 @@ public class Trava implements Distribution {
         try {
             for (String packageUrl : PACKAGE_URLS) {
                 // Get all packages from github
-                String      query   = packageUrl;
-                HttpClient  client  = HttpClient.newBuilder().followRedirects(Redirect.NEVER).version(java.net.http.HttpClient.Version.HTTP_2).build();
-                HttpRequest request = HttpRequest.newBuilder().uri(URI.create(query)).setHeader("User-Agent", "DiscoAPI").GET().build();
-                try {
-                    HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-                    if (response.statusCode() == 200) {
-                        String      bodyText = response.body();
-                        Gson        gson     = new Gson();
-                        JsonElement element  = gson.fromJson(bodyText, JsonElement.class);
-                        if (element instanceof JsonArray) {
-                            JsonArray jsonArray = element.getAsJsonArray();
-                            pkgs.addAll(getAllPkgs(jsonArray));
-                        }
-                    } else {
-                        // Problem with url request
-                        LOGGER.debug("Response ({}) {} ", response.statusCode(), response.body());
-                    }
-                } catch (InterruptedException | IOException e) {
-                    LOGGER.error("Error fetching packages for distribution {} from {}", getName(), query);
-                }
+                GithubReleaseCrawler.INSTANCE.crawl(packageUrl, release -> pkgs.addAll(getAllPkgs(Helper.toJsonArray(release))));
             }
         } catch (Exception e) {
             LOGGER.error("Error fetching all packages from Trava. {}", e);
@@ -323,8 +284,7 @@ public class Trava implements Distribution {
                 String downloadLink = assetJsonObj.get("browser_download_url").getAsString();
 
                 VersionNumber vNumber = new VersionNumber();
-                DOWNLOAD_MATCHER.reset(downloadLink);
-                final List<MatchResult> results = DOWNLOAD_MATCHER.results().collect(Collectors.toList());
+                final List<MatchResult> results = DOWNLOAD_MATCHER.reset(downloadLink).results().collect(Collectors.toList());
                 if (results.size() > 0) {
                     MatchResult result = results.get(0);
                     vNumber = VersionNumber.fromText(result.group(3));
@@ -332,11 +292,7 @@ public class Trava implements Distribution {
 
                 Pkg pkg = new Pkg();
 
-                ArchiveType ext = Constants.ARCHIVE_TYPE_LOOKUP.entrySet().stream()
-                                                               .filter(entry -> fileName.endsWith(entry.getKey()))
-                                                               .findFirst()
-                                                               .map(Entry::getValue)
-                                                               .orElse(ArchiveType.NONE);
+                ArchiveType ext = FilenameClassifier.INSTANCE.classify(fileName).getArchiveTypeBySuffix().orElse(ArchiveType.NONE);
                 if (ArchiveType.NONE == ext) {
                     LOGGER.debug("Archive Type not found in Trava for filename: {}", fileName);
                     continue;
@@ -362,11 +318,7 @@ public class Trava implements Distribution {
                 pkg.setReleaseStatus(fileName.contains(Constants.EA_POSTFIX) ? EA : GA);
 
 
-                Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                                 .filter(entry -> fileName.contains(entry.getKey()))
-                                                                 .findFirst()
-                                                                 .map(Entry::getValue)
-                                                                 .orElse(Architecture.NONE);
+                Architecture arch = FilenameClassifier.INSTANCE.classify(fileName).getArchitecture().orElse(Architecture.NONE);
                 if (Architecture.NONE == arch) {
                     LOGGER.debug("Architecture not found in Trava for filename: {}", fileName);
                     arch = Architecture.X64;
@@ -374,11 +326,7 @@ public class Trava implements Distribution {
                 pkg.setArchitecture(arch);
                 pkg.setBitness(arch.getBitness());
 
-                OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                      .filter(entry -> fileName.contains(entry.getKey()))
-                                                                      .findFirst()
-                                                                      .map(Entry::getValue)
-                                                                      .orElse(OperatingSystem.NONE);
+                OperatingSystem os = FilenameClassifier.INSTANCE.classify(fileName).getOperatingSystem().orElse(OperatingSystem.NONE);
                 if (OperatingSystem.NONE == os) {
                     switch (pkg.getArchiveType()) {
                         case DEB:
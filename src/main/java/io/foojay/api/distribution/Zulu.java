@@ -37,7 +37,9 @@ import io.foojay.api.pkg.SignatureType;
 import io.foojay.api.pkg.TermOfSupport;
 import io.foojay.api.pkg.VersionNumber;
 import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.ThreadLocalMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,9 +47,9 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -86,11 +88,16 @@ public class Zulu implements Distribution {
     private static final Logger                       LOGGER                     = LoggerFactory.getLogger(Zulu.class);
 
     private static final Pattern                      FILENAME_PREFIX_PATTERN    = Pattern.compile("(zulu|zre)(\\d+)\\.(\\d+)\\.(\\d+)(\\.|_?)(\\d+)?");
-    private static final Matcher                      FILENAME_PREFIX_MATCHER    = FILENAME_PREFIX_PATTERN.matcher("");
+    private static final ThreadLocalMatcher           FILENAME_PREFIX_MATCHER    = new ThreadLocalMatcher(FILENAME_PREFIX_PATTERN);
     private static final Pattern                      FILENAME_PREFIX_VN_PATTERN = Pattern.compile("(zulu-repo-|zulu-repo_|zulu|zre)[0-9]{1,3}\\.[0-9]{1,3}(\\.|\\+)[0-9]{1,4}(\\.|-|_)([0-9]{1,3}-)?([0-9]{1,4}_[0-9]{1,4}-)?(ca-|ea-)?(fx-)?(dbg-)?(hl)?(cp(1|2|3)-)?(oem-)?(-|jre|jdk)?");
     private static final Pattern                      FEATURE_PREFIX_PATTERN     = Pattern.compile("^((-ea)|(-ca)|(-jdk)|(-jre)|(-fx)|(-))?((-ea)|(-ca)|(-jdk)|(-jre)|(-fx)|(-))?((-ea)|(-ca)|(-jdk)|(-jre)|(-fx)|(-))?");
-    private static final Matcher                      FEATURE_PREFIX_MATCHER     = FEATURE_PREFIX_PATTERN.matcher("");
+    private static final ThreadLocalMatcher           FEATURE_PREFIX_MATCHER     = new ThreadLocalMatcher(FEATURE_PREFIX_PATTERN);
+    private static final Pattern                      CDN_PREFIX_VERSION_PATTERN = Pattern.compile("(zulu|zre|zulu-repo|zulurepo)((-|_)?)(\\d+)\\.(\\d+)(\\.|\\+)(\\d+)(\\.|_?)(\\d+)?(-|_)([0-9]+-)?((ca|ea)(-))?(hl-)?(fx-)?(cp[0-9]+)?(jdk|jre)?");
+    private static final ThreadLocalMatcher           CDN_PREFIX_VERSION_MATCHER = new ThreadLocalMatcher(CDN_PREFIX_VERSION_PATTERN);
+    private static final Pattern                      CDN_PREFIX_DISTRO_PATTERN  = Pattern.compile("(zulu|zre|zulu-repo|zulurepo)");
+    private static final ThreadLocalMatcher           CDN_PREFIX_DISTRO_MATCHER  = new ThreadLocalMatcher(CDN_PREFIX_DISTRO_PATTERN);
     private static final String                       PACKAGE_URL                = "https://api.azul.com/zulu/download/community/v1.0/bundles/";
+    private static final String                       CDN_URL                    = "https://cdn.azul.com/zulu/bin/";
 
     // URL parameters
     private static final String                       JDK_VERSION_PARAM          = "jdk_version";
@@ -126,6 +133,10 @@ public class Zulu implements Distribution {
     private static final HashAlgorithm                SIGNATURE_ALGORITHM        = HashAlgorithm.NONE;
     private static final String                       SIGNATURE_URI              = "";
 
+    // Hrefs of the CDN index that have been processed before, either with their package or skipped
+    private        final Map<String, Pkg>             cdnPkgs                    = new ConcurrentHashMap<>();
+    private        final Set<String>                  cdnHrefsSkipped            = ConcurrentHashMap.newKeySet();
+
 
     @Override public Distro getDistro() { return Distro.ZULU; }
 
@@ -272,11 +283,7 @@ public class Zulu implements Distribution {
         if (null != javafxBundled && javafxBundled && !withoutPrefix.contains(Constants.FX_POSTFIX)) { return pkgs; }
         pkg.setJavaFXBundled(withoutPrefix.contains(Constants.FX_POSTFIX));
 
-        ArchiveType ext = Constants.ARCHIVE_TYPE_LOOKUP.entrySet().stream()
-                                                       .filter(entry -> fileName.endsWith(entry.getKey()))
-                                                       .findFirst()
-                                                       .map(Entry::getValue)
-                                                       .orElse(ArchiveType.NONE);
+        ArchiveType ext = FilenameClassifier.INSTANCE.classify(fileName).getArchiveTypeBySuffix().orElse(ArchiveType.NONE);
 
         if (ArchiveType.NONE == ext) {
             LOGGER.debug("Archive Type not found in Zulu for filename: {}", fileName);
@@ -317,11 +324,7 @@ public class Zulu implements Distribution {
 
         pkg.setHeadless(withoutFeaturePrefix.contains(Constants.HEADLESS_POSTFIX));
 
-        Architecture arch = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                         .filter(entry -> fileName.contains(entry.getKey()))
-                                                         .findFirst()
-                                                         .map(Entry::getValue)
-                                                         .orElse(Architecture.NONE);
+        Architecture arch = FilenameClassifier.INSTANCE.classify(fileName).getArchitecture().orElse(Architecture.NONE);
 
         if (Architecture.NONE == arch && fileName.contains("macos")) {
             arch = X64;
@@ -334,11 +337,7 @@ public class Zulu implements Distribution {
         pkg.setArchitecture(arch);
         pkg.setBitness(arch.getBitness());
 
-        OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                              .filter(entry -> fileName.contains(entry.getKey()))
-                                                              .findFirst()
-                                                              .map(Entry::getValue)
-                                                              .orElse(OperatingSystem.NONE);
+        OperatingSystem os = FilenameClassifier.INSTANCE.classify(fileName).getOperatingSystem().orElse(OperatingSystem.NONE);
 
         if (OperatingSystem.NONE == os) {
             switch (pkg.getArchiveType()) {
@@ -373,90 +372,97 @@ public class Zulu implements Distribution {
     }
 
     /**
-     * Returns all packages found on the Azul Zulu Community CDN
+     * Returns all packages found on the Azul Zulu Community CDN. Only hrefs that have not
+     * been seen in a previous call will be classified, the packages of known hrefs will be
+     * copied from the result of the previous calls.
      * @return all packages found on the Azul Zulu Community CDN
      */
     public List<Pkg> getAllPackagesFromCDN() {
         List<Pkg> pkgs = new ArrayList<>();
         try {
-            final String       html                        = Helper.getTextFromUrl("https://cdn.azul.com/zulu/bin/");
-            final Pattern      filenamePrefixVersion       = Pattern.compile("(zulu|zre|zulu-repo|zulurepo)((-|_)?)(\\d+)\\.(\\d+)(\\.|\\+)(\\d+)(\\.|_?)(\\d+)?(-|_)([0-9]+-)?((ca|ea)(-))?(hl-)?(fx-)?(cp[0-9]+)?(jdk|jre)?");
-            final Pattern      filenamePrefixDistroVersion = Pattern.compile("(zulu|zre|zulu-repo|zulurepo)");
-            final List<String> fileHrefs                   = new ArrayList<>(Helper.getFileHrefsFromString(html));
-            for (String href : fileHrefs) {
-                String filename = Helper.getFileNameFromText(href);
-                if (filename.contains("noarch")) { continue; }
-
-                String          reducedToVersionFilename       = filename.replaceAll(filenamePrefixVersion.pattern(), "");
-                VersionNumber   versionNumber                  = VersionNumber.fromText(reducedToVersionFilename);
-                TermOfSupport   termOfSupport                  = Helper.getTermOfSupport(versionNumber);
-                String          downloadLink                   = "https://cdn.azul.com/zulu/bin/" + filename;
-
-                String          reducedToDistroVersionFilename = filename.replaceAll(filenamePrefixDistroVersion.pattern(), "");
-                VersionNumber   distroVersionNumber            = VersionNumber.fromText(reducedToDistroVersionFilename);
-
-                Pkg pkg = new Pkg();
-                pkg.setDistribution(Distro.ZULU.get());
-                pkg.setVersionNumber(versionNumber);
-                pkg.setJavaVersion(versionNumber);
-                pkg.setDistributionVersion(distroVersionNumber);
-
-                PackageType packageType = Constants.PACKAGE_TYPE_LOOKUP.entrySet().stream()
-                                                                       .filter(entry -> filename.contains(entry.getKey()))
-                                                                       .findFirst()
-                                                                       .map(Entry::getValue)
-                                                                       .orElse(PackageType.NOT_FOUND);
-                if (PackageType.NOT_FOUND == packageType) { packageType = PackageType.JDK; }
-                pkg.setPackageType(packageType);
-
-                ArchiveType archiveType = Constants.ARCHIVE_TYPE_LOOKUP.entrySet().stream()
-                                                                       .filter(entry -> filename.endsWith(entry.getKey()))
-                                                                       .findFirst()
-                                                                       .map(Entry::getValue)
-                                                                       .orElse(ArchiveType.NOT_FOUND);
-                if (ArchiveType.NOT_FOUND == archiveType) { continue; }
-                pkg.setArchiveType(archiveType);
-
-                OperatingSystem os = Constants.OPERATING_SYSTEM_LOOKUP.entrySet().stream()
-                                                                      .filter(entry -> filename.contains(entry.getKey()))
-                                                                      .findFirst()
-                                                                      .map(Entry::getValue)
-                                                                      .orElse(OperatingSystem.NOT_FOUND);
-                if (OperatingSystem.NOT_FOUND == os) {
-                    os = Helper.fetchOperatingSystemByArchiveType(archiveType.getUiString());
-                }
+            final Set<String> fileHrefs = Helper.getFileHrefsFromUrl(CDN_URL);
+            if (fileHrefs.isEmpty()) { return pkgs; }
 
-                if (OperatingSystem.NOT_FOUND == os) { continue; }
-                pkg.setOperatingSystem(os);
-
-                Architecture architecture = Constants.ARCHITECTURE_LOOKUP.entrySet().stream()
-                                                                         .filter(entry -> filename.contains(entry.getKey()))
-                                                                         .findFirst()
-                                                                         .map(Entry::getValue)
-                                                                         .orElse(Architecture.NOT_FOUND);
-                if (Architecture.NOT_FOUND == architecture) {
-                    if (OperatingSystem.MACOS == pkg.getOperatingSystem()) {
-                        architecture = Architecture.X64;
-                    } else {
+            int newHrefs = 0;
+            for (String href : fileHrefs) {
+                Pkg pkg = cdnPkgs.get(href);
+                if (null == pkg) {
+                    if (cdnHrefsSkipped.contains(href)) { continue; }
+                    newHrefs++;
+                    pkg = getPkgFromCDNHref(href);
+                    if (null == pkg) {
+                        cdnHrefsSkipped.add(href);
                         continue;
                     }
+                    cdnPkgs.put(href, pkg);
                 }
-                pkg.setArchitecture(architecture);
-                pkg.setBitness(architecture.getBitness());
-
-                pkg.setReleaseStatus(filename.contains("ea") ? ReleaseStatus.EA : ReleaseStatus.GA);
-
-                pkg.setTermOfSupport(termOfSupport);
-                pkg.setFileName(filename);
-                pkg.setArchiveType(archiveType);
-                pkg.setDirectDownloadUri(downloadLink);
-                pkg.setJavaFXBundled(filename.contains("-fx"));
-
-                pkgs.add(pkg);
+                // Hand out copies, the returned packages might be modified by the package cache
+                pkgs.add(new Pkg(pkg));
             }
+
+            // Forget about hrefs that have been removed from the CDN
+            cdnPkgs.keySet().retainAll(fileHrefs);
+            cdnHrefsSkipped.retainAll(fileHrefs);
+            LOGGER.debug("Classified {} new of {} hrefs found on Zulu CDN", newHrefs, fileHrefs.size());
         } catch (Exception e) {
             LOGGER.debug("Error fetching packages from Zulu CDN. {}", e.getMessage());
         }
         return pkgs;
     }
+
+    private Pkg getPkgFromCDNHref(final String href) {
+        String filename = Helper.getFileNameFromText(href);
+        if (filename.contains("noarch")) { return null; }
+
+        String          reducedToVersionFilename       = CDN_PREFIX_VERSION_MATCHER.reset(filename).replaceAll("");
+        VersionNumber   versionNumber                  = VersionNumber.fromText(reducedToVersionFilename);
+        TermOfSupport   termOfSupport                  = Helper.getTermOfSupport(versionNumber);
+        String          downloadLink                   = CDN_URL + filename;
+
+        String          reducedToDistroVersionFilename = CDN_PREFIX_DISTRO_MATCHER.reset(filename).replaceAll("");
+        VersionNumber   distroVersionNumber            = VersionNumber.fromText(reducedToDistroVersionFilename);
+
+        Pkg pkg = new Pkg();
+        pkg.setDistribution(Distro.ZULU.get());
+        pkg.setVersionNumber(versionNumber);
+        pkg.setJavaVersion(versionNumber);
+        pkg.setDistributionVersion(distroVersionNumber);
+
+        PackageType packageType = FilenameClassifier.INSTANCE.classify(filename).getPackageType().orElse(PackageType.NOT_FOUND);
+        if (PackageType.NOT_FOUND == packageType) { packageType = PackageType.JDK; }
+        pkg.setPackageType(packageType);
+
+        ArchiveType archiveType = FilenameClassifier.INSTANCE.classify(filename).getArchiveTypeBySuffix().orElse(ArchiveType.NOT_FOUND);
+        if (ArchiveType.NOT_FOUND == archiveType) { return null; }
+        pkg.setArchiveType(archiveType);
+
+        OperatingSystem os = FilenameClassifier.INSTANCE.classify(filename).getOperatingSystem().orElse(OperatingSystem.NOT_FOUND);
+        if (OperatingSystem.NOT_FOUND == os) {
+            os = Helper.fetchOperatingSystemByArchiveType(archiveType.getUiString());
+        }
+
+        if (OperatingSystem.NOT_FOUND == os) { return null; }
+        pkg.setOperatingSystem(os);
+
+        Architecture architecture = FilenameClassifier.INSTANCE.classify(filename).getArchitecture().orElse(Architecture.NOT_FOUND);
+        if (Architecture.NOT_FOUND == architecture) {
+            if (OperatingSystem.MACOS == pkg.getOperatingSystem()) {
+                architecture = Architecture.X64;
+            } else {
+                return null;
+            }
+        }
+        pkg.setArchitecture(architecture);
+        pkg.setBitness(architecture.getBitness());
+
+        pkg.setReleaseStatus(filename.contains("ea") ? ReleaseStatus.EA : ReleaseStatus.GA);
+
+        pkg.setTermOfSupport(termOfSupport);
+        pkg.setFileName(filename);
+        pkg.setArchiveType(archiveType);
+        pkg.setDirectDownloadUri(downloadLink);
+        pkg.setJavaFXBundled(filename.contains("-fx"));
+
+        return pkg;
+    }
 }
@@ -23,12 +23,11 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import io.foojay.api.CacheManager;
 import io.foojay.api.distribution.Distribution;
-import io.foojay.api.util.Constants;
+import io.foojay.api.util.FilenameClassifier;
 import io.foojay.api.util.Helper;
 import io.foojay.api.util.OutputFormat;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.OptionalInt;
 
@@ -119,6 +118,28 @@ public class Pkg {
         this.downloadSiteUri      = downloadSiteUri;
         this.semver               = SemVer.fromText(versionNumber.toString()).getSemVer1();
     }
+    public Pkg(final Pkg pkg) {
+        this.distribution         = pkg.distribution;
+        this.versionNumber        = pkg.versionNumber;
+        this.javaVersion          = pkg.javaVersion;
+        this.distributionVersion  = pkg.distributionVersion;
+        this.semver               = pkg.semver;
+        this.latestBuildAvailable = pkg.latestBuildAvailable;
+        this.architecture         = pkg.architecture;
+        this.bitness              = pkg.bitness;
+        this.operatingSystem      = pkg.operatingSystem;
+        this.libCType             = pkg.libCType;
+        this.packageType          = pkg.packageType;
+        this.releaseStatus        = pkg.releaseStatus;
+        this.archiveType          = pkg.archiveType;
+        this.termOfSupport        = pkg.termOfSupport;
+        this.javafxBundled        = pkg.javafxBundled;
+        this.directlyDownloadable = pkg.directlyDownloadable;
+        this.headless             = pkg.headless;
+        this.filename             = pkg.filename;
+        this.directDownloadUri    = pkg.directDownloadUri;
+        this.downloadSiteUri      = pkg.downloadSiteUri;
+    }
     public Pkg(final String jsonText) {
         if (null == jsonText || jsonText.isEmpty()) { throw new IllegalArgumentException("Json text cannot be null or empty"); }
         final Gson       gson = new Gson();
@@ -144,16 +165,47 @@ public class Pkg {
         this.filename             = json.get(FIELD_FILENAME).getAsString();
         this.directDownloadUri    = json.get(FIELD_DIRECT_DOWNLOAD_URI).getAsString();
         this.downloadSiteUri      = json.get(FIELD_DOWNLOAD_SITE_URI).getAsString();
-        this.semver               = SemVer.fromText(versionNumber.toString()).getSemVer1();
+
+        initDerivedFields(distro);
+    }
+    /**
+     * Creates a package from the values of its stored fields (see PkgCodec). The java version
+     * will only be parsed once and no intermediate json will be created.
+     */
+    public Pkg(final Distro distro, final String javaVersion, final String distributionVersion, final Boolean latestBuildAvailable, final Architecture architecture,
+               final OperatingSystem operatingSystem, final LibCType libCType, final PackageType packageType, final ReleaseStatus releaseStatus, final ArchiveType archiveType,
+               final TermOfSupport termOfSupport, final boolean javafxBundled, final boolean directlyDownloadable, final String filename, final String directDownloadUri,
+               final String downloadSiteUri) {
+        this.distribution         = distro.get();
+        this.versionNumber        = VersionNumber.fromText(javaVersion);
+        this.javaVersion          = new VersionNumber(this.versionNumber);
+        this.distributionVersion  = VersionNumber.fromText(distributionVersion);
+        this.latestBuildAvailable = null == latestBuildAvailable ? Boolean.FALSE : latestBuildAvailable;
+        this.architecture         = architecture;
+        this.bitness              = architecture.getBitness();
+        this.operatingSystem      = operatingSystem;
+        this.libCType             = libCType;
+        this.packageType          = packageType;
+        this.releaseStatus        = releaseStatus;
+        this.archiveType          = archiveType;
+        this.termOfSupport        = termOfSupport;
+        this.javafxBundled        = javafxBundled;
+        this.directlyDownloadable = directlyDownloadable;
+        this.headless             = false;
+        this.filename             = filename;
+        this.directDownloadUri    = directDownloadUri;
+        this.downloadSiteUri      = downloadSiteUri;
+
+        initDerivedFields(distro);
+    }
+
+
+    private void initDerivedFields(final Distro distro) {
+        this.semver = SemVer.fromText(versionNumber.toString()).getSemVer1();
 
         if (ArchiveType.NOT_FOUND     == this.archiveType)     { this.archiveType     = ArchiveType.getFromFileName(this.filename); }
         if (TermOfSupport.NOT_FOUND   == this.termOfSupport)   { this.termOfSupport   = Helper.getTermOfSupport(this.versionNumber, distro); }
-        if (OperatingSystem.NOT_FOUND == this.operatingSystem) { this.operatingSystem = Constants.OPERATING_SYSTEM_LOOKUP.entrySet()
-                                                                                                                         .stream()
-                                                                                                                         .filter(entry -> this.filename.contains(entry.getKey()))
-                                                                                                                         .findFirst()
-                                                                                                                         .map(Entry::getValue)
-                                                                                                                         .orElse(OperatingSystem.NONE); }
+        if (OperatingSystem.NOT_FOUND == this.operatingSystem) { this.operatingSystem = FilenameClassifier.INSTANCE.classify(this.filename).getOperatingSystem().orElse(OperatingSystem.NONE); }
     }
 
 
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.pkg;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import java.util.List;
+
+import static io.foojay.api.pkg.Pkg.FIELD_ARCHITECTURE;
+import static io.foojay.api.pkg.Pkg.FIELD_ARCHIVE_TYPE;
+import static io.foojay.api.pkg.Pkg.FIELD_DIRECTLY_DOWNLOADABLE;
+import static io.foojay.api.pkg.Pkg.FIELD_DIRECT_DOWNLOAD_URI;
+import static io.foojay.api.pkg.Pkg.FIELD_DISTRIBUTION;
+import static io.foojay.api.pkg.Pkg.FIELD_DISTRIBUTION_VERSION;
+import static io.foojay.api.pkg.Pkg.FIELD_DOWNLOAD_SITE_URI;
+import static io.foojay.api.pkg.Pkg.FIELD_FILENAME;
+import static io.foojay.api.pkg.Pkg.FIELD_ID;
+import static io.foojay.api.pkg.Pkg.FIELD_JAVAFX_BUNDLED;
+import static io.foojay.api.pkg.Pkg.FIELD_JAVA_VERSION;
+import static io.foojay.api.pkg.Pkg.FIELD_LATEST_BUILD_AVAILABLE;
+import static io.foojay.api.pkg.Pkg.FIELD_LIB_C_TYPE;
+import static io.foojay.api.pkg.Pkg.FIELD_MAJOR_VERSION;
+import static io.foojay.api.pkg.Pkg.FIELD_OPERATING_SYSTEM;
+import static io.foojay.api.pkg.Pkg.FIELD_PACKAGE_TYPE;
+import static io.foojay.api.pkg.Pkg.FIELD_RELEASE_STATUS;
+import static io.foojay.api.pkg.Pkg.FIELD_TERM_OF_SUPPORT;
+
+
+/**
+ * Reads and writes packages directly from and to BSON, without creating a Document or json
+ * text in between. The stored fields are the same as in Pkg.toString(OutputFormat.FULL_COMPRESSED).
+ */
+public class PkgCodec implements Codec<Pkg> {
+    /**
+     * The fields that are needed to decode a package, use them as projection
+     */
+    public static final List<String> DECODED_FIELDS = List.of(FIELD_DISTRIBUTION, FIELD_JAVA_VERSION, FIELD_DISTRIBUTION_VERSION, FIELD_LATEST_BUILD_AVAILABLE, FIELD_ARCHITECTURE,
+                                                              FIELD_OPERATING_SYSTEM, FIELD_LIB_C_TYPE, FIELD_PACKAGE_TYPE, FIELD_RELEASE_STATUS, FIELD_ARCHIVE_TYPE, FIELD_TERM_OF_SUPPORT,
+                                                              FIELD_JAVAFX_BUNDLED, FIELD_DIRECTLY_DOWNLOADABLE, FIELD_FILENAME, FIELD_DIRECT_DOWNLOAD_URI, FIELD_DOWNLOAD_SITE_URI);
+
+
+    @Override public Pkg decode(final BsonReader reader, final DecoderContext decoderContext) {
+        String  distribution         = null;
+        String  javaVersion          = null;
+        String  distributionVersion  = null;
+        Boolean latestBuildAvailable = Boolean.FALSE;
+        String  architecture         = null;
+        String  operatingSystem      = null;
+        String  libCType             = null;
+        String  packageType          = null;
+        String  releaseStatus        = null;
+        String  archiveType          = null;
+        String  termOfSupport        = null;
+        boolean javafxBundled        = false;
+        boolean directlyDownloadable = true;
+        String  filename             = null;
+        String  directDownloadUri    = null;
+        String  downloadSiteUri      = null;
+
+        reader.readStartDocument();
+        while (BsonType.END_OF_DOCUMENT != reader.readBsonType()) {
+            final String name = reader.readName();
+            if (BsonType.NULL == reader.getCurrentBsonType()) {
+                reader.readNull();
+                continue;
+            }
+            switch (name) {
+                case FIELD_DISTRIBUTION          : distribution         = reader.readString();  break;
+                case FIELD_JAVA_VERSION          : javaVersion          = reader.readString();  break;
+                case FIELD_DISTRIBUTION_VERSION  : distributionVersion  = reader.readString();  break;
+                case FIELD_LATEST_BUILD_AVAILABLE: latestBuildAvailable = reader.readBoolean(); break;
+                case FIELD_ARCHITECTURE          : architecture         = reader.readString();  break;
+                case FIELD_OPERATING_SYSTEM      : operatingSystem      = reader.readString();  break;
+                case FIELD_LIB_C_TYPE            : libCType             = reader.readString();  break;
+                case FIELD_PACKAGE_TYPE          : packageType          = reader.readString();  break;
+                case FIELD_RELEASE_STATUS        : releaseStatus        = reader.readString();  break;
+                case FIELD_ARCHIVE_TYPE          : archiveType          = reader.readString();  break;
+                case FIELD_TERM_OF_SUPPORT       : termOfSupport        = reader.readString();  break;
+                case FIELD_JAVAFX_BUNDLED        : javafxBundled        = reader.readBoolean(); break;
+                case FIELD_DIRECTLY_DOWNLOADABLE : directlyDownloadable = reader.readBoolean(); break;
+                case FIELD_FILENAME              : filename             = reader.readString();  break;
+                case FIELD_DIRECT_DOWNLOAD_URI   : directDownloadUri    = reader.readString();  break;
+                case FIELD_DOWNLOAD_SITE_URI     : downloadSiteUri      = reader.readString();  break;
+                // _id, id and major_version are derived from the other fields
+                default                          : reader.skipValue();                          break;
+            }
+        }
+        reader.readEndDocument();
+
+        if (null == distribution || null == javaVersion || null == distributionVersion || null == filename || null == directDownloadUri) {
+            throw new IllegalArgumentException("Package document without " + FIELD_DISTRIBUTION + ", " + FIELD_JAVA_VERSION + ", " + FIELD_DISTRIBUTION_VERSION + ", " + FIELD_FILENAME + " or " + FIELD_DIRECT_DOWNLOAD_URI);
+        }
+        return new Pkg(Distro.fromText(distribution), javaVersion, distributionVersion, latestBuildAvailable, Architecture.fromText(architecture), OperatingSystem.fromText(operatingSystem),
+                       LibCType.fromText(libCType), PackageType.fromText(packageType), ReleaseStatus.fromText(releaseStatus), ArchiveType.fromText(archiveType),
+                       TermOfSupport.fromText(termOfSupport), javafxBundled, directlyDownloadable, filename, directDownloadUri, null == downloadSiteUri ? "" : downloadSiteUri);
+    }
+
+    @Override public void encode(final BsonWriter writer, final Pkg pkg, final EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writer.writeString(FIELD_ID, pkg.getId());
+        writer.writeString(FIELD_ARCHIVE_TYPE, pkg.getArchiveType().getUiString());
+        writer.writeString(FIELD_DISTRIBUTION, pkg.getDistribution().getDistro().getApiString());
+        writer.writeInt32(FIELD_MAJOR_VERSION, pkg.getVersionNumber().getFeature().getAsInt());
+        writer.writeString(FIELD_JAVA_VERSION, String.valueOf(pkg.getSemver()));
+        writer.writeString(FIELD_DISTRIBUTION_VERSION, pkg.getDistributionVersion().toStringInclBuild(true));
+        writer.writeBoolean(FIELD_LATEST_BUILD_AVAILABLE, pkg.isLatestBuildAvailable());
+        writer.writeString(FIELD_RELEASE_STATUS, pkg.getReleaseStatus().getApiString());
+        writer.writeString(FIELD_TERM_OF_SUPPORT, pkg.getTermOfSupport().getApiString());
+        writer.writeString(FIELD_OPERATING_SYSTEM, pkg.getOperatingSystem().getApiString());
+        writer.writeString(FIELD_LIB_C_TYPE, pkg.getLibCType().getApiString());
+        writer.writeString(FIELD_ARCHITECTURE, pkg.getArchitecture().getApiString());
+        writer.writeString(FIELD_PACKAGE_TYPE, pkg.getPackageType().getApiString());
+        writer.writeBoolean(FIELD_JAVAFX_BUNDLED, pkg.isJavaFXBundled());
+        writer.writeBoolean(FIELD_DIRECTLY_DOWNLOADABLE, pkg.isDirectlyDownloadable());
+        writer.writeString(FIELD_FILENAME, String.valueOf(pkg.getFileName()));
+        writer.writeString(FIELD_DIRECT_DOWNLOAD_URI, String.valueOf(pkg.getDirectDownloadUri()));
+        writer.writeString(FIELD_DOWNLOAD_SITE_URI, String.valueOf(pkg.getDownloadSiteUri()));
+        writer.writeEndDocument();
+    }
+
+    @Override public Class<Pkg> getEncoderClass() { return Pkg.class; }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Keeps one circuit per upstream host. After FOOJAY_API_CIRCUIT_FAILURES consecutive failures
+ * (io errors, timeouts, 429 or 5xx responses) the circuit opens and requests to that host fail
+ * fast for FOOJAY_API_CIRCUIT_OPEN seconds. After that one trial request will be let through,
+ * if it succeeds the circuit closes again, otherwise it stays open for another period.
+ */
+public enum CircuitBreaker {
+    INSTANCE;
+
+    private static final Logger               LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private        final Map<String, Circuit> circuits;
+    private        final int                  failureThreshold;
+    private        final long                 openMillis;
+
+
+    CircuitBreaker() {
+        circuits         = new ConcurrentHashMap<>();
+        failureThreshold = Config.INSTANCE.getFoojayCircuitFailures();
+        openMillis       = Config.INSTANCE.getFoojayCircuitOpen() * 1000L;
+    }
+
+
+    /**
+     * Returns true if a request to the given host may be sent
+     * @param host The upstream host
+     * @return true if a request to the given host may be sent
+     */
+    public boolean allowRequest(final String host) {
+        if (null == host) { return true; }
+        return circuits.computeIfAbsent(host, h -> new Circuit()).allowRequest(System.currentTimeMillis());
+    }
+
+    public void recordSuccess(final String host) {
+        if (null == host) { return; }
+        final Circuit circuit = circuits.get(host);
+        if (null != circuit && circuit.recordSuccess()) { LOGGER.info("Circuit for {} closed", host); }
+    }
+
+    public void recordFailure(final String host) {
+        if (null == host) { return; }
+        if (circuits.computeIfAbsent(host, h -> new Circuit()).recordFailure(System.currentTimeMillis())) {
+            LOGGER.warn("Circuit for {} opened for {} s", host, openMillis / 1000);
+        }
+    }
+
+    /**
+     * Records the outcome of a response with the given status code
+     * @param host The upstream host
+     * @param statusCode The http status code of the response
+     */
+    public void recordResponse(final String host, final int statusCode) {
+        if (429 == statusCode || statusCode >= 500) {
+            recordFailure(host);
+        } else {
+            recordSuccess(host);
+        }
+    }
+
+    public boolean isOpen(final String host) {
+        final Circuit circuit = null == host ? null : circuits.get(host);
+        return null != circuit && circuit.isOpen();
+    }
+
+
+    private class Circuit {
+        private int     failures;
+        private long    openedAt;
+        private boolean open;
+        private boolean trialRunning;
+
+
+        synchronized boolean allowRequest(final long now) {
+            if (!open) { return true; }
+            if (now - openedAt < openMillis) { return false; }
+            // Let one trial request through per open period (also if the last trial never returned)
+            openedAt     = now;
+            trialRunning = true;
+            return true;
+        }
+
+        // Returns true if the circuit was closed by this call
+        synchronized boolean recordSuccess() {
+            final boolean wasOpen = open;
+            failures     = 0;
+            open         = false;
+            trialRunning = false;
+            return wasOpen;
+        }
+
+        // Returns true if the circuit was opened by this call
+        synchronized boolean recordFailure(final long now) {
+            failures++;
+            if (trialRunning || (!open && failures >= failureThreshold)) {
+                final boolean wasOpen = open;
+                open         = true;
+                openedAt     = now;
+                trialRunning = false;
+                return !wasOpen;
+            }
+            return false;
+        }
+
+        synchronized boolean isOpen() { return open; }
+    }
+}
@@ -22,6 +22,8 @@ package io.foojay.api.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+
 
 public enum Config {
     INSTANCE;
@@ -34,6 +36,26 @@ public enum Config {
     public static final String FOOJAY_API_MONGODB_DATABASE = "FOOJAY_API_MONGODB_DATABASE";
     public static final String FOOJAY_API_MONGODB_USER     = "FOOJAY_API_MONGODB_USER";
     public static final String FOOJAY_API_MONGODB_PASSWORD = "FOOJAY_API_MONGODB_PASSWORD";
+    public static final String FOOJAY_API_RESPONSE_CACHE   = "FOOJAY_API_RESPONSE_CACHE";   // folder for cached upstream responses
+    public static final String FOOJAY_API_CONNECT_TIMEOUT  = "FOOJAY_API_CONNECT_TIMEOUT";  // seconds
+    public static final String FOOJAY_API_REQUEST_TIMEOUT  = "FOOJAY_API_REQUEST_TIMEOUT";  // seconds
+    public static final String FOOJAY_API_HTTP_THREADS     = "FOOJAY_API_HTTP_THREADS";     // threads shared by all upstream http clients
+    public static final String FOOJAY_API_UPSTREAM_MODE    = "FOOJAY_API_UPSTREAM_MODE";    // live, record or replay
+    public static final String FOOJAY_API_FIXTURES         = "FOOJAY_API_FIXTURES";         // folder for recorded upstream responses
+    public static final String FOOJAY_API_REPLAY_LATENCY   = "FOOJAY_API_REPLAY_LATENCY";   // milliseconds per replayed response
+    public static final String FOOJAY_API_REPLAY_BANDWIDTH = "FOOJAY_API_REPLAY_BANDWIDTH"; // bytes per second of replayed responses
+    public static final String FOOJAY_API_REFRESH_DEADLINE = "FOOJAY_API_REFRESH_DEADLINE"; // seconds per package cache refresh cycle
+    public static final String FOOJAY_API_CIRCUIT_FAILURES = "FOOJAY_API_CIRCUIT_FAILURES"; // consecutive failures that open the circuit of a host
+    public static final String FOOJAY_API_CIRCUIT_OPEN     = "FOOJAY_API_CIRCUIT_OPEN";     // seconds the circuit of a host stays open
+    public static final String FOOJAY_API_VIRTUAL_THREADS  = "FOOJAY_API_VIRTUAL_THREADS";  // false disables virtual threads on JDKs that support them
+    public static final String FOOJAY_API_FAN_OUT          = "FOOJAY_API_FAN_OUT";          // concurrent per major version requests per distro
+    public static final String FOOJAY_API_MONGODB_BATCH    = "FOOJAY_API_MONGODB_BATCH";    // max number of writes per mongodb bulk write
+    public static final String FOOJAY_API_DOWNLOAD_FLUSH   = "FOOJAY_API_DOWNLOAD_FLUSH";   // seconds between writes of download counters to mongodb
+    public static final String FOOJAY_API_PARALLEL_DECODE  = "FOOJAY_API_PARALLEL_DECODE";  // true decodes the packages from mongodb in parallel batches
+    public static final String FOOJAY_API_CLUSTER          = "FOOJAY_API_CLUSTER";          // true elects one node to refresh the packages, the others follow mongodb
+    public static final String FOOJAY_API_LEASE            = "FOOJAY_API_LEASE";            // seconds the leader lease is valid without renewal
+    public static final String FOOJAY_API_SNAPSHOT         = "FOOJAY_API_SNAPSHOT";         // file for the binary snapshot of the package cache
+    public static final String FOOJAY_API_SNAPSHOT_WRITE   = "FOOJAY_API_SNAPSHOT_WRITE";   // seconds between writes of the package cache snapshot
 
 
     public String getFoojayMongoDbUrl() {
@@ -101,5 +123,121 @@ public enum Config {
             return baseUrl;
         }
     }
-}
 
+    public String getFoojayResponseCacheFolder() {
+        final String responseCacheFolder = System.getenv(FOOJAY_API_RESPONSE_CACHE);
+        if (null == responseCacheFolder) {
+            LOGGER.warn("No environment variable {} found.", FOOJAY_API_RESPONSE_CACHE);
+            return System.getProperty("java.io.tmpdir") + File.separator + "discoapi" + File.separator + "responses";
+        } else {
+            return responseCacheFolder;
+        }
+    }
+
+    public Integer getFoojayConnectTimeout() { return getPositiveInteger(FOOJAY_API_CONNECT_TIMEOUT, 10); }
+
+    public Integer getFoojayRequestTimeout() { return getPositiveInteger(FOOJAY_API_REQUEST_TIMEOUT, 60); }
+
+    public Integer getFoojayHttpThreads() { return getPositiveInteger(FOOJAY_API_HTTP_THREADS, 8); }
+
+    public UpstreamMode getFoojayUpstreamMode() {
+        final String upstreamMode = System.getenv(FOOJAY_API_UPSTREAM_MODE);
+        if (null == upstreamMode) {
+            return UpstreamMode.LIVE;
+        } else {
+            final UpstreamMode mode = UpstreamMode.fromText(upstreamMode);
+            if (UpstreamMode.NOT_FOUND == mode) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_UPSTREAM_MODE);
+                return UpstreamMode.LIVE;
+            }
+            return mode;
+        }
+    }
+
+    public String getFoojayFixturesFolder() {
+        final String fixturesFolder = System.getenv(FOOJAY_API_FIXTURES);
+        if (null == fixturesFolder) {
+            LOGGER.warn("No environment variable {} found.", FOOJAY_API_FIXTURES);
+            return System.getProperty("java.io.tmpdir") + File.separator + "discoapi" + File.separator + "fixtures";
+        } else {
+            return fixturesFolder;
+        }
+    }
+
+    public Integer getFoojayReplayLatency() { return getPositiveInteger(FOOJAY_API_REPLAY_LATENCY, 0); }
+
+    public Integer getFoojayReplayBandwidth() { return getPositiveInteger(FOOJAY_API_REPLAY_BANDWIDTH, 0); }
+
+    public Integer getFoojayRefreshDeadline() { return getPositiveInteger(FOOJAY_API_REFRESH_DEADLINE, 900); }
+
+    public Integer getFoojayCircuitFailures() { return getPositiveInteger(FOOJAY_API_CIRCUIT_FAILURES, 5); }
+
+    public Integer getFoojayCircuitOpen() { return getPositiveInteger(FOOJAY_API_CIRCUIT_OPEN, 300); }
+
+    public Integer getFoojayFanOut() { return getPositiveInteger(FOOJAY_API_FAN_OUT, 4); }
+
+    public Integer getFoojayMongoDbBatchSize() { return getPositiveInteger(FOOJAY_API_MONGODB_BATCH, 1000); }
+
+    public Integer getFoojayDownloadFlushInterval() { return getPositiveInteger(FOOJAY_API_DOWNLOAD_FLUSH, 5); }
+
+    public boolean getFoojayVirtualThreads() {
+        final String virtualThreads = System.getenv(FOOJAY_API_VIRTUAL_THREADS);
+        if (null == virtualThreads) {
+            return true;
+        } else {
+            return Boolean.parseBoolean(virtualThreads);
+        }
+    }
+
+    public boolean getFoojayParallelDecode() {
+        final String parallelDecode = System.getenv(FOOJAY_API_PARALLEL_DECODE);
+        if (null == parallelDecode) {
+            return false;
+        } else {
+            return Boolean.parseBoolean(parallelDecode);
+        }
+    }
+
+    public boolean getFoojayCluster() {
+        final String cluster = System.getenv(FOOJAY_API_CLUSTER);
+        if (null == cluster) {
+            return false;
+        } else {
+            return Boolean.parseBoolean(cluster);
+        }
+    }
+
+    public Integer getFoojayLease() { return getPositiveInteger(FOOJAY_API_LEASE, 60); }
+
+    public String getFoojaySnapshotFile() {
+        final String snapshotFile = System.getenv(FOOJAY_API_SNAPSHOT);
+        if (null == snapshotFile) {
+            LOGGER.warn("No environment variable {} found.", FOOJAY_API_SNAPSHOT);
+            return System.getProperty("java.io.tmpdir") + File.separator + "discoapi" + File.separator + "pkgs.snapshot";
+        } else {
+            return snapshotFile;
+        }
+    }
+
+    public Integer getFoojaySnapshotWriteInterval() { return getPositiveInteger(FOOJAY_API_SNAPSHOT_WRITE, 300); }
+
+    private Integer getPositiveInteger(final String variable, final Integer defaultValue) {
+        final String valueString = System.getenv(variable);
+        if (null == valueString) {
+            LOGGER.warn("No environment variable {} found.", variable);
+            return defaultValue;
+        } else {
+            try {
+                Integer value = Integer.valueOf(valueString);
+                if (value <= 0) {
+                    LOGGER.warn("Environment variable {} contains wrong value.", variable);
+                    return defaultValue;
+                }
+                return value;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", variable);
+                return defaultValue;
+            }
+        }
+    }
+}
@@ -43,6 +43,8 @@ import java.util.regex.Pattern;
 public class Constants {
     public static final String        PACKAGES_COLLECTION      = "packages";
     public static final String        DOWNLOADS_COLLECTION     = "downloads";
+    public static final String        STATISTICS_COLLECTION    = "download_statistics";
+    public static final String        LEASES_COLLECTION        = "leases";
 
     public static final String        CACHE_DATA_FILE          = "disco.json";
     public static final String        CACHE_DELTA_FILE         = "delta.json";
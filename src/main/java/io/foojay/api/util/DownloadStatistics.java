@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.util;
+
+import io.foojay.api.pkg.Architecture;
+import io.foojay.api.pkg.Distro;
+import io.foojay.api.pkg.OperatingSystem;
+import io.foojay.api.pkg.Pkg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+
+/**
+ * Counts downloads in time buckets. New downloads are counted in minute buckets, which are
+ * rolled up into hour buckets and later into day buckets, so the resolution gets coarser with
+ * the age of the downloads. Every download lives in exactly one bucket, the buckets of the
+ * different resolutions never overlap.
+ * Next to the downloads per package id each bucket contains the downloads aggregated per
+ * distro, major version, operating system and architecture, so queries for these dimensions
+ * never have to look at single packages.
+ * Minute and hour buckets are persisted as hour increments (see flush()), day buckets only
+ * exist in memory and are restored from the persisted hour increments.
+ */
+public class DownloadStatistics {
+    private static final Logger   LOGGER             = LoggerFactory.getLogger(DownloadStatistics.class);
+    public  static final Duration MINUTE_RETENTION   = Duration.ofHours(2);
+    public  static final Duration HOUR_RETENTION     = Duration.ofDays(2);
+    public  static final Duration DAY_RETENTION      = Duration.ofDays(400);
+
+    private final Map<Resolution, ConcurrentSkipListMap<Long, Bucket>> buckets = new HashMap<>();
+    private final long                                                  minuteRetention;
+    private final long                                                  hourRetention;
+    private final long                                                  dayRetention;
+
+
+    public DownloadStatistics() {
+        this(MINUTE_RETENTION, HOUR_RETENTION, DAY_RETENTION);
+    }
+    public DownloadStatistics(final Duration minuteRetention, final Duration hourRetention, final Duration dayRetention) {
+        this.minuteRetention = minuteRetention.getSeconds();
+        this.hourRetention   = hourRetention.getSeconds();
+        this.dayRetention    = dayRetention.getSeconds();
+        for (Resolution resolution : Resolution.values()) { buckets.put(resolution, new ConcurrentSkipListMap<>()); }
+    }
+
+
+    /**
+     * Counts one download of the given package at the given time. Never blocks.
+     * @param pkg The package that was downloaded
+     * @param timestamp The time of the download
+     */
+    public void record(final Pkg pkg, final Instant timestamp) {
+        final long   start  = Resolution.MINUTE.floor(timestamp.getEpochSecond());
+        final Bucket bucket = buckets.get(Resolution.MINUTE).computeIfAbsent(start, Bucket::new);
+        bucket.pkgs.computeIfAbsent(pkg.getId(), id -> new Cell()).count.increment();
+        bucket.aggregates.computeIfAbsent(Key.of(pkg), key -> new Cell()).count.increment();
+    }
+
+    /**
+     * Returns the number of downloads of the given package id in all buckets that start
+     * within the given range
+     * @param pkgId The package id
+     * @param from Start of the range (inclusive)
+     * @param to End of the range (exclusive)
+     * @return the number of downloads of the given package id in the given range
+     */
+    public long getDownloadsForId(final String pkgId, final Instant from, final Instant to) {
+        long downloads = 0;
+        for (Bucket bucket : getBuckets(from, to)) {
+            final Cell cell = bucket.pkgs.get(pkgId);
+            if (null != cell) { downloads += cell.count.sum(); }
+        }
+        return downloads;
+    }
+
+    /**
+     * Returns the number of downloads in all buckets that start within the given range and
+     * whose distro, major version, operating system and architecture match the given filter
+     * @param from Start of the range (inclusive)
+     * @param to End of the range (exclusive)
+     * @param filter The filter for the aggregated keys e.g. key -> Distro.ZULU == key.getDistro()
+     * @return the number of matching downloads in the given range
+     */
+    public long getDownloads(final Instant from, final Instant to, final Predicate<Key> filter) {
+        long downloads = 0;
+        for (Bucket bucket : getBuckets(from, to)) {
+            for (Entry<Key, Cell> entry : bucket.aggregates.entrySet()) {
+                if (filter.test(entry.getKey())) { downloads += entry.getValue().count.sum(); }
+            }
+        }
+        return downloads;
+    }
+
+    /**
+     * Returns the number of downloads in all buckets that start within the given range grouped
+     * by the given classifier e.g. Key::getDistro or Key::getMajorVersion
+     * @param from Start of the range (inclusive)
+     * @param to End of the range (exclusive)
+     * @param classifier Maps the aggregated keys to the group they should be counted in
+     * @return the number of downloads per group in the given range
+     */
+    public <K> Map<K, Long> getDownloadsPer(final Instant from, final Instant to, final Function<Key, K> classifier) {
+        final Map<K, Long> downloads = new HashMap<>();
+        for (Bucket bucket : getBuckets(from, to)) {
+            bucket.aggregates.forEach((key, cell) -> downloads.merge(classifier.apply(key), cell.count.sum(), Long::sum));
+        }
+        return downloads;
+    }
+
+    /**
+     * Passes the downloads of all minute and hour buckets that have not been persisted yet,
+     * grouped by hour, to the given writer. The downloads of the hours returned by the writer
+     * are marked as persisted, the downloads of all other hours will be passed again with the
+     * next flush.
+     * @param writer Persists the given hour increments and returns the start of the persisted hours
+     * @return true if there was nothing to persist or the writer persisted all hours
+     */
+    public synchronized boolean flush(final Function<Collection<HourIncrement>, Set<Long>> writer) {
+        final Map<Long, HourIncrement>  increments = new HashMap<>();
+        final Map<Long, List<Runnable>> commits    = new HashMap<>();
+        for (Resolution resolution : List.of(Resolution.MINUTE, Resolution.HOUR)) {
+            for (Bucket bucket : buckets.get(resolution).values()) {
+                final long           hour        = Resolution.HOUR.floor(bucket.start);
+                final HourIncrement  increment   = increments.computeIfAbsent(hour, HourIncrement::new);
+                final List<Runnable> hourCommits = commits.computeIfAbsent(hour, start -> new ArrayList<>());
+                collectPending(bucket.pkgs, increment.pkgs, Function.identity(), hourCommits);
+                collectPending(bucket.aggregates, increment.aggregates, Key::toString, hourCommits);
+            }
+        }
+        increments.values().removeIf(increment -> increment.pkgs.isEmpty() && increment.aggregates.isEmpty());
+        if (increments.isEmpty()) { return true; }
+        final Set<Long> persisted = writer.apply(increments.values());
+        persisted.forEach(hour -> commits.getOrDefault(hour, List.of()).forEach(Runnable::run));
+        if (!persisted.containsAll(increments.keySet())) {
+            LOGGER.debug("Download statistics of {} hours will be persisted with the next flush", increments.size() - persisted.size());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds the given persisted hour increments as hour buckets, e.g. on startup
+     * @param increments The persisted hour increments
+     */
+    public synchronized void load(final Collection<HourIncrement> increments) {
+        for (HourIncrement increment : increments) {
+            final Bucket bucket = buckets.get(Resolution.HOUR).computeIfAbsent(Resolution.HOUR.floor(increment.start), Bucket::new);
+            increment.pkgs.forEach((pkgId, downloads) -> bucket.pkgs.computeIfAbsent(pkgId, id -> new Cell()).addPersisted(downloads));
+            increment.aggregates.forEach((key, downloads) -> {
+                final Key aggregate = Key.fromString(key);
+                if (null != aggregate) { bucket.aggregates.computeIfAbsent(aggregate, k -> new Cell()).addPersisted(downloads); }
+            });
+        }
+    }
+
+    /**
+     * Rolls minute buckets that are older than the minute retention up into hour buckets and
+     * hour buckets that are older than the hour retention and have been persisted up into day
+     * buckets. Day buckets that are older than the day retention will be dropped.
+     * @param now The current time
+     */
+    public synchronized void rollup(final Instant now) {
+        final long nowSeconds = now.getEpochSecond();
+        // Only buckets far in the past are rolled up, recording never touches them anymore
+        roll(Resolution.MINUTE, Resolution.MINUTE.floor(nowSeconds) - minuteRetention, Resolution.HOUR, true);
+        roll(Resolution.HOUR, Resolution.HOUR.floor(nowSeconds) - hourRetention, Resolution.DAY, false);
+        buckets.get(Resolution.DAY).headMap(Resolution.DAY.floor(nowSeconds) - dayRetention).clear();
+    }
+
+    /**
+     * Returns the number of buckets of the given resolution
+     * @param resolution The resolution of the buckets
+     * @return the number of buckets of the given resolution
+     */
+    public int getNoOfBuckets(final Resolution resolution) { return buckets.get(resolution).size(); }
+
+    private void roll(final Resolution source, final long before, final Resolution target, final boolean keepPending) {
+        final Iterator<Bucket> iterator = buckets.get(source).headMap(before).values().iterator();
+        while (iterator.hasNext()) {
+            final Bucket bucket = iterator.next();
+            // Day buckets are not persisted, hour buckets have to wait until all their downloads have been persisted
+            if (!keepPending && bucket.hasPending()) { continue; }
+            iterator.remove();
+            final Bucket rolledUp = buckets.get(target).computeIfAbsent(target.floor(bucket.start), Bucket::new);
+            bucket.pkgs.forEach((pkgId, cell) -> rolledUp.pkgs.computeIfAbsent(pkgId, id -> new Cell()).add(cell));
+            bucket.aggregates.forEach((key, cell) -> rolledUp.aggregates.computeIfAbsent(key, k -> new Cell()).add(cell));
+        }
+    }
+
+    private Collection<Bucket> getBuckets(final Instant from, final Instant to) {
+        final long         fromSeconds = from.getEpochSecond();
+        final long         toSeconds   = to.getEpochSecond();
+        final List<Bucket> result      = new ArrayList<>();
+        if (fromSeconds >= toSeconds) { return result; }
+        buckets.values().forEach(resolutionBuckets -> result.addAll(resolutionBuckets.subMap(fromSeconds, toSeconds).values()));
+        return result;
+    }
+
+    private static <K> void collectPending(final Map<K, Cell> cells, final Map<String, Long> pending, final Function<K, String> name, final List<Runnable> commits) {
+        cells.forEach((key, cell) -> {
+            final long count     = cell.count.sum();
+            final long persisted = cell.persisted;
+            if (count > persisted) {
+                pending.merge(name.apply(key), count - persisted, Long::sum);
+                commits.add(() -> cell.persisted = Math.max(cell.persisted, count));
+            }
+        });
+    }
+
+
+    public enum Resolution {
+        MINUTE(60),
+        HOUR(3_600),
+        DAY(86_400);
+
+        private final long seconds;
+
+
+        Resolution(final long seconds) {
+            this.seconds = seconds;
+        }
+
+
+        public long getSeconds() { return seconds; }
+
+        public long floor(final long epochSecond) { return Math.floorDiv(epochSecond, seconds) * seconds; }
+    }
+
+
+    /**
+     * The dimensions the downloads are aggregated by
+     */
+    public static final class Key {
+        private static final String          SEPARATOR = ":";
+        private        final Distro          distro;
+        private        final int             majorVersion;
+        private        final OperatingSystem operatingSystem;
+        private        final Architecture    architecture;
+
+
+        public Key(final Distro distro, final int majorVersion, final OperatingSystem operatingSystem, final Architecture architecture) {
+            this.distro          = null == distro          ? Distro.NOT_FOUND          : distro;
+            this.majorVersion    = majorVersion;
+            this.operatingSystem = null == operatingSystem ? OperatingSystem.NOT_FOUND : operatingSystem;
+            this.architecture    = null == architecture    ? Architecture.NOT_FOUND    : architecture;
+        }
+
+
+        public static Key of(final Pkg pkg) {
+            final Distro distro       = null == pkg.getDistribution() ? null : pkg.getDistribution().getDistro();
+            final int    majorVersion = null == pkg.getVersionNumber() ? 0 : pkg.getFeatureVersion().orElse(0);
+            return new Key(distro, majorVersion, pkg.getOperatingSystem(), pkg.getArchitecture());
+        }
+
+        public static Key fromString(final String text) {
+            final String[] parts = text.split(SEPARATOR);
+            if (parts.length != 4) { return null; }
+            try {
+                return new Key(Distro.valueOf(parts[0]), Integer.parseInt(parts[1]), OperatingSystem.valueOf(parts[2]), Architecture.valueOf(parts[3]));
+            } catch (IllegalArgumentException e) {
+                LOGGER.debug("Ignoring unknown download statistics key {}", text);
+                return null;
+            }
+        }
+
+        public Distro getDistro() { return distro; }
+
+        public int getMajorVersion() { return majorVersion; }
+
+        public OperatingSystem getOperatingSystem() { return operatingSystem; }
+
+        public Architecture getArchitecture() { return architecture; }
+
+        @Override public boolean equals(final Object o) {
+            if (this == o) { return true; }
+            if (o == null || getClass() != o.getClass()) { return false; }
+            final Key key = (Key) o;
+            return majorVersion == key.majorVersion && distro == key.distro && operatingSystem == key.operatingSystem && architecture == key.architecture;
+        }
+
+        @Override public int hashCode() { return Objects.hash(distro, majorVersion, operatingSystem, architecture); }
+
+        // Enum names only contain [A-Z0-9_] which makes the key a valid mongodb field name
+        @Override public String toString() { return String.join(SEPARATOR, distro.name(), Integer.toString(majorVersion), operatingSystem.name(), architecture.name()); }
+    }
+
+
+    /**
+     * The downloads of one hour per package id and per aggregated key (see Key.toString())
+     */
+    public static final class HourIncrement {
+        private final long              start;
+        private final Map<String, Long> pkgs       = new HashMap<>();
+        private final Map<String, Long> aggregates = new HashMap<>();
+
+
+        public HourIncrement(final long start) {
+            this.start = start;
+        }
+
+
+        public long getStart() { return start; }
+
+        public Map<String, Long> getPkgs() { return pkgs; }
+
+        public Map<String, Long> getAggregates() { return aggregates; }
+    }
+
+
+    private static final class Bucket {
+        private final long                            start;
+        private final ConcurrentHashMap<String, Cell> pkgs       = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Key, Cell>    aggregates = new ConcurrentHashMap<>();
+
+
+        private Bucket(final long start) {
+            this.start = start;
+        }
+
+
+        private boolean hasPending() {
+            return pkgs.values().stream().anyMatch(Cell::hasPending) || aggregates.values().stream().anyMatch(Cell::hasPending);
+        }
+    }
+
+
+    private static final class Cell {
+        private final LongAdder count     = new LongAdder();
+        // Downloads that have been persisted, only accessed while holding the lock of the statistics
+        private       long      persisted = 0;
+
+
+        private void add(final Cell cell) {
+            count.add(cell.count.sum());
+            persisted += cell.persisted;
+        }
+
+        private void addPersisted(final long downloads) {
+            count.add(downloads);
+            persisted += downloads;
+        }
+
+        private boolean hasPending() { return count.sum() > persisted; }
+    }
+}
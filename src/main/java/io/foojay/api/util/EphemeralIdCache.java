@@ -53,6 +53,10 @@ public class EphemeralIdCache<T extends String, U extends String> implements Cac
         ephemeralIdCache.remove(bundleInfoId);
     }
 
+    public void removePkgIds(final Set<U> pkgIds) {
+        ephemeralIdCache.values().removeIf(pkgIds::contains);
+    }
+
     @Override public void clear() {
         LOGGER.debug("EphemeralID cache cleared");
         ephemeralIdCache.clear();
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Creates the executors for blocking work like upstream fetches and mongodb batches. If the
+ * running JDK supports virtual threads (and FOOJAY_API_VIRTUAL_THREADS is not false) every task
+ * will run on its own virtual thread, otherwise a cached pool of daemon platform threads is used.
+ * The factory method is looked up by reflection because the project is still compiled for Java 11.
+ */
+public enum ExecutorManager {
+    INSTANCE;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorManager.class);
+
+    private        final Method virtualThreadExecutorFactory;
+
+
+    ExecutorManager() {
+        Method factory = null;
+        if (Config.INSTANCE.getFoojayVirtualThreads()) {
+            try {
+                factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            } catch (NoSuchMethodException e) {
+                factory = null;
+            }
+        }
+        virtualThreadExecutorFactory = factory;
+    }
+
+
+    public boolean isUsingVirtualThreads() { return null != virtualThreadExecutorFactory; }
+
+    /**
+     * Returns a new executor that starts a new thread for each task. The caller is responsible
+     * to shut down the executor.
+     * @param name The prefix of the thread names (only used for platform threads)
+     * @return a new executor that starts a new thread for each task
+     */
+    public ExecutorService newExecutor(final String name) {
+        if (null != virtualThreadExecutorFactory) {
+            try {
+                return (ExecutorService) virtualThreadExecutorFactory.invoke(null);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                LOGGER.error("Error creating virtual thread executor, using platform threads. {}", e.getMessage());
+            }
+        }
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs each of the given tasks on its own thread and returns after all of them finished.
+     * No task will outlive this call, if the calling thread will be interrupted all remaining
+     * tasks will be cancelled. Failed tasks will be logged and skipped in the result.
+     * @param name The name of the tasks used for logging and thread names
+     * @param tasks The tasks that should be executed
+     * @param <T> The result type of the tasks
+     * @return the results of all tasks that finished successfully in the order of the given tasks
+     */
+    public <T> List<T> invokeAll(final String name, final Collection<? extends Callable<T>> tasks) {
+        final List<T> results = new ArrayList<>(tasks.size());
+        if (tasks.isEmpty()) { return results; }
+        final ExecutorService executor = newExecutor(name);
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    LOGGER.error("Error executing {} task. {}", name, e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.error("Executing {} tasks interrupted", name);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Same as invokeAll(name, tasks) but at most as many tasks as the given semaphore has permits
+     * will run at the same time. The semaphore can be shared to limit concurrent work across calls.
+     * @param name The name of the tasks used for logging and thread names
+     * @param tasks The tasks that should be executed
+     * @param permits The semaphore that limits the number of concurrently running tasks
+     * @param <T> The result type of the tasks
+     * @return the results of all tasks that finished successfully in the order of the given tasks
+     */
+    public <T> List<T> invokeAll(final String name, final Collection<? extends Callable<T>> tasks, final Semaphore permits) {
+        final List<Callable<T>> limitedTasks = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            limitedTasks.add(() -> {
+                permits.acquire();
+                try {
+                    return task.call();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+        return invokeAll(name, limitedTasks);
+    }
+}
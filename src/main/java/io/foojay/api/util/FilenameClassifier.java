@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.util;
+
+import io.foojay.api.pkg.Architecture;
+import io.foojay.api.pkg.ArchiveType;
+import io.foojay.api.pkg.OperatingSystem;
+import io.foojay.api.pkg.PackageType;
+import io.foojay.api.pkg.ReleaseStatus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+
+/**
+ * Classifies filenames and download links by the keys of the operating system, architecture,
+ * archive type, package type and release status lookup tables in Constants. All keys are compiled
+ * into one Aho-Corasick automaton, so a single pass over the text finds the matching key of every
+ * lookup table. For each lookup table the key that comes first in the table wins, which is the same
+ * result as iterating over the table and taking the first key that is contained in the text.
+ * The lookup tables must not be modified after this class has been initialized.
+ */
+public enum FilenameClassifier {
+    INSTANCE;
+
+    private static final int OPERATING_SYSTEM = 0;
+    private static final int ARCHITECTURE     = 1;
+    private static final int ARCHIVE_TYPE     = 2;
+    private static final int PACKAGE_TYPE     = 3;
+    private static final int RELEASE_STATUS   = 4;
+    private static final int NO_OF_LOOKUPS    = 5;
+    private static final int NO_MATCH         = Integer.MAX_VALUE;
+    private static final int ALPHABET_SIZE    = 128;
+
+    private final Object[][]                  values;
+    private final int[][]                     transitions;
+    private final int[][]                     outputs;
+    private final ThreadLocal<Classification> lastClassification;
+
+
+    FilenameClassifier() {
+        final List<Map<String, ?>> lookups = List.of(Constants.OPERATING_SYSTEM_LOOKUP, Constants.ARCHITECTURE_LOOKUP, Constants.ARCHIVE_TYPE_LOOKUP,
+                                                     Constants.PACKAGE_TYPE_LOOKUP, Constants.RELEASE_STATUS_LOOKUP);
+        final List<int[]> gotoTable   = new ArrayList<>();
+        final List<int[]> outputTable = new ArrayList<>();
+        gotoTable.add(newNode());
+        outputTable.add(newOutput());
+
+        // Build the trie of all keys, each key remembers its lookup table and its position in there
+        values = new Object[NO_OF_LOOKUPS][];
+        for (int lookup = 0 ; lookup < NO_OF_LOOKUPS ; lookup++) {
+            values[lookup] = lookups.get(lookup).values().toArray();
+            int priority = 0;
+            for (String key : lookups.get(lookup).keySet()) {
+                int state = 0;
+                for (int i = 0 ; i < key.length() ; i++) {
+                    final char c = key.charAt(i);
+                    if (c >= ALPHABET_SIZE) { throw new IllegalArgumentException("Lookup key " + key + " contains non ascii characters"); }
+                    if (gotoTable.get(state)[c] < 0) {
+                        gotoTable.add(newNode());
+                        outputTable.add(newOutput());
+                        gotoTable.get(state)[c] = gotoTable.size() - 1;
+                    }
+                    state = gotoTable.get(state)[c];
+                }
+                outputTable.get(state)[lookup] = Math.min(outputTable.get(state)[lookup], priority);
+                priority++;
+            }
+        }
+
+        // Complete the transitions with the failure links in breadth first order, so every state
+        // has a transition for each character and inherits the outputs of its longest proper suffix
+        final int[]          failure = new int[gotoTable.size()];
+        final Deque<Integer> queue   = new ArrayDeque<>();
+        for (int c = 0 ; c < ALPHABET_SIZE ; c++) {
+            final int next = gotoTable.get(0)[c];
+            if (next < 0) {
+                gotoTable.get(0)[c] = 0;
+            } else {
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            final int   state         = queue.poll();
+            final int[] output        = outputTable.get(state);
+            final int[] failureOutput = outputTable.get(failure[state]);
+            for (int lookup = 0 ; lookup < NO_OF_LOOKUPS ; lookup++) { output[lookup] = Math.min(output[lookup], failureOutput[lookup]); }
+            for (int c = 0 ; c < ALPHABET_SIZE ; c++) {
+                final int next = gotoTable.get(state)[c];
+                if (next < 0) {
+                    gotoTable.get(state)[c] = gotoTable.get(failure[state])[c];
+                } else {
+                    failure[next] = gotoTable.get(failure[state])[c];
+                    queue.add(next);
+                }
+            }
+        }
+
+        transitions        = gotoTable.toArray(new int[0][]);
+        outputs            = outputTable.toArray(new int[0][]);
+        lastClassification = new ThreadLocal<>();
+    }
+
+
+    /**
+     * Returns the classification of the given text (e.g. a filename or download link).
+     * The last classification of each thread is kept, so classifying the same text
+     * again for the next attribute won't scan the text again.
+     * @param text The text to classify
+     * @return the classification of the given text
+     */
+    public Classification classify(final String text) {
+        final Classification last = lastClassification.get();
+        if (null != last && last.text.equals(text)) { return last; }
+
+        final int[] best  = newOutput();
+        int         state = 0;
+        for (int i = 0, length = text.length() ; i < length ; i++) {
+            final char c = text.charAt(i);
+            state = c < ALPHABET_SIZE ? transitions[state][c] : 0;
+            final int[] output = outputs[state];
+            for (int lookup = 0 ; lookup < NO_OF_LOOKUPS ; lookup++) {
+                if (output[lookup] < best[lookup]) { best[lookup] = output[lookup]; }
+            }
+        }
+        final Classification classification = new Classification(text, best, outputs[state][ARCHIVE_TYPE]);
+        lastClassification.set(classification);
+        return classification;
+    }
+
+    private static int[] newNode() {
+        final int[] node = new int[ALPHABET_SIZE];
+        Arrays.fill(node, -1);
+        return node;
+    }
+
+    private static int[] newOutput() {
+        final int[] output = new int[NO_OF_LOOKUPS];
+        Arrays.fill(output, NO_MATCH);
+        return output;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Optional<T> getValue(final int lookup, final int priority) {
+        return NO_MATCH == priority ? Optional.empty() : Optional.of((T) values[lookup][priority]);
+    }
+
+
+    public final class Classification {
+        private final String text;
+        private final int[]  priorities;
+        private final int    archiveTypeSuffixPriority;
+
+
+        private Classification(final String text, final int[] priorities, final int archiveTypeSuffixPriority) {
+            this.text                      = text;
+            this.priorities                = priorities;
+            this.archiveTypeSuffixPriority = archiveTypeSuffixPriority;
+        }
+
+
+        public String getText() { return text; }
+
+        public Optional<OperatingSystem> getOperatingSystem() { return getValue(OPERATING_SYSTEM, priorities[OPERATING_SYSTEM]); }
+
+        public Optional<Architecture> getArchitecture() { return getValue(ARCHITECTURE, priorities[ARCHITECTURE]); }
+
+        /**
+         * Returns the archive type of the first key in the archive type lookup that is contained in the text
+         * @return the archive type of the first key in the archive type lookup that is contained in the text
+         */
+        public Optional<ArchiveType> getArchiveType() { return getValue(ARCHIVE_TYPE, priorities[ARCHIVE_TYPE]); }
+
+        /**
+         * Returns the archive type of the first key in the archive type lookup that the text ends with
+         * @return the archive type of the first key in the archive type lookup that the text ends with
+         */
+        public Optional<ArchiveType> getArchiveTypeBySuffix() { return getValue(ARCHIVE_TYPE, archiveTypeSuffixPriority); }
+
+        public Optional<PackageType> getPackageType() { return getValue(PACKAGE_TYPE, priorities[PACKAGE_TYPE]); }
+
+        public Optional<ReleaseStatus> getReleaseStatus() { return getValue(RELEASE_STATUS, priorities[RELEASE_STATUS]); }
+    }
+}
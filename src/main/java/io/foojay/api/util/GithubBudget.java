@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import io.foojay.api.pkg.Distro;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.HttpHeaders;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Keeps track of the GitHub api rate limit (X-RateLimit-Limit/Remaining/Reset) across all
+ * distributions that fetch their packages from api.github.com. Before each update cycle the
+ * due distributions are prioritized by staleness and popularity and only those fetches will
+ * be started whose estimated number of requests fits into the remaining budget. The number of
+ * requests a fetch needs is learned per distribution from previous fetches.
+ */
+public enum GithubBudget {
+    INSTANCE;
+
+    private static final Logger                    LOGGER                   = LoggerFactory.getLogger(GithubBudget.class);
+    public  static final Set<Distro>               GITHUB_DISTROS           = EnumSet.of(Distro.CORRETTO, Distro.DRAGONWELL, Distro.GRAALVM_CE8, Distro.GRAALVM_CE11,
+                                                                                         Distro.MANDREL, Distro.OJDK_BUILD, Distro.ORACLE_OPEN_JDK, Distro.SAP_MACHINE,
+                                                                                         Distro.TRAVA);
+    public  static final String                    HEADER_RATELIMIT_LIMIT   = "X-RateLimit-Limit";
+    public  static final String                    HEADER_RATELIMIT_REMAIN  = "X-RateLimit-Remaining";
+    public  static final String                    HEADER_RATELIMIT_RESET   = "X-RateLimit-Reset";
+    private static final int                       DEFAULT_LIMIT            = 60;  // unauthenticated requests per hour
+    private static final double                    DEFAULT_COST             = 10;
+    private static final double                    COST_SMOOTHING           = 0.5;
+    private static final double                    LOW_BUDGET_RATIO         = 0.2;
+    private static final double                    LOW_BUDGET_MIN_PRIORITY  = 2.0;
+    private static final double                    POPULARITY_WEIGHT        = 4.0;
+
+    private        final Map<Distro, Double>       estimatedCosts           = new ConcurrentHashMap<>();
+    private        final Set<Reservation>          reservations             = ConcurrentHashMap.newKeySet();
+    private        final ThreadLocal<Fetch>        currentFetch             = new ThreadLocal<>();
+    private              int                       limit                    = DEFAULT_LIMIT;
+    private              int                       remaining                = DEFAULT_LIMIT;
+    private              long                      resetEpochSeconds        = 0;
+
+
+    /**
+     * Updates the budget with the rate limit headers of a response from api.github.com
+     * @param statusCode The status code of the response
+     * @param headers The headers of the response
+     */
+    public void update(final int statusCode, final HttpHeaders headers) {
+        final Fetch fetch = currentFetch.get();
+        // Conditional requests answered with 304 Not Modified do not count against the rate limit
+        if (null != fetch && 304 != statusCode) { fetch.requests.incrementAndGet(); }
+
+        final long remainingHeader = headers.firstValueAsLong(HEADER_RATELIMIT_REMAIN).orElse(-1);
+        if (remainingHeader < 0) { return; }
+        synchronized (this) {
+            limit             = (int) headers.firstValueAsLong(HEADER_RATELIMIT_LIMIT).orElse(limit);
+            remaining         = (int) remainingHeader;
+            resetEpochSeconds = headers.firstValueAsLong(HEADER_RATELIMIT_RESET).orElse(resetEpochSeconds);
+        }
+        if (0 == remainingHeader) {
+            LOGGER.warn("GitHub rate limit exhausted, will be reset at {}", Instant.ofEpochSecond(resetEpochSeconds));
+        }
+    }
+
+    /**
+     * Returns the number of requests that can still be sent to api.github.com without
+     * exceeding the rate limit, minus the requests reserved by running fetches
+     * @return the number of requests that are still available
+     */
+    public synchronized int getAvailable() {
+        final int available = Instant.now().getEpochSecond() >= resetEpochSeconds ? limit : remaining;
+        return available - reservations.stream().mapToInt(Reservation::getCost).sum();
+    }
+
+    public int getEstimatedCost(final Distro distro) { return (int) Math.ceil(estimatedCosts.getOrDefault(distro, DEFAULT_COST)); }
+
+    /**
+     * Returns the distros out of the given due distros that should be fetched now. Distros that do not depend
+     * on GitHub will always be returned. GitHub distros will be sorted by priority (staleness weighted by
+     * popularity) and only be returned if their estimated cost fits into the remaining budget. If the budget
+     * is low, only distros with a high priority will be fetched. The cost of the returned distros is
+     * reserved per fetch until the fetch ends. The caller has to pass the reservations whose fetch never
+     * started (e.g. cancelled or dropped tasks) to releaseIfNotStarted().
+     * @param dueDistros The distros that are due for an update
+     * @param minutesSinceUpdate The minutes since the last update per distro
+     * @param downloadsPerDistro The number of downloads per distro
+     * @return one reservation per distro that should be fetched now
+     */
+    public synchronized List<Reservation> schedule(final Collection<Distro> dueDistros, final Map<Distro, Integer> minutesSinceUpdate, final Map<Distro, Long> downloadsPerDistro) {
+        final List<Reservation> scheduled     = new ArrayList<>();
+        final List<Distro>      githubDistros = new ArrayList<>();
+        dueDistros.forEach(distro -> {
+            if (GITHUB_DISTROS.contains(distro)) {
+                githubDistros.add(distro);
+            } else {
+                scheduled.add(new Reservation(distro, 0));
+            }
+        });
+        if (githubDistros.isEmpty()) { return scheduled; }
+
+        final long                totalDownloads = Math.max(1, downloadsPerDistro.values().stream().mapToLong(Long::longValue).sum());
+        final Map<Distro, Double> priorities     = new EnumMap<>(Distro.class);
+        githubDistros.forEach(distro -> {
+            final double staleness  = (double) minutesSinceUpdate.getOrDefault(distro, 0) / Math.max(1, distro.getMinUpdateIntervalInMinutes());
+            final double popularity = (double) downloadsPerDistro.getOrDefault(distro, 0L) / totalDownloads;
+            priorities.put(distro, staleness * (1 + POPULARITY_WEIGHT * popularity));
+        });
+        githubDistros.sort(Comparator.comparing(priorities::get).reversed());
+
+        int available = getAvailable();
+        for (Distro distro : githubDistros) {
+            final int     cost      = getEstimatedCost(distro);
+            final boolean lowBudget = available - cost < limit * LOW_BUDGET_RATIO;
+            if (cost > available) {
+                LOGGER.info("Deferred fetch of {}, estimated cost {} exceeds GitHub budget {}", distro.getName(), cost, available);
+            } else if (lowBudget && priorities.get(distro) < LOW_BUDGET_MIN_PRIORITY) {
+                LOGGER.info("Deferred low priority fetch of {} (priority {}), GitHub budget is low ({})", distro.getName(), String.format("%.2f", priorities.get(distro)), available);
+            } else {
+                final Reservation reservation = new Reservation(distro, cost);
+                reservations.add(reservation);
+                available -= cost;
+                scheduled.add(reservation);
+            }
+        }
+        return scheduled;
+    }
+
+    /**
+     * Marks the start of the fetch of the given reservation on the current thread. All GitHub
+     * requests sent from the current thread will be counted as requests of this fetch.
+     * @param reservation The reservation returned by schedule()
+     * @return the fetch that has to be passed to endFetch()
+     */
+    public Fetch beginFetch(final Reservation reservation) {
+        reservation.state.compareAndSet(Reservation.RESERVED, Reservation.STARTED);
+        final Fetch fetch = new Fetch(reservation);
+        currentFetch.set(fetch);
+        return fetch;
+    }
+
+    /**
+     * Marks the end of the given fetch, releases its reservation and learns its cost
+     * @param fetch The fetch returned by beginFetch()
+     */
+    public void endFetch(final Fetch fetch) {
+        currentFetch.remove();
+        fetch.reservation.state.set(Reservation.RELEASED);
+        reservations.remove(fetch.reservation);
+        if (!GITHUB_DISTROS.contains(fetch.distro)) { return; }
+        final int requests = fetch.requests.get();
+        estimatedCosts.merge(fetch.distro, (double) requests, (oldCost, newCost) -> COST_SMOOTHING * newCost + (1 - COST_SMOOTHING) * oldCost);
+        LOGGER.debug("Fetch of {} needed {} GitHub requests, estimated cost {}", fetch.distro.getName(), requests, getEstimatedCost(fetch.distro));
+    }
+
+    /**
+     * Releases the given reservation if its fetch has not been started. The reservation of a
+     * started fetch will be released by endFetch().
+     * @param reservation The reservation returned by schedule()
+     */
+    public void releaseIfNotStarted(final Reservation reservation) {
+        if (reservation.state.compareAndSet(Reservation.RESERVED, Reservation.RELEASED)) { reservations.remove(reservation); }
+    }
+
+    public Fetch getCurrentFetch() { return currentFetch.get(); }
+
+    /**
+     * Sets the given fetch on the current thread, used to attribute requests sent by worker threads
+     * @param fetch The fetch the requests of the current thread belong to or null
+     */
+    public void setCurrentFetch(final Fetch fetch) {
+        if (null == fetch) {
+            currentFetch.remove();
+        } else {
+            currentFetch.set(fetch);
+        }
+    }
+
+    /**
+     * Returns a task that attributes the requests of the given task to the fetch of the current thread
+     * @param task The task that will be run on another thread
+     * @return a task that attributes its requests to the fetch of the current thread
+     */
+    public <T> Callable<T> withCurrentFetch(final Callable<T> task) {
+        final Fetch fetch = getCurrentFetch();
+        if (null == fetch) { return task; }
+        return () -> {
+            setCurrentFetch(fetch);
+            try {
+                return task.call();
+            } finally {
+                setCurrentFetch(null);
+            }
+        };
+    }
+
+
+    public static class Reservation {
+        private static final int           RESERVED = 0;
+        private static final int           STARTED  = 1;
+        private static final int           RELEASED = 2;
+        private        final Distro        distro;
+        private        final int           cost;
+        private        final AtomicInteger state;
+
+        private Reservation(final Distro distro, final int cost) {
+            this.distro = distro;
+            this.cost   = cost;
+            this.state  = new AtomicInteger(RESERVED);
+        }
+
+        public Distro getDistro() { return distro; }
+
+        public int getCost() { return cost; }
+    }
+
+
+    public static class Fetch {
+        private final Distro        distro;
+        private final Reservation   reservation;
+        private final AtomicInteger requests;
+
+        private Fetch(final Reservation reservation) {
+            this.distro      = reservation.distro;
+            this.reservation = reservation;
+            this.requests    = new AtomicInteger(0);
+        }
+
+        public Distro getDistro() { return distro; }
+
+        public int getRequests() { return requests.get(); }
+    }
+}
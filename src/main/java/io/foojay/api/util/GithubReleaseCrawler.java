@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.foojay.api.CacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Crawls the paginated releases endpoint of a GitHub repository by following the Link headers.
+ * Once the number of pages is known, the remaining pages will be fetched concurrently in waves.
+ * Because GitHub returns the newest releases first, crawling stops at the first page that only
+ * contains releases that are already known, which means a release with at least one asset that
+ * can be found in the package cache.
+ */
+public enum GithubReleaseCrawler {
+    INSTANCE;
+
+    private static final Logger          LOGGER             = LoggerFactory.getLogger(GithubReleaseCrawler.class);
+    private static final Pattern         LINK_NEXT_PATTERN  = Pattern.compile("<([^>]+)>;\\s*rel=\"next\"");
+    private static final Pattern         LINK_LAST_PATTERN  = Pattern.compile("<([^>]+)>;\\s*rel=\"last\"");
+    private static final Pattern         PAGE_PARAM_PATTERN = Pattern.compile("([?&])page=(\\d+)");
+    private static final String          PER_PAGE_PARAM     = "per_page=100";
+    private static final int             MAX_PARALLEL_PAGES = 4;
+    private static final String          FIELD_ASSETS       = "assets";
+    private static final String          FIELD_NAME         = "name";
+
+    private        final ExecutorService      executor;
+    private        final ThreadLocal<boolean[]> completeCrawlScope = new ThreadLocal<>();
+
+
+    GithubReleaseCrawler() {
+        // Each page is fetched on its own thread, the waves limit the concurrent requests per crawl
+        executor = ExecutorManager.INSTANCE.newExecutor("github-crawler");
+    }
+
+
+    public static boolean isGithubReleasesUri(final String uri) {
+        return null != uri && uri.startsWith("https://api.github.com/repos/") && uri.replaceFirst("\\?.*$", "").endsWith("/releases");
+    }
+
+    /**
+     * Crawls the given GitHub releases uri and calls the given consumer for each release found.
+     * The consumer will always be called from the calling thread, in the order of the pages.
+     * @param releasesUri The releases uri of a GitHub repository (e.g. https://api.github.com/repos/user/repo/releases)
+     * @param consumer The consumer that will be called for each release
+     * @return true if all pages have been crawled, false if crawling stopped early or a page could not be fetched
+     */
+    public boolean crawl(final String releasesUri, final Consumer<JsonObject> consumer) {
+        final boolean[] completeCrawl = completeCrawlScope.get();
+        final boolean   complete      = crawl(releasesUri, null == completeCrawl, consumer);
+        if (!complete && null != completeCrawl) { completeCrawl[0] = false; }
+        return complete;
+    }
+
+    /**
+     * Runs the given task with crawling all pages (no early stop at known pages) for all crawls
+     * started from the current thread. Used to reconcile the package cache with the complete
+     * upstream state.
+     * @param task The task that fetches packages
+     * @return the result of the task or an empty optional if at least one crawl did not complete
+     * @throws Exception
+     */
+    public <T> Optional<T> crawlCompletely(final Callable<T> task) throws Exception {
+        final boolean[] completeCrawl = { true };
+        completeCrawlScope.set(completeCrawl);
+        try {
+            final T result = task.call();
+            return completeCrawl[0] ? Optional.of(result) : Optional.empty();
+        } finally {
+            completeCrawlScope.remove();
+        }
+    }
+
+    /**
+     * Marks the complete crawl of the current thread as incomplete, used if a part of the
+     * packages of a distro could not be fetched.
+     */
+    public void reportIncomplete() {
+        final boolean[] completeCrawl = completeCrawlScope.get();
+        if (null != completeCrawl) { completeCrawl[0] = false; }
+    }
+
+    /**
+     * Returns a task that runs the given task in the crawl scope of the current thread, used
+     * to hand over work to other threads.
+     * @param task The task that should be run in the crawl scope of the current thread
+     * @return a task that runs the given task in the crawl scope of the current thread
+     */
+    public <T> Callable<T> withCurrentScope(final Callable<T> task) {
+        final boolean[] completeCrawl = completeCrawlScope.get();
+        if (null == completeCrawl) { return task; }
+        return () -> {
+            completeCrawlScope.set(completeCrawl);
+            try {
+                return task.call();
+            } finally {
+                completeCrawlScope.remove();
+            }
+        };
+    }
+
+    private boolean crawl(final String releasesUri, final boolean stopAtKnownPage, final Consumer<JsonObject> consumer) {
+        final Set<String> knownFilenames = stopAtKnownPage ? CacheManager.INSTANCE.pkgCache.getFileNames() : Set.of();
+        final String      firstPageUri   = releasesUri.contains(PER_PAGE_PARAM) ? releasesUri : releasesUri + (releasesUri.contains("?") ? "&" : "?") + PER_PAGE_PARAM;
+
+        final GithubBudget.Fetch fetch     = GithubBudget.INSTANCE.getCurrentFetch();
+        final Optional<Page>     firstPage = fetchPage(firstPageUri);
+        if (firstPage.isEmpty()) { return false; }
+        PageResult firstPageResult = processPage(firstPage.get(), knownFilenames, consumer);
+        if (PageResult.CONTINUE != firstPageResult) {
+            return PageResult.ALL_KNOWN == firstPageResult && firstPage.get().getLink(LINK_NEXT_PATTERN).isEmpty();
+        }
+
+        Optional<String> lastPageUri = firstPage.get().getLink(LINK_LAST_PATTERN);
+        if (lastPageUri.isPresent()) {
+            // Page count is known -> fetch remaining pages concurrently in waves
+            final Matcher lastPageMatcher = PAGE_PARAM_PATTERN.matcher(lastPageUri.get());
+            if (lastPageMatcher.find()) {
+                final int    lastPage    = Integer.parseInt(lastPageMatcher.group(2));
+                final String pageUriBase = lastPageUri.get();
+                for (int waveStart = 2; waveStart <= lastPage; waveStart += MAX_PARALLEL_PAGES) {
+                    final List<CompletableFuture<Optional<Page>>> wave = new ArrayList<>();
+                    for (int page = waveStart; page < waveStart + MAX_PARALLEL_PAGES && page <= lastPage; page++) {
+                        final String pageUri = PAGE_PARAM_PATTERN.matcher(pageUriBase).replaceFirst("$1page=" + page);
+                        wave.add(CompletableFuture.supplyAsync(() -> {
+                            // Attribute the requests of the worker thread to the fetch of the calling thread
+                            GithubBudget.INSTANCE.setCurrentFetch(fetch);
+                            try {
+                                return fetchPage(pageUri);
+                            } finally {
+                                GithubBudget.INSTANCE.setCurrentFetch(null);
+                            }
+                        }, executor));
+                    }
+                    for (int i = 0; i < wave.size(); i++) {
+                        final Optional<Page> page;
+                        try {
+                            page = wave.get(i).join();
+                        } catch (CompletionException e) {
+                            LOGGER.error("Error fetching releases page of {}. {}", releasesUri, e.getMessage());
+                            wave.forEach(remaining -> remaining.thenAccept(remainingPage -> remainingPage.ifPresent(Page::close)));
+                            return false;
+                        }
+                        final PageResult pageResult = page.isEmpty() ? PageResult.ERROR : processPage(page.get(), knownFilenames, consumer);
+                        if (PageResult.CONTINUE != pageResult) {
+                            wave.forEach(remaining -> remaining.thenAccept(remainingPage -> remainingPage.ifPresent(Page::close)));
+                            return PageResult.ALL_KNOWN == pageResult && waveStart + i == lastPage;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+
+        // Page count unknown -> follow the next links one after the other
+        Optional<String> nextPageUri = firstPage.get().getLink(LINK_NEXT_PATTERN);
+        while (nextPageUri.isPresent()) {
+            final Optional<Page> page = fetchPage(nextPageUri.get());
+            if (page.isEmpty()) { return false; }
+            final PageResult pageResult = processPage(page.get(), knownFilenames, consumer);
+            nextPageUri = page.get().getLink(LINK_NEXT_PATTERN);
+            if (PageResult.CONTINUE != pageResult) { return PageResult.ALL_KNOWN == pageResult && nextPageUri.isEmpty(); }
+        }
+        return true;
+    }
+
+    private Optional<Page> fetchPage(final String pageUri) {
+        try {
+            UpstreamResponse response = Helper.fetch(pageUri);
+            if (response.getStatusCode() == 200) {
+                return Optional.of(new Page(pageUri, response));
+            } else {
+                // Problem with url request
+                LOGGER.debug("Response ({}) {} ", response.getStatusCode(), response.getBody());
+            }
+        } catch (InterruptedException | IOException e) {
+            LOGGER.error("Error fetching releases page {}. {}", pageUri, e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Hands each release of the given page to the given consumer while the page is parsed,
+     * releases parsed before a parse error will have been handed to the consumer already
+     * @return CONTINUE if the page contains at least one unknown release and the next page should be crawled
+     */
+    private PageResult processPage(final Page page, final Set<String> knownFilenames, final Consumer<JsonObject> consumer) {
+        final AtomicBoolean containsUnknownRelease = new AtomicBoolean(false);
+        try (InputStream bodyStream = page.response.getBodyStream()) {
+            Helper.forEachJsonObject(bodyStream, release -> {
+                if (!isKnownRelease(release, knownFilenames)) { containsUnknownRelease.set(true); }
+                consumer.accept(release);
+            });
+        } catch (IOException e) {
+            LOGGER.error("Error parsing releases page {}. {}", page.uri, e.getMessage());
+            return PageResult.ERROR;
+        }
+        if (containsUnknownRelease.get()) { return PageResult.CONTINUE; }
+        LOGGER.debug("All releases on page {} are already known, stop crawling", page.uri);
+        return PageResult.ALL_KNOWN;
+    }
+
+    private boolean isKnownRelease(final JsonObject release, final Set<String> knownFilenames) {
+        if (!release.has(FIELD_ASSETS) || !release.get(FIELD_ASSETS).isJsonArray()) { return true; }
+        for (JsonElement asset : release.getAsJsonArray(FIELD_ASSETS)) {
+            if (!asset.isJsonObject() || !asset.getAsJsonObject().has(FIELD_NAME)) { continue; }
+            if (knownFilenames.contains(asset.getAsJsonObject().get(FIELD_NAME).getAsString())) { return true; }
+        }
+        return release.getAsJsonArray(FIELD_ASSETS).size() == 0;
+    }
+
+
+    private enum PageResult { CONTINUE, ALL_KNOWN, ERROR }
+
+
+    private static class Page {
+        private final String           uri;
+        private final UpstreamResponse response;
+
+        Page(final String uri, final UpstreamResponse response) {
+            this.uri      = uri;
+            this.response = response;
+        }
+
+        Optional<String> getLink(final Pattern pattern) {
+            return response.getHeaders().allValues("Link").stream()
+                           .map(link -> pattern.matcher(link))
+                           .filter(Matcher::find)
+                           .map(matcher -> matcher.group(1))
+                           .findFirst();
+        }
+
+        void close() {
+            try {
+                response.close();
+            } catch (IOException e) {
+                LOGGER.debug("Error closing releases page {}. {}", uri, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Space-Saving sketch that keeps track of the most frequent items of a stream with a fixed
+ * number of counters. The counters are kept in a stream summary, a linked list of buckets
+ * sorted by count, so counting an item is O(1) and the top n items are found in O(n) by
+ * walking the buckets from the highest count downwards, without sorting.
+ * Every item that occurs more often than total / capacity is guaranteed to be monitored.
+ * The count of a monitored item overestimates its real count by at most its error.
+ */
+public class HeavyHitters<T> {
+    private final int             capacity;
+    private final Map<T, Node<T>> nodes;
+    private       Bucket<T>       minBucket;
+    private       Bucket<T>       maxBucket;
+    private       long            total;
+
+
+    public HeavyHitters(final int capacity) {
+        if (capacity <= 0) { throw new IllegalArgumentException("Capacity must be > 0"); }
+        this.capacity = capacity;
+        this.nodes    = new HashMap<>(capacity * 2);
+        this.total    = 0;
+    }
+
+
+    /**
+     * Counts one occurrence of the given item
+     * @param item The item that occurred
+     */
+    public void offer(final T item) { offer(item, 1); }
+
+    /**
+     * Counts the given number of occurrences of the given item. If the sketch is full and
+     * the item is not monitored yet, it replaces the item with the lowest count.
+     * @param item The item that occurred
+     * @param increment The number of occurrences
+     */
+    public synchronized void offer(final T item, final long increment) {
+        if (null == item || increment <= 0) { return; }
+        total += increment;
+        Node<T> node = nodes.get(item);
+        if (null == node) {
+            if (nodes.size() < capacity) {
+                node = new Node<>(item, 0);
+                nodes.put(item, node);
+            } else {
+                // Replace the item with the lowest count, its count becomes the error of the new item
+                node = minBucket.first;
+                nodes.remove(node.item);
+                node.item  = item;
+                node.error = minBucket.count;
+                nodes.put(item, node);
+            }
+        }
+        increment(node, increment);
+    }
+
+    /**
+     * Returns the n items with the highest counts, the item with the highest count first
+     * @param n The max number of items
+     * @return the n items with the highest counts
+     */
+    public synchronized List<Counter<T>> getTop(final int n) {
+        final List<Counter<T>> top = new ArrayList<>(Math.min(n, nodes.size()));
+        for (Bucket<T> bucket = maxBucket ; null != bucket && top.size() < n ; bucket = bucket.prev) {
+            for (Node<T> node = bucket.first ; null != node && top.size() < n ; node = node.next) {
+                top.add(new Counter<>(node.item, bucket.count, node.error));
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Returns the estimated count of the given item or 0 if it is not monitored
+     * @param item The item
+     * @return the estimated count of the given item or 0 if it is not monitored
+     */
+    public synchronized long getCount(final T item) {
+        final Node<T> node = nodes.get(item);
+        return null == node ? 0 : node.bucket.count;
+    }
+
+    public synchronized long getTotal() { return total; }
+
+    public synchronized int size() { return nodes.size(); }
+
+    public int getCapacity() { return capacity; }
+
+    public synchronized void clear() {
+        nodes.clear();
+        minBucket = null;
+        maxBucket = null;
+        total     = 0;
+    }
+
+    private void increment(final Node<T> node, final long increment) {
+        final Bucket<T> source = node.bucket;
+        final long      count  = (null == source ? 0 : source.count) + increment;
+        // Find the last bucket with a count <= the new count, starting at the current bucket
+        Bucket<T> previous = source;
+        if (null != source) {
+            detach(node);
+            if (null == source.first) {
+                previous = source.prev;
+                unlink(source);
+            }
+        }
+        Bucket<T> candidate = null == previous ? minBucket : previous.next;
+        while (null != candidate && candidate.count <= count) {
+            previous  = candidate;
+            candidate = candidate.next;
+        }
+        if (null != previous && previous.count == count) {
+            addToBucket(node, previous);
+        } else {
+            final Bucket<T> bucket = new Bucket<>(count);
+            link(bucket, previous);
+            addToBucket(node, bucket);
+        }
+    }
+
+    private void addToBucket(final Node<T> node, final Bucket<T> bucket) {
+        node.bucket = bucket;
+        node.prev   = null;
+        node.next   = bucket.first;
+        if (null != bucket.first) { bucket.first.prev = node; }
+        bucket.first = node;
+    }
+
+    private void detach(final Node<T> node) {
+        final Bucket<T> bucket = node.bucket;
+        if (null != node.prev) { node.prev.next = node.next; } else { bucket.first = node.next; }
+        if (null != node.next) { node.next.prev = node.prev; }
+        node.prev   = null;
+        node.next   = null;
+        node.bucket = null;
+    }
+
+    // Inserts the given bucket after the given previous bucket or as first bucket if previous is null
+    private void link(final Bucket<T> bucket, final Bucket<T> previous) {
+        bucket.prev = previous;
+        bucket.next = null == previous ? minBucket : previous.next;
+        if (null != bucket.next) { bucket.next.prev = bucket; } else { maxBucket = bucket; }
+        if (null != previous) { previous.next = bucket; } else { minBucket = bucket; }
+    }
+
+    private void unlink(final Bucket<T> bucket) {
+        if (null != bucket.prev) { bucket.prev.next = bucket.next; } else { minBucket = bucket.next; }
+        if (null != bucket.next) { bucket.next.prev = bucket.prev; } else { maxBucket = bucket.prev; }
+        bucket.prev = null;
+        bucket.next = null;
+    }
+
+
+    /**
+     * A monitored item with its estimated count, the real count is between count - error and count
+     */
+    public static final class Counter<T> {
+        private final T    item;
+        private final long count;
+        private final long error;
+
+
+        public Counter(final T item, final long count, final long error) {
+            this.item  = item;
+            this.count = count;
+            this.error = error;
+        }
+
+
+        public T getItem() { return item; }
+
+        public long getCount() { return count; }
+
+        public long getError() { return error; }
+
+        public long getGuaranteedCount() { return count - error; }
+    }
+
+
+    private static final class Bucket<T> {
+        private final long      count;
+        private       Node<T>   first;
+        private       Bucket<T> prev;
+        private       Bucket<T> next;
+
+
+        private Bucket(final long count) {
+            this.count = count;
+        }
+    }
+
+
+    private static final class Node<T> {
+        private T         item;
+        private long      error;
+        private Bucket<T> bucket;
+        private Node<T>   prev;
+        private Node<T>   next;
+
+
+        private Node(final T item, final long error) {
+            this.item  = item;
+            this.error = error;
+        }
+    }
+}
@@ -23,6 +23,10 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import io.foojay.api.CacheManager;
 import io.foojay.api.distribution.AOJ;
 import io.foojay.api.distribution.AOJ_OPENJ9;
@@ -54,10 +58,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpClient.Redirect;
-import java.net.http.HttpClient.Version;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
@@ -74,6 +76,7 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Random;
@@ -81,7 +84,10 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -100,19 +106,26 @@ public class Helper {
     public static final  Pattern FILE_URL_MD5_PATTERN                   = Pattern.compile("(https?:\\/\\/(www\\.)?[-a-zA-Z0-9@:%._\\+~#=]{1,256}\\.[a-zA-Z0-9()]{1,6}\\b([-a-zA-Z0-9()@:%_\\+.~#?&\\/=]*)(\\.zip|\\.msi|\\.pkg|\\.dmg|\\.tar\\.gz|\\.deb|\\.rpm|\\.cab|\\.7z))\\)\\h+\\|\\h+`([0-9a-z]{32})`");
     public static final  Pattern DRAGONWELL_11_FILE_NAME_SHA256_PATTERN = Pattern.compile("(OpenJDK[0-9]+U[a-z0-9_\\-\\.]+)(\\.zip|\\.msi|\\.pkg|\\.dmg|\\.tar\\.gz|\\.deb|\\.rpm|\\.cab|\\.7z)(\\s+\\(Experimental ONLY\\))?\\h+\\|\\h+([0-9a-z]{64})");
     public static final  Pattern DRAGONWELL_8_FILE_NAME_SHA256_PATTERN  = Pattern.compile("(\\()?(Alibaba_Dragonwell[0-9\\.A-Za-z_\\-]+)(\\)=\\s+)?|([\\\\r\\\\n]+)?([a-z0-9]{64})");
-    public  static final Pattern HREF_FILE_PATTERN      = Pattern.compile("href=\"([^\"]*(\\.zip|\\.msi|\\.pkg|\\.dmg|\\.tar\\.gz|\\.deb|\\.rpm|\\.cab|\\.7z))\"");
-    public  static final Pattern HREF_DOWNLOAD_PATTERN  = Pattern.compile("(\\>)(\\s|\\h?(jdk|jre|serverjre)-(([0-9]+\\.[0-9]+\\.[0-9]+_[a-z]+-[a-z0-9]+_)|([0-9]+u[0-9]+-[a-z]+-[a-z0-9]+(-vfp-hflt)?)).*[a-zA-Z]+)(\\<)");
+    public  static final List<String> FILE_HREF_SUFFIXES = List.of(".zip", ".msi", ".pkg", ".dmg", ".tar.gz", ".deb", ".rpm", ".cab", ".7z");
+    public  static final Pattern DOWNLOAD_TEXT_PATTERN  = Pattern.compile("(jdk|jre|serverjre)-(([0-9]+\\.[0-9]+\\.[0-9]+_[a-z]+-[a-z0-9]+_)|([0-9]+u[0-9]+-[a-z]+-[a-z0-9]+(-vfp-hflt)?)).*[a-zA-Z]");
     public  static final Pattern NUMBER_IN_TEXT_PATTERN = Pattern.compile("(.*)?([0-9]+)(.*)?");
-    public  static final Matcher FILE_URL_MATCHER       = FILE_URL_PATTERN.matcher("");
-    public static final  Matcher FILE_URL_MD5_MATCHER                   = FILE_URL_MD5_PATTERN.matcher("");
-    public static final  Matcher DRAGONWELL_11_FILE_NAME_SHA256_MATCHER = DRAGONWELL_11_FILE_NAME_SHA256_PATTERN.matcher("");
-    public static final  Matcher DRAGONWELL_8_FILE_NAME_SHA256_MATCHER  = DRAGONWELL_8_FILE_NAME_SHA256_PATTERN.matcher("");
-    public  static final Matcher HREF_FILE_MATCHER      = HREF_FILE_PATTERN.matcher("");
-    public  static final Matcher HREF_DOWNLOAD_MATCHER  = HREF_DOWNLOAD_PATTERN.matcher("");
-
-
-    public static Callable<List<Pkg>> createTask(final Distro distro) {
-        return () -> getPkgs(distro);
+    public  static final ThreadLocalMatcher FILE_URL_MATCHER       = new ThreadLocalMatcher(FILE_URL_PATTERN);
+    public static final  ThreadLocalMatcher FILE_URL_MD5_MATCHER                   = new ThreadLocalMatcher(FILE_URL_MD5_PATTERN);
+    public static final  ThreadLocalMatcher DRAGONWELL_11_FILE_NAME_SHA256_MATCHER = new ThreadLocalMatcher(DRAGONWELL_11_FILE_NAME_SHA256_PATTERN);
+    public static final  ThreadLocalMatcher DRAGONWELL_8_FILE_NAME_SHA256_MATCHER  = new ThreadLocalMatcher(DRAGONWELL_8_FILE_NAME_SHA256_PATTERN);
+    public  static final ThreadLocalMatcher DOWNLOAD_TEXT_MATCHER  = new ThreadLocalMatcher(DOWNLOAD_TEXT_PATTERN);
+    private static final Map<Distro, Semaphore> FAN_OUT_PERMITS = new ConcurrentHashMap<>();
+
+
+    public static Callable<List<Pkg>> createTask(final GithubBudget.Reservation reservation) {
+        return () -> {
+            final GithubBudget.Fetch fetch = GithubBudget.INSTANCE.beginFetch(reservation);
+            try {
+                return getPkgs(reservation.getDistro());
+            } finally {
+                GithubBudget.INSTANCE.endFetch(fetch);
+            }
+        };
     }
 
     public static List<Pkg> getPkgs(final Distro distro) {
@@ -133,47 +146,9 @@ public class Helper {
             case ORACLE_OPEN_JDK:
                 OracleOpenJDK oracleOpenJDK = (OracleOpenJDK) distro.get();
                 pkgs.addAll(oracleOpenJDK.getAllPkgs());
-                // Get all jdk 8 packages from github
-                String       query8     = oracleOpenJDK.getGithubPkg8Url() + "/releases?per_page=100";
-                HttpClient  clientOJ    = HttpClient.newBuilder().followRedirects(Redirect.NEVER).version(Version.HTTP_1_1).build();
-                HttpRequest request8 = HttpRequest.newBuilder().uri(URI.create(query8)).setHeader("User-Agent", "DiscoAPI").GET().build();
-                try {
-                    HttpResponse<String> response = clientOJ.send(request8, BodyHandlers.ofString());
-                    if (response.statusCode() == 200) {
-                        String      bodyText = response.body();
-                        Gson        gson     = new Gson();
-                        JsonElement element  = gson.fromJson(bodyText, JsonElement.class);
-                        if (element instanceof JsonArray) {
-                            JsonArray jsonArray = element.getAsJsonArray();
-                            pkgs.addAll(oracleOpenJDK.getAllPkgs(jsonArray));
-                        }
-                    } else {
-                        // Problem with url request
-                        LOGGER.debug("Response ({}) {} ", response.statusCode(), response.body());
-                    }
-                } catch (InterruptedException | IOException e) {
-                    LOGGER.error("Error fetching packages for distribution {} from {}", oracleOpenJDK.getName(), query8);
-                }
-                // Get all jdk 11 packages from github
-                String       query11    = oracleOpenJDK.getGithubPkg11Url() + "/releases?per_page=100";
-                HttpRequest request11 = HttpRequest.newBuilder().uri(URI.create(query11)).setHeader("User-Agent", "DiscoAPI").GET().build();
-                try {
-                    HttpResponse<String> response = clientOJ.send(request11, BodyHandlers.ofString());
-                    if (response.statusCode() == 200) {
-                        String      bodyText = response.body();
-                        Gson        gson     = new Gson();
-                        JsonElement element  = gson.fromJson(bodyText, JsonElement.class);
-                        if (element instanceof JsonArray) {
-                            JsonArray jsonArray = element.getAsJsonArray();
-                            pkgs.addAll(oracleOpenJDK.getAllPkgs(jsonArray));
-                        }
-                    } else {
-                        // Problem with url request
-                        LOGGER.debug("Response ({}) {} ", response.statusCode(), response.body());
-                    }
-                } catch (InterruptedException | IOException e) {
-                    LOGGER.error("Error fetching packages for distribution {} from {}", oracleOpenJDK.getName(), query8);
-                }
+                // Get all jdk 8 and jdk 11 packages from github
+                GithubReleaseCrawler.INSTANCE.crawl(oracleOpenJDK.getGithubPkg8Url() + "/releases", release -> pkgs.addAll(oracleOpenJDK.getAllPkgs(toJsonArray(release))));
+                GithubReleaseCrawler.INSTANCE.crawl(oracleOpenJDK.getGithubPkg11Url() + "/releases", release -> pkgs.addAll(oracleOpenJDK.getAllPkgs(toJsonArray(release))));
                 break;
             case SAP_MACHINE:
                 SAPMachine  sapMachine = (SAPMachine) distro.get();
@@ -184,26 +159,7 @@ public class Helper {
                 pkgs.addAll(sapMachine.getAllPkgs());
 
                 // Search through github release and fetch packages from there
-                String      query      = sapMachine.getPkgUrl() + "?per_page=100";
-                HttpClient  clientSAP = HttpClient.newBuilder().followRedirects(Redirect.NEVER).version(Version.HTTP_1_1).build();
-                HttpRequest request   = HttpRequest.newBuilder().uri(URI.create(query)).setHeader("User-Agent", "DiscoAPI").GET().build();
-                try {
-                    HttpResponse<String> response = clientSAP.send(request, BodyHandlers.ofString());
-                    if (response.statusCode() == 200) {
-                        String      bodyText = response.body();
-                        Gson        gson     = new Gson();
-                        JsonElement element  = gson.fromJson(bodyText, JsonElement.class);
-                        if (element instanceof JsonArray) {
-                            JsonArray jsonArray = element.getAsJsonArray();
-                            pkgs.addAll(sapMachine.getAllPkgs(jsonArray));
-                        }
-                    } else {
-                        // Problem with url request
-                        LOGGER.debug("Response ({}) {} ", response.statusCode(), response.body());
-                    }
-                } catch (InterruptedException | IOException e) {
-                    LOGGER.error("Error fetching packages for distribution {} from {}", sapMachine.getName(), query);
-                }
+                GithubReleaseCrawler.INSTANCE.crawl(sapMachine.getPkgUrl(), release -> pkgs.addAll(sapMachine.getAllPkgs(toJsonArray(release))));
                 break;
             case TRAVA:
                 Trava trava = (Trava) distro.get();
@@ -211,19 +167,11 @@ public class Helper {
                 break;
             case AOJ:
                 AOJ AOJ = (AOJ) distro.get();
-                for (MajorVersion majorVersion : CacheManager.INSTANCE.getMajorVersions()) {
-                    VersionNumber versionNumber = majorVersion.getVersionNumber();
-                    pkgs.addAll(getPkgs(AOJ, versionNumber, false, OperatingSystem.NONE, Architecture.NONE, Bitness.NONE, ArchiveType.NONE, PackageType.NONE, null, ReleaseStatus.GA, TermOfSupport.NONE));
-                    pkgs.addAll(getPkgs(AOJ, versionNumber, false, OperatingSystem.NONE, Architecture.NONE, Bitness.NONE, ArchiveType.NONE, PackageType.NONE, null, ReleaseStatus.EA, TermOfSupport.NONE));
-                }
+                pkgs.addAll(getPkgsOfAllMajorVersions(AOJ, ReleaseStatus.GA, ReleaseStatus.EA));
                 break;
             case AOJ_OPENJ9:
                 AOJ_OPENJ9 AOJ_OPENJ9 = (AOJ_OPENJ9) distro.get();
-                for (MajorVersion majorVersion : CacheManager.INSTANCE.getMajorVersions()) {
-                    VersionNumber versionNumber = majorVersion.getVersionNumber();
-                    pkgs.addAll(getPkgs(AOJ_OPENJ9, versionNumber, false, OperatingSystem.NONE, Architecture.NONE, Bitness.NONE, ArchiveType.NONE, PackageType.NONE, null, ReleaseStatus.GA, TermOfSupport.NONE));
-                    pkgs.addAll(getPkgs(AOJ_OPENJ9, versionNumber, false, OperatingSystem.NONE, Architecture.NONE, Bitness.NONE, ArchiveType.NONE, PackageType.NONE, null, ReleaseStatus.EA, TermOfSupport.NONE));
-                }
+                pkgs.addAll(getPkgsOfAllMajorVersions(AOJ_OPENJ9, ReleaseStatus.GA, ReleaseStatus.EA));
                 break;
             case ADOPTIUM:
                 break;
@@ -234,26 +182,20 @@ public class Helper {
             case ZULU:
                 Zulu zulu = (Zulu) distro.get();
                 // Get packages from API
-                for (MajorVersion majorVersion : CacheManager.INSTANCE.getMajorVersions()) {
-                    pkgs.addAll(getPkgs(zulu, majorVersion.getVersionNumber(), false, OperatingSystem.NONE, Architecture.NONE, Bitness.NONE, ArchiveType.NONE, PackageType.NONE, null, ReleaseStatus.NONE, TermOfSupport.NONE));
-                }
+                pkgs.addAll(getPkgsOfAllMajorVersions(zulu, ReleaseStatus.NONE));
 
                 // Get packages from CDN
-                List<Pkg>    cdnPkgs       = ((Zulu) Distro.ZULU.get()).getAllPackagesFromCDN();
-                List<Pkg>    pkgsToAdd     = new LinkedList<>();
-                List<String> pkgsFilenames = pkgs.stream().map(pkg -> pkg.getFileName()).collect(Collectors.toList());
+                List<Pkg>   cdnPkgs       = zulu.getAllPackagesFromCDN();
+                Set<String> pkgsFilenames = pkgs.stream().map(Pkg::getFileName).collect(Collectors.toSet());
                 for (Pkg cdnPkg : cdnPkgs) {
-                    if (!pkgsFilenames.contains(cdnPkg.getFileName())) {
-                        pkgsToAdd.add(cdnPkg);
+                    if (pkgsFilenames.add(cdnPkg.getFileName())) {
+                        pkgs.add(cdnPkg);
                     }
                 }
-                pkgs.addAll(pkgsToAdd);
                 break;
             default:
                 Distribution distribution = distro.get();
-                for (MajorVersion majorVersion : CacheManager.INSTANCE.getMajorVersions()) {
-                    pkgs.addAll(getPkgs(distribution, majorVersion.getVersionNumber(), false, OperatingSystem.NONE, Architecture.NONE, Bitness.NONE, ArchiveType.NONE, PackageType.NONE, null, ReleaseStatus.NONE, TermOfSupport.NONE));
-                }
+                pkgs.addAll(getPkgsOfAllMajorVersions(distribution, ReleaseStatus.NONE));
                 break;
         }
 
@@ -261,6 +203,32 @@ public class Helper {
         return new LinkedList<>(unique);
     }
 
+    /**
+     * Fetches the packages of the given distribution for each major version and each of the given
+     * release status concurrently. At most FOOJAY_API_FAN_OUT requests per distro will run at the
+     * same time. The results are merged in the order of the major versions.
+     * @param distribution The distribution to fetch the packages for
+     * @param releaseStatus One request per major version will be sent for each release status
+     * @return the packages of all major versions
+     */
+    public static List<Pkg> getPkgsOfAllMajorVersions(final Distribution distribution, final ReleaseStatus... releaseStatus) {
+        final List<Callable<List<Pkg>>> tasks = new ArrayList<>();
+        for (MajorVersion majorVersion : CacheManager.INSTANCE.getMajorVersions()) {
+            for (ReleaseStatus status : releaseStatus) {
+                Callable<List<Pkg>> task = createTask(distribution, majorVersion.getVersionNumber(), false, OperatingSystem.NONE, Architecture.NONE, Bitness.NONE, ArchiveType.NONE, PackageType.NONE, null, status, TermOfSupport.NONE);
+                // Keep the GitHub budget fetch and the crawl scope of the calling thread
+                tasks.add(GithubBudget.INSTANCE.withCurrentFetch(GithubReleaseCrawler.INSTANCE.withCurrentScope(task)));
+            }
+        }
+        final Semaphore       permits = FAN_OUT_PERMITS.computeIfAbsent(distribution.getDistro(), distro -> new Semaphore(Config.INSTANCE.getFoojayFanOut()));
+        final List<List<Pkg>> results = ExecutorManager.INSTANCE.invokeAll(distribution.getName(), tasks, permits);
+        if (results.size() < tasks.size()) {
+            LOGGER.error("{} of {} requests for {} packages failed", tasks.size() - results.size(), tasks.size(), distribution.getName());
+            GithubReleaseCrawler.INSTANCE.reportIncomplete();
+        }
+        return results.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
     public static Callable<List<Pkg>> createTask(final Distribution distribution, final VersionNumber versionNumber, final boolean latest, final OperatingSystem operatingSystem,
                                                  final Architecture architecture, final Bitness bitness, final ArchiveType archiveType, final PackageType packageType, final Boolean fx, final ReleaseStatus releaseStatus,
                                                  final TermOfSupport termOfSupport) {
@@ -274,45 +242,26 @@ public class Helper {
 
         if (query.isEmpty()) { return List.of(); }
 
-        HttpClient  client  = HttpClient.newBuilder()
-                                        .followRedirects(Redirect.NORMAL)
-                                        .version(Version.HTTP_1_1)
-                                        .build();
-        HttpRequest request = HttpRequest.newBuilder()
-                                         .uri(URI.create(query))
-                                         .setHeader("User-Agent", "DiscoAPI")
-                                         .GET()
-                                         .build();
         List<Pkg>   pkgs    = new LinkedList<>();
         try {
             List<Pkg> pkgsFound = new ArrayList<>();
             if (distribution.equals(Distro.ORACLE_OPEN_JDK.get())) {
                 List<Pkg> pkgsInDistribution = distribution.getPkgFromJson(null, versionNumber, latest, operatingSystem, architecture, bitness, archiveType, packageType, fx, releaseStatus, termOfSupport);
                 pkgsFound.addAll(pkgsInDistribution.stream().filter(pkg -> isVersionNumberInPkg(versionNumber, pkg)).collect(Collectors.toList()));
+            } else if (GithubReleaseCrawler.isGithubReleasesUri(query)) {
+                final List<Pkg> pkgsInReleases = new ArrayList<>();
+                GithubReleaseCrawler.INSTANCE.crawl(query, release -> pkgsInReleases.addAll(distribution.getPkgFromJson(release, versionNumber, latest, operatingSystem, architecture, bitness, archiveType, packageType, fx, releaseStatus, termOfSupport)));
+                pkgsFound.addAll(pkgsInReleases);
             } else {
-                HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-                if (response.statusCode() == 200) {
-                    String      bodyText = response.body();
-                    Gson        gson     = new Gson();
-                    JsonElement element  = gson.fromJson(bodyText, JsonElement.class);
-                    if (element instanceof JsonArray) {
-                        JsonArray jsonArray = element.getAsJsonArray();
-                        for (int i = 0; i < jsonArray.size(); i++) {
-                            JsonObject pkgJsonObj         = jsonArray.get(i).getAsJsonObject();
-                            List<Pkg>  pkgsInDistribution = distribution.getPkgFromJson(pkgJsonObj, versionNumber, latest, operatingSystem, architecture, bitness, archiveType, packageType, fx, releaseStatus, termOfSupport);
-                        pkgsFound.addAll(pkgsInDistribution);
-                        //pkgsFound.addAll(pkgsInDistribution.stream().filter(pkg -> isVersionNumberInPkg(versionNumber, pkg)).collect(Collectors.toList()));
-                        }
-                    } else if (element instanceof JsonObject) {
-                        JsonObject pkgJsonObj         = element.getAsJsonObject();
-                        List<Pkg>  pkgsInDistribution = distribution.getPkgFromJson(pkgJsonObj, versionNumber, latest, operatingSystem, architecture, bitness, archiveType, packageType, fx, releaseStatus, termOfSupport);
-                    pkgsFound.addAll(pkgsInDistribution);
-                    //pkgsFound.addAll(pkgsInDistribution.stream().filter(pkg -> isVersionNumberInPkg(versionNumber, pkg)).collect(Collectors.toList()));
+                UpstreamResponse response = fetch(query);
+                if (response.getStatusCode() == 200) {
+                    try (InputStream bodyStream = response.getBodyStream()) {
+                        distribution.getPkgFromJson(bodyStream, versionNumber, latest, operatingSystem, architecture, bitness, archiveType, packageType, fx, releaseStatus, termOfSupport, pkgsFound::add);
                     }
                 } else {
                     // Problem with url request
                     LOGGER.debug("Error get packages for {} {} calling {}", distribution.getName(), versionNumber, query);
-                    LOGGER.debug("Response ({}) {} ", response.statusCode(), response.body());
+                    LOGGER.debug("Response ({}) {} ", response.getStatusCode(), response.getBody());
                     return pkgs;
                 }
             }
@@ -336,18 +285,10 @@ public class Helper {
                                           final Architecture architecture, final Bitness bitness, final ArchiveType archiveType,
                                           final PackageType packageType, final boolean javaFX, final ReleaseStatus releaseStatus, final TermOfSupport termOfSupport) {
         String      query   = distribution.getUrlForAvailablePkgs(versionNumber, latest, operatingSystem, architecture, bitness, archiveType, packageType, javaFX, releaseStatus, termOfSupport);
-        HttpClient  client  = HttpClient.newBuilder()
-                                        .followRedirects(Redirect.NEVER)
-                                        .version(java.net.http.HttpClient.Version.HTTP_1_1)
-                                        .build();
-        HttpRequest request = HttpRequest.newBuilder()
-                                         .uri(URI.create(query))
-                                         .setHeader("User-Agent", "DiscoAPI")
-                                         .GET()
-                                         .build();
+        HttpRequest request = UpstreamClient.INSTANCE.newRequestBuilder(query).build();
         List<Pkg>   pkgs    = new LinkedList<>();
         try {
-            String      body     = getResponseAsync(client, request);
+            String      body     = getResponseAsync(request);
             Gson        gson     = new Gson();
             JsonElement element  = gson.fromJson(body, JsonElement.class);
             if (element instanceof JsonArray) {
@@ -377,8 +318,8 @@ public class Helper {
         return pkgs;
     }
 
-    private static String getResponseAsync(final HttpClient client, final HttpRequest request) throws ExecutionException, InterruptedException {
-        return client.sendAsync(request, BodyHandlers.ofString()).thenApply(HttpResponse::body).get();
+    private static String getResponseAsync(final HttpRequest request) throws ExecutionException, InterruptedException {
+        return UpstreamClient.INSTANCE.sendAsync(request, BodyHandlers.ofString()).thenApply(HttpResponse::body).get();
     }
 
     private static boolean isVersionNumberInPkg(final VersionNumber versionNumber, final Pkg pkg) {
@@ -422,55 +363,67 @@ public class Helper {
 
     public static Set<String> getFileUrlsFromString(final String text) {
         Set<String> urlsFound = new HashSet<>();
-        FILE_URL_MATCHER.reset(text);
-        while (FILE_URL_MATCHER.find()) {
-            // JDK / JRE -> FILE_URL_MATCHER.group(1)
-            // File URL  -> FILE_URL_MATCHER.group(3)
-            urlsFound.add(FILE_URL_MATCHER.group(3));
+        try (ThreadLocalMatcher.Scope scope = FILE_URL_MATCHER.open(text)) {
+            final Matcher matcher = scope.matcher();
+            while (matcher.find()) {
+                // JDK / JRE -> matcher.group(1)
+                // File URL  -> matcher.group(3)
+                urlsFound.add(matcher.group(3));
+            }
         }
         return urlsFound;
     }
 
     public static Set<Pair<String,String>> getPackageTypeAndFileUrlFromString(final String text) {
         Set<Pair<String,String>> pairsFound = new HashSet<>();
-        FILE_URL_MATCHER.reset(text);
-        while (FILE_URL_MATCHER.find()) {
-            pairsFound.add(new Pair<>(FILE_URL_MATCHER.group(1), FILE_URL_MATCHER.group(3)));
+        try (ThreadLocalMatcher.Scope scope = FILE_URL_MATCHER.open(text)) {
+            final Matcher matcher = scope.matcher();
+            while (matcher.find()) {
+                pairsFound.add(new Pair<>(matcher.group(1), matcher.group(3)));
+            }
         }
         return pairsFound;
     }
 
     public static Set<Pair<String,String>> getFileUrlsAndMd5sFromString(final String text) {
         Set<Pair<String,String>> pairsFound = new HashSet<>();
-        FILE_URL_MD5_MATCHER.reset(text);
-        while(FILE_URL_MD5_MATCHER.find()) {
-            pairsFound.add(new Pair<>(FILE_URL_MD5_MATCHER.group(1), FILE_URL_MD5_MATCHER.group(5)));
+        try (ThreadLocalMatcher.Scope scope = FILE_URL_MD5_MATCHER.open(text)) {
+            final Matcher matcher = scope.matcher();
+            while(matcher.find()) {
+                pairsFound.add(new Pair<>(matcher.group(1), matcher.group(5)));
+            }
         }
         return pairsFound;
     }
 
     public static Set<Pair<String,String>> getFileNameAndSha256FromStringDragonwell8(final String text) {
         Set<Pair<String,String>> pairsFound = new HashSet<>();
-        DRAGONWELL_11_FILE_NAME_SHA256_MATCHER.reset(text);
-        while(DRAGONWELL_11_FILE_NAME_SHA256_MATCHER.find()) {
-            pairsFound.add(new Pair<>(DRAGONWELL_11_FILE_NAME_SHA256_MATCHER.group(1) + DRAGONWELL_11_FILE_NAME_SHA256_MATCHER.group(2), DRAGONWELL_11_FILE_NAME_SHA256_MATCHER.group(4)));
+        try (ThreadLocalMatcher.Scope scope = DRAGONWELL_11_FILE_NAME_SHA256_MATCHER.open(text)) {
+            final Matcher matcher = scope.matcher();
+            while(matcher.find()) {
+                pairsFound.add(new Pair<>(matcher.group(1) + matcher.group(2), matcher.group(4)));
+            }
         }
         return pairsFound;
     }
 
     public static Set<Pair<String,String>> getDragonwell11FileNameAndSha256FromString(final String text) {
         Set<Pair<String,String>> pairsFound = new HashSet<>();
-        DRAGONWELL_11_FILE_NAME_SHA256_MATCHER.reset(text);
-        while(DRAGONWELL_11_FILE_NAME_SHA256_MATCHER.find()) {
-            pairsFound.add(new Pair<>(DRAGONWELL_11_FILE_NAME_SHA256_MATCHER.group(1) + DRAGONWELL_11_FILE_NAME_SHA256_MATCHER.group(2), DRAGONWELL_11_FILE_NAME_SHA256_MATCHER.group(4)));
+        try (ThreadLocalMatcher.Scope scope = DRAGONWELL_11_FILE_NAME_SHA256_MATCHER.open(text)) {
+            final Matcher matcher = scope.matcher();
+            while(matcher.find()) {
+                pairsFound.add(new Pair<>(matcher.group(1) + matcher.group(2), matcher.group(4)));
+            }
         }
         return pairsFound;
     }
 
     public static Set<Pair<String,String>> getDragonwell8FileNameAndSha256FromString(final String text) {
         Set<Pair<String,String>> pairsFound = new HashSet<>();
-        DRAGONWELL_8_FILE_NAME_SHA256_MATCHER.reset(text);
-        final List<MatchResult> results = DRAGONWELL_8_FILE_NAME_SHA256_MATCHER.results().collect(Collectors.toList());
+        final List<MatchResult> results;
+        try (ThreadLocalMatcher.Scope scope = DRAGONWELL_8_FILE_NAME_SHA256_MATCHER.open(text)) {
+            results = scope.matcher().results().collect(Collectors.toList());
+        }
         boolean filenameFound = false;
         String  filename      = "";
         boolean sha256Found   = false;
@@ -505,23 +458,90 @@ public class Helper {
     }
 
     public static Set<String> getFileHrefsFromString(final String text) {
-        Set<String> hrefsFound = new HashSet<>();
-        HREF_FILE_MATCHER.reset(text);
-        while (HREF_FILE_MATCHER.find()) {
-            hrefsFound.add(HREF_FILE_MATCHER.group(1));
+        try {
+            return getFileHrefs(new StringReader(text));
+        } catch (IOException e) {
+            return new HashSet<>();
         }
-        return hrefsFound;
     }
 
     public static Set<String> getDownloadHrefsFromString(final String text) {
-        Set<String> hrefsFound = new HashSet<>();
-        HREF_DOWNLOAD_MATCHER.reset(text);
-        while (HREF_DOWNLOAD_MATCHER.find()) {
-            hrefsFound.add(HREF_DOWNLOAD_MATCHER.group(2).trim().replaceFirst("\\h", ""));
+        try {
+            return getDownloadHrefs(new StringReader(text));
+        } catch (IOException e) {
+            return new HashSet<>();
+        }
+    }
+
+    /**
+     * Returns all hrefs that link to a package file on the html page with the given url.
+     * The page will be tokenized while it is read from the response stream.
+     * @param url The url of the html page
+     * @return all hrefs that link to a package file
+     * @throws Exception
+     */
+    public static Set<String> getFileHrefsFromUrl(final String url) throws Exception {
+        try (UpstreamResponse response = fetch(url)) {
+            if (response.getStatusCode() != 200) {
+                throw new IOException("Error fetching text from " + url + " (" + response.getStatusCode() + ")");
+            }
+            try (Reader reader = new InputStreamReader(response.getBodyStream(), UTF_8)) {
+                return getFileHrefs(reader);
+            }
         }
+    }
+
+    /**
+     * Returns all texts on the html page with the given url that look like the filename of
+     * a package (e.g. jdk-8u281-linux-x64.tar.gz). The page will be tokenized while it is
+     * read from the response stream.
+     * @param url The url of the html page
+     * @return all texts that look like the filename of a package
+     * @throws Exception
+     */
+    public static Set<String> getDownloadHrefsFromUrl(final String url) throws Exception {
+        try (UpstreamResponse response = fetch(url)) {
+            if (response.getStatusCode() != 200) {
+                throw new IOException("Error fetching text from " + url + " (" + response.getStatusCode() + ")");
+            }
+            try (Reader reader = new InputStreamReader(response.getBodyStream(), UTF_8)) {
+                return getDownloadHrefs(reader);
+            }
+        }
+    }
+
+    private static Set<String> getFileHrefs(final Reader reader) throws IOException {
+        final Set<String> hrefsFound = new HashSet<>();
+        HtmlTokenizer.tokenize(reader, new HtmlTokenizer.Handler() {
+            @Override public void onHref(final String tagName, final String href) {
+                if (FILE_HREF_SUFFIXES.stream().anyMatch(href::endsWith)) { hrefsFound.add(href); }
+            }
+        });
+        return hrefsFound;
+    }
+
+    private static Set<String> getDownloadHrefs(final Reader reader) throws IOException {
+        final Set<String> hrefsFound = new HashSet<>();
+        HtmlTokenizer.tokenize(reader, new HtmlTokenizer.Handler() {
+            @Override public void onText(final String text) {
+                final String candidate = stripLeadingHorizontalWhitespace(text.trim());
+                if (DOWNLOAD_TEXT_MATCHER.reset(candidate).matches()) { hrefsFound.add(candidate); }
+            }
+        });
         return hrefsFound;
     }
 
+    // Same as replaceFirst("^\\h+", "") without compiling a pattern for each text
+    private static String stripLeadingHorizontalWhitespace(final String text) {
+        int start = 0;
+        while (start < text.length() && isHorizontalWhitespace(text.charAt(start))) { start++; }
+        return 0 == start ? text : text.substring(start);
+    }
+
+    private static boolean isHorizontalWhitespace(final char c) {
+        return ' ' == c || '\t' == c || '\u00A0' == c || '\u1680' == c || '\u180e' == c || (c >= '\u2000' && c <= '\u200a') || '\u202f' == c || '\u205f' == c || '\u3000' == c;
+    }
+
     public static String getFileNameFromText(final String text) {
         if (getFileEnding(text) == ArchiveType.NONE) { return ""; }
         int    lastSlash = text.lastIndexOf("/") + 1;
@@ -605,9 +625,59 @@ public class Helper {
     }
 
     public static String getTextFromUrl(final String url) throws Exception {
-        try (var stream = URI.create(url).toURL().openStream()) {
-            return new String(stream.readAllBytes(), UTF_8);
+        try (UpstreamResponse response = fetch(url)) {
+            if (response.getStatusCode() != 200) {
+                throw new IOException("Error fetching text from " + url + " (" + response.getStatusCode() + ")");
+            }
+            return response.getBody();
+        }
+    }
+
+    /**
+     * Reads the given json stream and calls the given consumer for each object found.
+     * If the stream contains an array, the objects in the array will be parsed one after
+     * the other, which means only one of them is kept in memory at a time.
+     * @param inputStream The stream that contains a json array or a json object
+     * @param consumer The consumer that will be called for each json object
+     * @throws IOException
+     */
+    public static void forEachJsonObject(final InputStream inputStream, final Consumer<JsonObject> consumer) throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(inputStream, UTF_8))) {
+            reader.setLenient(true);
+            final JsonToken token = reader.peek();
+            if (JsonToken.BEGIN_ARRAY == token) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    JsonElement element = JsonParser.parseReader(reader);
+                    if (element.isJsonObject()) { consumer.accept(element.getAsJsonObject()); }
+                }
+                reader.endArray();
+            } else if (JsonToken.BEGIN_OBJECT == token) {
+                consumer.accept(JsonParser.parseReader(reader).getAsJsonObject());
+            }
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Error parsing json stream. " + e.getMessage(), e);
+        }
+    }
+
+    public static JsonArray toJsonArray(final JsonObject jsonObj) {
+        JsonArray jsonArray = new JsonArray();
+        jsonArray.add(jsonObj);
+        return jsonArray;
+    }
+
+    public static <T> List<List<T>> partition(final Collection<T> items, final int batchSize) {
+        final List<List<T>> batches = new ArrayList<>();
+        List<T> batch = new ArrayList<>(batchSize);
+        for (T item : items) {
+            batch.add(item);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>(batchSize);
+            }
         }
+        if (!batch.isEmpty()) { batches.add(batch); }
+        return batches;
     }
 
     public static int getLeadingNumbers(final String text) {
@@ -837,12 +907,7 @@ public class Helper {
     }
 
     public static final OperatingSystem fetchOperatingSystem(final String text) {
-        return Constants.OPERATING_SYSTEM_LOOKUP.entrySet()
-                                                .stream()
-                                                .filter(entry -> text.contains(entry.getKey()))
-                                                .findFirst()
-                                                .map(Entry::getValue)
-                                                .orElse(OperatingSystem.NOT_FOUND);
+        return FilenameClassifier.INSTANCE.classify(text).getOperatingSystem().orElse(OperatingSystem.NOT_FOUND);
     }
 
     public static final OperatingSystem fetchOperatingSystemByArchiveType(final String text) {
@@ -855,60 +920,32 @@ public class Helper {
     }
 
     public static final Architecture fetchArchitecture(final String text) {
-        return Constants.ARCHITECTURE_LOOKUP.entrySet()
-                                            .stream()
-                                            .filter(entry -> text.contains(entry.getKey()))
-                                            .findFirst()
-                                            .map(Entry::getValue)
-                                            .orElse(Architecture.NOT_FOUND);
+        return FilenameClassifier.INSTANCE.classify(text).getArchitecture().orElse(Architecture.NOT_FOUND);
     }
 
     public static final ArchiveType fetchArchiveType(final String text) {
-        return Constants.ARCHIVE_TYPE_LOOKUP.entrySet()
-                                            .stream()
-                                            .filter(entry -> text.endsWith(entry.getKey()))
-                                            .findFirst()
-                                            .map(Entry::getValue)
-                                            .orElse(ArchiveType.NOT_FOUND);
+        return FilenameClassifier.INSTANCE.classify(text).getArchiveTypeBySuffix().orElse(ArchiveType.NOT_FOUND);
     }
 
     public static final PackageType fetchPackageType(final String text) {
-        return Constants.PACKAGE_TYPE_LOOKUP.entrySet()
-                                            .stream()
-                                            .filter(entry -> text.contains(entry.getKey()))
-                                            .findFirst()
-                                            .map(Entry::getValue)
-                                            .orElse(PackageType.NOT_FOUND);
+        return FilenameClassifier.INSTANCE.classify(text).getPackageType().orElse(PackageType.NOT_FOUND);
     }
 
     public static final ReleaseStatus fetchReleaseStatus(final String text) {
-        return Constants.RELEASE_STATUS_LOOKUP.entrySet()
-                                              .stream()
-                                              .filter(entry -> text.contains(entry.getKey()))
-                                              .findFirst()
-                                              .map(Entry::getValue)
-                                              .orElse(ReleaseStatus.NOT_FOUND);
+        return FilenameClassifier.INSTANCE.classify(text).getReleaseStatus().orElse(ReleaseStatus.NOT_FOUND);
     }
 
 
     // ******************** REST calls ****************************************
     public static final String get(final String uri) {
-        HttpClient  client  = HttpClient.newBuilder()
-                                        .followRedirects(Redirect.NORMAL)
-                                        .version(Version.HTTP_1_1)
-                                        .build();
-        HttpRequest request = HttpRequest.newBuilder()
-                                         .uri(URI.create(uri))
-                                         .GET()
-                                         .build();
         try {
-            HttpResponse<String> response  = client.send(request, BodyHandlers.ofString());
-            if (response.statusCode() == 200) {
-                return response.body();
+            UpstreamResponse response = fetch(uri);
+            if (response.getStatusCode() == 200) {
+                return response.getBody();
             } else {
                 // Problem with url request
                 LOGGER.debug("Error executing get request {}", uri);
-                LOGGER.debug("Response ({}) {} ", response.statusCode(), response.body());
+                LOGGER.debug("Response ({}) {} ", response.getStatusCode(), response.getBody());
                 return "";
             }
         } catch (InterruptedException | IOException e) {
@@ -917,13 +954,47 @@ public class Helper {
         }
     }
 
+    /**
+     * Sends a GET request to the given uri. If a response for the given uri was stored in the
+     * ResponseCache before, the request will be sent as conditional request and in case the
+     * upstream server answers with 304 Not Modified, the stored body will be returned with
+     * status code 200. Responses that contain an ETag or Last-Modified header will be stored
+     * in the ResponseCache.
+     * @param uri The uri that should be requested
+     * @return the response of the upstream server or the stored response if not modified
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static final UpstreamResponse fetch(final String uri) throws IOException, InterruptedException {
+        final UpstreamClient            client        = UpstreamClient.INSTANCE;
+        final ResponseCache             responseCache = ResponseCache.INSTANCE;
+        final HttpRequest.Builder       builder       = client.newRequestBuilder(uri);
+        final HttpResponse<InputStream> response      = client.send(responseCache.addValidators(uri, builder).build(), BodyHandlers.ofInputStream());
+        if (response.statusCode() == 304) {
+            response.body().close();
+            final Optional<Path> cachedBody = responseCache.getBody(uri);
+            if (cachedBody.isPresent()) {
+                return new UpstreamResponse(200, response.headers(), cachedBody.get(), true);
+            }
+            // Cached body is gone, invalidate the entry and fetch the full response again
+            responseCache.remove(uri);
+            return toUpstreamResponse(uri, client.send(client.newRequestBuilder(uri).build(), BodyHandlers.ofInputStream()));
+        }
+        return toUpstreamResponse(uri, response);
+    }
+
+    private static UpstreamResponse toUpstreamResponse(final String uri, final HttpResponse<InputStream> response) throws IOException {
+        if (response.statusCode() == 200 && ResponseCache.INSTANCE.isCacheable(response.headers())) {
+            try (InputStream body = response.body()) {
+                return new UpstreamResponse(200, response.headers(), ResponseCache.INSTANCE.store(uri, response.headers(), body), false);
+            }
+        }
+        return new UpstreamResponse(response.statusCode(), response.headers(), response.body());
+    }
+
     public static final CompletableFuture<String> getAsync(final String uri) {
-        HttpClient  client  = HttpClient.newBuilder().followRedirects(Redirect.NEVER).version(Version.HTTP_1_1).build();
-        HttpRequest request = HttpRequest.newBuilder()
-                                         .uri(URI.create(uri))
-                                         .GET()
-                                         .build();
-        return client.sendAsync(request, BodyHandlers.ofString())
+        HttpRequest request = UpstreamClient.INSTANCE.newRequestBuilder(uri).build();
+        return UpstreamClient.INSTANCE.sendAsync(request, BodyHandlers.ofString())
                      .thenApply(HttpResponse::body);
     }
 }
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+
+
+/**
+ * Tokenizes html read from a Reader in chunks and hands the href attributes of all tags
+ * and all text between tags to the given Handler while reading. Only the current tag or
+ * text will be kept in memory and each character is read once, so scraping a page takes
+ * linear time and bounded memory independent of the size of the page. Attribute values and
+ * texts longer than MAX_TOKEN_LENGTH will be truncated, comments and the content of script
+ * and style elements will be skipped. Entities won't be decoded.
+ */
+public class HtmlTokenizer {
+    public  static final int    MAX_TOKEN_LENGTH = 8192;
+    private static final int    BUFFER_SIZE      = 8192;
+    private static final int    EOF              = -1;
+    private static final String HREF             = "href";
+
+    private final Reader        reader;
+    private final Handler       handler;
+    private final char[]        buffer;
+    private final StringBuilder token;
+    private       int           position;
+    private       int           limit;
+
+
+    public interface Handler {
+        /**
+         * Will be called for each href attribute found in a tag
+         * @param tagName The lower case name of the tag (e.g. a or link)
+         * @param href The raw value of the href attribute
+         */
+        default void onHref(final String tagName, final String href) {}
+
+        /**
+         * Will be called for each non blank text found between two tags
+         * @param text The raw text between two tags
+         */
+        default void onText(final String text) {}
+    }
+
+
+    private HtmlTokenizer(final Reader reader, final Handler handler) {
+        this.reader   = reader;
+        this.handler  = handler;
+        this.buffer   = new char[BUFFER_SIZE];
+        this.token    = new StringBuilder();
+        this.position = 0;
+        this.limit    = 0;
+    }
+
+
+    /**
+     * Reads the html from the given reader until the end and calls the given handler
+     * for each href and text found. The reader won't be closed.
+     * @param reader The reader that provides the html
+     * @param handler The handler that will be called for each href and text
+     * @throws IOException
+     */
+    public static void tokenize(final Reader reader, final Handler handler) throws IOException {
+        new HtmlTokenizer(reader, handler).tokenize();
+    }
+
+    private void tokenize() throws IOException {
+        int c = read();
+        while (EOF != c) {
+            if ('<' == c) {
+                emitText();
+                c = readMarkup();
+            } else {
+                append(c);
+                c = read();
+            }
+        }
+        emitText();
+    }
+
+    // Reads the markup after '<' and returns the first character after it
+    private int readMarkup() throws IOException {
+        int c = read();
+        if ('!' == c) {
+            c = read();
+            if ('-' == c && '-' == (c = read())) {
+                skipUntil("-->");
+                return read();
+            }
+            while (EOF != c && '>' != c) { c = read(); }
+            return read();
+        }
+        if ('/' == c || '?' == c) {
+            while (EOF != c && '>' != c) { c = read(); }
+            return read();
+        }
+        if (!Character.isLetter(c)) {
+            // Not a tag, e.g. "a < b"
+            append('<');
+            return c;
+        }
+
+        final String tagName = readName(c).toLowerCase(Locale.ENGLISH);
+        c = peek();
+        while (EOF != c && '>' != c) {
+            if (Character.isWhitespace(c) || '/' == c) {
+                read();
+                c = peek();
+                continue;
+            }
+            final String attributeName = readName(read());
+            c = skipWhitespace();
+            if ('=' == c) {
+                read();
+                c = skipWhitespace();
+                final String value = readValue();
+                if (HREF.equalsIgnoreCase(attributeName)) { handler.onHref(tagName, value); }
+                c = peek();
+            }
+        }
+        read();
+        token.setLength(0);
+
+        if ("script".equals(tagName) || "style".equals(tagName)) {
+            // Skip the content and the rest of the end tag including its '>'
+            skipUntil("</" + tagName);
+            c = read();
+            while (EOF != c && '>' != c) { c = read(); }
+        }
+        return read();
+    }
+
+    private String readName(int c) throws IOException {
+        token.setLength(0);
+        token.append((char) c);
+        c = peek();
+        while (EOF != c && '>' != c && '=' != c && '/' != c && !Character.isWhitespace(c)) {
+            if (token.length() < MAX_TOKEN_LENGTH) { token.append((char) read()); } else { read(); }
+            c = peek();
+        }
+        return token.toString();
+    }
+
+    private String readValue() throws IOException {
+        token.setLength(0);
+        int c = peek();
+        if ('"' == c || '\'' == c) {
+            final int quote = read();
+            c = read();
+            while (EOF != c && quote != c) {
+                if (token.length() < MAX_TOKEN_LENGTH) { token.append((char) c); }
+                c = read();
+            }
+        } else {
+            while (EOF != c && '>' != c && !Character.isWhitespace(c)) {
+                if (token.length() < MAX_TOKEN_LENGTH) { token.append((char) read()); } else { read(); }
+                c = peek();
+            }
+        }
+        return token.toString();
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c = peek();
+        while (EOF != c && Character.isWhitespace(c)) {
+            read();
+            c = peek();
+        }
+        return c;
+    }
+
+    // Skips all characters up to and including the given (lower case) delimiter, ignoring the case
+    private void skipUntil(final String delimiter) throws IOException {
+        final int    length = delimiter.length();
+        final char[] window = new char[length];
+        int          count  = 0;
+        int          c      = read();
+        while (EOF != c) {
+            System.arraycopy(window, 1, window, 0, length - 1);
+            window[length - 1] = Character.toLowerCase((char) c);
+            if (++count >= length && isDelimiter(window, delimiter)) { return; }
+            c = read();
+        }
+    }
+
+    private static boolean isDelimiter(final char[] window, final String delimiter) {
+        for (int i = 0 ; i < window.length ; i++) {
+            if (window[i] != delimiter.charAt(i)) { return false; }
+        }
+        return true;
+    }
+
+    private void append(final int c) {
+        if (token.length() < MAX_TOKEN_LENGTH) { token.append((char) c); }
+    }
+
+    private void emitText() {
+        if (token.length() > 0) {
+            final String text = token.toString();
+            token.setLength(0);
+            if (!text.isBlank()) { handler.onText(text); }
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) { return EOF; }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) { return EOF; }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        final int length = reader.read(buffer, 0, BUFFER_SIZE);
+        if (length <= 0) { return false; }
+        position = 0;
+        limit    = length;
+        return true;
+    }
+}
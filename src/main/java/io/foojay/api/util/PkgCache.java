@@ -19,57 +19,241 @@
 
 package io.foojay.api.util;
 
+import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
+/**
+ * Holds the packages in immutable generations. Readers always see one complete generation
+ * (packages, latest build flags, filename index and major versions) and never block. Writers
+ * prepare a Draft off to the side and publish it with one volatile swap, old generations will
+ * be garbage collected as soon as the last reader dropped its reference.
+ * Packages of a published generation must not be modified, use Draft.setLatestBuildAvailable()
+ * which copies the package on first write.
+ */
 public class PkgCache<T extends String, U extends Pkg> implements Cache<T, U> {
     private static final Logger LOGGER = LoggerFactory.getLogger(PkgCache.class);
 
-    private final ConcurrentHashMap<T, U> cache = new ConcurrentHashMap<>();
+    private final    Function<Collection<U>, List<MajorVersion>> majorVersionsFunction;
+    private volatile Generation<T, U>                            generation;
+
+
+    public PkgCache(final Function<Collection<U>, List<MajorVersion>> majorVersionsFunction) {
+        this.majorVersionsFunction = majorVersionsFunction;
+        this.generation            = new Generation<>(0, Map.of(), Set.of(), List.of());
+    }
+
 
     @Override public void add(final T key, final U pkg) {
         if (null == key) { return; }
+        final Draft<T, U> draft = draft();
         if (null == pkg) {
             LOGGER.debug("Package cannot be null -> removed key {}", key);
-            cache.remove(key);
+            draft.remove(key);
         } else {
-            cache.put(key, pkg);
+            draft.put(key, pkg);
         }
+        publish(draft);
     }
 
     @Override public U get(final T key) {
-        if (null == key || !cache.containsKey(key)) { return null; }
-        return cache.get(key);
+        if (null == key) { return null; }
+        return generation.pkgs.get(key);
     }
 
     @Override public void remove(final T key) {
-        cache.remove(key);
+        final Draft<T, U> draft = draft();
+        draft.remove(key);
+        publish(draft);
+    }
+
+    public void removeAll(final Collection<T> keys) {
+        final Draft<T, U> draft = draft();
+        keys.forEach(draft::remove);
+        publish(draft);
     }
 
     @Override public void clear() {
         LOGGER.debug("Package cache cleared");
-        cache.clear();
+        synchronized (this) {
+            generation = new Generation<>(generation.number + 1, Map.of(), Set.of(), List.of());
+        }
     }
 
     @Override public long size() {
-        return cache.size();
+        return generation.pkgs.size();
     }
 
-    @Override public boolean isEmpty() { return cache.isEmpty(); }
+    @Override public boolean isEmpty() { return generation.pkgs.isEmpty(); }
 
-    public boolean containsKey(final T key) { return cache.containsKey(key); }
+    public boolean containsKey(final T key) { return generation.pkgs.containsKey(key); }
 
-    public Set<Entry<T,U>> getEntrySet() { return cache.entrySet(); }
+    public Set<Entry<T,U>> getEntrySet() { return generation.pkgs.entrySet(); }
 
-    public Collection<T> getKeys() { return cache.keySet(); }
+    public Collection<T> getKeys() { return generation.pkgs.keySet(); }
+
+    public Collection<U> getPkgs() { return generation.pkgs.values(); }
+
+    public Set<String> getFileNames() { return generation.fileNames; }
+
+    public List<MajorVersion> getMajorVersions() { return generation.majorVersions; }
+
+    /**
+     * Returns the current generation. Use it if more than one value is needed to get a consistent view.
+     * @return the current generation
+     */
+    public Generation<T, U> getGeneration() { return generation; }
+
+    /**
+     * Returns a new draft based on the current generation. Changes to the draft will be invisible
+     * to readers until the draft is published.
+     * @return a new draft based on the current generation
+     */
+    public Draft<T, U> draft() { return new Draft<>(generation); }
+
+    /**
+     * Publishes the given draft as the new generation. If another generation was published since
+     * the draft was created, the changes of the draft will be applied to that newer generation.
+     * @param draft The draft that should be published
+     */
+    public synchronized void publish(final Draft<T, U> draft) {
+        final Generation<T, U> current = generation;
+        final Map<T, U>        pkgs    = new HashMap<>(current.pkgs);
+        draft.removed.forEach(pkgs::remove);
+        draft.changed.forEach((key, pkg) -> {
+            // Don't bring back packages that have been removed in the meantime
+            if (pkgs.containsKey(key) || draft.added.contains(key)) { pkgs.put(key, pkg); }
+        });
+        generation = createGeneration(current.number + 1, pkgs);
+        LOGGER.debug("Published package cache generation {} with {} packages", generation.number, pkgs.size());
+    }
+
+    /**
+     * Publishes the packages of the current generation again with newly derived major versions
+     */
+    public synchronized void refresh() {
+        generation = createGeneration(generation.number + 1, new HashMap<>(generation.pkgs));
+    }
+
+    private Generation<T, U> createGeneration(final long number, final Map<T, U> pkgs) {
+        final Set<String> fileNames = pkgs.values().stream().map(Pkg::getFileName).collect(Collectors.toSet());
+        return new Generation<>(number, Collections.unmodifiableMap(pkgs), Collections.unmodifiableSet(fileNames), List.copyOf(majorVersionsFunction.apply(pkgs.values())));
+    }
+
+
+    public static final class Generation<T extends String, U extends Pkg> {
+        private final long               number;
+        private final Map<T, U>          pkgs;
+        private final Set<String>        fileNames;
+        private final List<MajorVersion> majorVersions;
+
+
+        private Generation(final long number, final Map<T, U> pkgs, final Set<String> fileNames, final List<MajorVersion> majorVersions) {
+            this.number        = number;
+            this.pkgs          = pkgs;
+            this.fileNames     = fileNames;
+            this.majorVersions = majorVersions;
+        }
 
-    public Collection<U> getPkgs() { return cache.values(); }
-}
 
+        public long getNumber() { return number; }
+
+        public Map<T, U> getPkgs() { return pkgs; }
+
+        public Set<String> getFileNames() { return fileNames; }
+
+        public List<MajorVersion> getMajorVersions() { return majorVersions; }
+    }
+
+
+    public static final class Draft<T extends String, U extends Pkg> {
+        private final Map<T, U> pkgs;
+        private final Map<T, U> changed;
+        private final Set<T>    added;
+        private final Set<T>    removed;
+        private final Set<T>    latestBuildAvailableChanged;
+
+
+        private Draft(final Generation<T, U> base) {
+            this.pkgs                        = new HashMap<>(base.pkgs);
+            this.changed                     = new HashMap<>();
+            this.added                       = new HashSet<>();
+            this.removed                     = new HashSet<>();
+            this.latestBuildAvailableChanged = new HashSet<>();
+        }
+
+
+        public void put(final T key, final U pkg) {
+            if (null == key || null == pkg) { return; }
+            pkgs.put(key, pkg);
+            changed.put(key, pkg);
+            added.add(key);
+            removed.remove(key);
+        }
+
+        public U get(final T key) { return pkgs.get(key); }
+
+        public void remove(final T key) {
+            if (null == key) { return; }
+            pkgs.remove(key);
+            changed.remove(key);
+            added.remove(key);
+            removed.add(key);
+        }
+
+        public boolean containsKey(final T key) { return pkgs.containsKey(key); }
+
+        public Collection<U> getPkgs() { return pkgs.values(); }
+
+        public Set<T> getAdded() { return Collections.unmodifiableSet(added); }
+
+        public Set<T> getRemoved() { return Collections.unmodifiableSet(removed); }
+
+        /**
+         * Returns the ids of all packages whose latest build flag has been changed by
+         * setLatestBuildAvailable() in this draft
+         * @return the ids of all packages whose latest build flag has been changed
+         */
+        public Set<T> getLatestBuildAvailableChanged() { return Collections.unmodifiableSet(latestBuildAvailableChanged); }
+
+        /**
+         * Sets the latest build flag of the package with the id of the given package. Packages
+         * of the published generation will be copied before they are modified. Packages that are
+         * not part of the draft are not visible to readers and will be modified directly.
+         * @param pkg The package that should be modified
+         * @param latestBuildAvailable The new value of the latest build flag
+         */
+        @SuppressWarnings("unchecked")
+        public void setLatestBuildAvailable(final U pkg, final boolean latestBuildAvailable) {
+            final T key     = (T) pkg.getId();
+            final U current = pkgs.get(key);
+            if (null == current) {
+                if (pkg.isLatestBuildAvailable() != latestBuildAvailable) { latestBuildAvailableChanged.add(key); }
+                pkg.setLatestBuildAvailable(latestBuildAvailable);
+            } else if (current.isLatestBuildAvailable() != latestBuildAvailable) {
+                latestBuildAvailableChanged.add(key);
+                if (changed.get(key) == current) {
+                    current.setLatestBuildAvailable(latestBuildAvailable);
+                } else {
+                    final U copy = (U) new Pkg(current);
+                    copy.setLatestBuildAvailable(latestBuildAvailable);
+                    pkgs.put(key, copy);
+                    changed.put(key, copy);
+                }
+            }
+        }
+    }
+}
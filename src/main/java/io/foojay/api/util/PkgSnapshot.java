@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.util;
+
+import io.foojay.api.pkg.Architecture;
+import io.foojay.api.pkg.ArchiveType;
+import io.foojay.api.pkg.Distro;
+import io.foojay.api.pkg.LibCType;
+import io.foojay.api.pkg.OperatingSystem;
+import io.foojay.api.pkg.PackageType;
+import io.foojay.api.pkg.Pkg;
+import io.foojay.api.pkg.ReleaseStatus;
+import io.foojay.api.pkg.TermOfSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+
+/**
+ * A compact binary copy of the package cache on the local disk, that will be loaded on startup
+ * before the packages from mongodb are available.
+ * The file contains a header (magic, format version, creation time, ephemeral id epoch), a table
+ * of all distinct strings, one fixed size record per package that refers to the string table, a
+ * list of the packages that were not yet persisted when the snapshot was written (by their record
+ * index) and a CRC32 checksum. The packages store the same fields as PkgCodec, all other fields will be derived
+ * when the package is created. Enum values are stored by name, so a snapshot that contains a value
+ * which doesn't exist anymore will be rejected like a snapshot of another format version.
+ */
+public class PkgSnapshot {
+    private static final Logger    LOGGER         = LoggerFactory.getLogger(PkgSnapshot.class);
+    private static final int       MAGIC          = 0x44534E50; // DSNP
+    private static final int       VERSION        = 2;
+    private static final int       HEADER_SIZE    = 4 + 4 + 8 + 8;
+    private static final int       FIELDS_PER_PKG = 13;
+    private static final int       FLAG_LATEST    = 1;
+    private static final int       FLAG_JAVAFX    = 2;
+    private static final int       FLAG_DIRECTLY  = 4;
+    private static final String    TMP_SUFFIX     = ".tmp";
+    private        final List<Pkg>   pkgs;
+    private        final Set<String> pendingPkgIds;
+    private        final long        ephemeralIdEpoch;
+    private        final Instant     created;
+
+
+    private PkgSnapshot(final List<Pkg> pkgs, final Set<String> pendingPkgIds, final long ephemeralIdEpoch, final Instant created) {
+        this.pkgs             = Collections.unmodifiableList(pkgs);
+        this.pendingPkgIds    = Collections.unmodifiableSet(pendingPkgIds);
+        this.ephemeralIdEpoch = ephemeralIdEpoch;
+        this.created          = created;
+    }
+
+
+    public List<Pkg> getPkgs() { return pkgs; }
+
+    /**
+     * Returns the ids of the packages that had not been written to the database when the snapshot was written
+     * @return the ids of the packages that had not been written to the database
+     */
+    public Set<String> getPendingPkgIds() { return pendingPkgIds; }
+
+    public long getEphemeralIdEpoch() { return ephemeralIdEpoch; }
+
+    public Instant getCreated() { return created; }
+
+    /**
+     * Writes the given packages to a temporary file that replaces the snapshot at the given path
+     * atomically, so a reader will either see the old or the new snapshot
+     * @param path The path of the snapshot
+     * @param pkgs The packages of the package cache
+     * @param pendingPkgIds The ids of the packages that have not been written to the database yet
+     * @param ephemeralIdEpoch The epoch that was used to create the ephemeral ids of the packages
+     * @throws IOException
+     */
+    public static void write(final Path path, final Collection<Pkg> pkgs, final Set<String> pendingPkgIds, final long ephemeralIdEpoch) throws IOException {
+        final Map<String, Integer> indices = new HashMap<>();
+        final List<String>         strings = new ArrayList<>();
+        final int[]                fields  = new int[pkgs.size() * FIELDS_PER_PKG];
+        final byte[]               flags   = new byte[pkgs.size()];
+        final List<Integer>        pending = new ArrayList<>();
+        int i = 0;
+        for (Pkg pkg : pkgs) {
+            final int offset = i * FIELDS_PER_PKG;
+            fields[offset]      = index(pkg.getDistribution().getDistro().name(), indices, strings);
+            fields[offset + 1]  = index(String.valueOf(pkg.getSemver()), indices, strings);
+            fields[offset + 2]  = index(pkg.getDistributionVersion().toStringInclBuild(true), indices, strings);
+            fields[offset + 3]  = index(pkg.getArchitecture().name(), indices, strings);
+            fields[offset + 4]  = index(pkg.getOperatingSystem().name(), indices, strings);
+            fields[offset + 5]  = index(pkg.getLibCType().name(), indices, strings);
+            fields[offset + 6]  = index(pkg.getPackageType().name(), indices, strings);
+            fields[offset + 7]  = index(pkg.getReleaseStatus().name(), indices, strings);
+            fields[offset + 8]  = index(pkg.getArchiveType().name(), indices, strings);
+            fields[offset + 9]  = index(pkg.getTermOfSupport().name(), indices, strings);
+            fields[offset + 10] = index(String.valueOf(pkg.getFileName()), indices, strings);
+            fields[offset + 11] = index(String.valueOf(pkg.getDirectDownloadUri()), indices, strings);
+            fields[offset + 12] = index(String.valueOf(pkg.getDownloadSiteUri()), indices, strings);
+            flags[i]            = (byte) ((pkg.isLatestBuildAvailable() ? FLAG_LATEST : 0) | (pkg.isJavaFXBundled() ? FLAG_JAVAFX : 0) | (pkg.isDirectlyDownloadable() ? FLAG_DIRECTLY : 0));
+            if (pendingPkgIds.contains(pkg.getId())) { pending.add(i); }
+            i++;
+        }
+
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        final Path tmpPath = path.resolveSibling(path.getFileName() + TMP_SUFFIX);
+        final CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(ephemeralIdEpoch);
+            out.writeInt(strings.size());
+            for (String string : strings) {
+                final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(flags.length);
+            for (int pkg = 0; pkg < flags.length; pkg++) {
+                for (int field = 0; field < FIELDS_PER_PKG; field++) { out.writeInt(fields[pkg * FIELDS_PER_PKG + field]); }
+                out.writeByte(flags[pkg]);
+            }
+            out.writeInt(pending.size());
+            for (int pkg : pending) { out.writeInt(pkg); }
+        }
+        // The checksum covers everything before it
+        appendChecksum(tmpPath, crc.getValue());
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Memory maps the snapshot at the given path and creates its packages
+     * @param path The path of the snapshot
+     * @return the snapshot or an empty optional if it doesn't exist or can't be used
+     */
+    public static Optional<PkgSnapshot> read(final Path path) {
+        if (!Files.isRegularFile(path)) { return Optional.empty(); }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_SIZE + 8 || size > Integer.MAX_VALUE) {
+                LOGGER.warn("Ignoring package snapshot {} with invalid size {}", path, size);
+                return Optional.empty();
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (MAGIC != buffer.getInt() || VERSION != buffer.getInt()) {
+                LOGGER.warn("Ignoring package snapshot {} of unknown format", path);
+                return Optional.empty();
+            }
+            final CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit((int) size - 8));
+            if (crc.getValue() != buffer.getLong((int) size - 8)) {
+                LOGGER.warn("Ignoring corrupt package snapshot {}", path);
+                return Optional.empty();
+            }
+            final Instant created          = Instant.ofEpochMilli(buffer.getLong());
+            final long    ephemeralIdEpoch = buffer.getLong();
+
+            final String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                final byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            final int       noOfPkgs = buffer.getInt();
+            final List<Pkg> pkgs     = new ArrayList<>(noOfPkgs);
+            for (int i = 0; i < noOfPkgs; i++) {
+                final Distro          distro              = Distro.valueOf(strings[buffer.getInt()]);
+                final String          javaVersion         = strings[buffer.getInt()];
+                final String          distributionVersion = strings[buffer.getInt()];
+                final Architecture    architecture        = Architecture.valueOf(strings[buffer.getInt()]);
+                final OperatingSystem operatingSystem     = OperatingSystem.valueOf(strings[buffer.getInt()]);
+                final LibCType        libCType            = LibCType.valueOf(strings[buffer.getInt()]);
+                final PackageType     packageType         = PackageType.valueOf(strings[buffer.getInt()]);
+                final ReleaseStatus   releaseStatus       = ReleaseStatus.valueOf(strings[buffer.getInt()]);
+                final ArchiveType     archiveType         = ArchiveType.valueOf(strings[buffer.getInt()]);
+                final TermOfSupport   termOfSupport       = TermOfSupport.valueOf(strings[buffer.getInt()]);
+                final String          filename            = strings[buffer.getInt()];
+                final String          directDownloadUri   = strings[buffer.getInt()];
+                final String          downloadSiteUri     = strings[buffer.getInt()];
+                final byte            flags               = buffer.get();
+                pkgs.add(new Pkg(distro, javaVersion, distributionVersion, (flags & FLAG_LATEST) != 0, architecture, operatingSystem, libCType, packageType, releaseStatus,
+                                 archiveType, termOfSupport, (flags & FLAG_JAVAFX) != 0, (flags & FLAG_DIRECTLY) != 0, filename, directDownloadUri, downloadSiteUri));
+            }
+            final int         noOfPendingPkgs = buffer.getInt();
+            final Set<String> pendingPkgIds   = new HashSet<>(noOfPendingPkgs);
+            for (int i = 0; i < noOfPendingPkgs; i++) { pendingPkgIds.add(pkgs.get(buffer.getInt()).getId()); }
+            return Optional.of(new PkgSnapshot(pkgs, pendingPkgIds, ephemeralIdEpoch, created));
+        } catch (IOException | RuntimeException e) {
+            // Also covers unknown enum names, invalid string or package indices and truncated files
+            LOGGER.warn("Ignoring package snapshot {} that can't be read. {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static int index(final String string, final Map<String, Integer> indices, final List<String> strings) {
+        return indices.computeIfAbsent(string, s -> {
+            strings.add(s);
+            return strings.size() - 1;
+        });
+    }
+
+    private static void appendChecksum(final Path path, final long checksum) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(path, StandardOpenOption.APPEND))) {
+            out.writeLong(checksum);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+
+/**
+ * Stores the body of upstream responses together with their ETag and Last-Modified
+ * validators on the local disk, so that subsequent requests to the same url can be
+ * sent as conditional requests (If-None-Match / If-Modified-Since). If the upstream
+ * server answers with 304 Not Modified the stored body will be used instead.
+ * The status code and all headers are stored as well, which makes it possible to use
+ * another folder as store for recorded responses (see UpstreamFixtures).
+ */
+public class ResponseCache {
+    public  static final ResponseCache INSTANCE          = new ResponseCache(Paths.get(Config.INSTANCE.getFoojayResponseCacheFolder()));
+
+    private static final Logger LOGGER                   = LoggerFactory.getLogger(ResponseCache.class);
+
+    public  static final String HEADER_ETAG              = "ETag";
+    public  static final String HEADER_LAST_MODIFIED     = "Last-Modified";
+    public  static final String HEADER_IF_NONE_MATCH     = "If-None-Match";
+    public  static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    private static final String FIELD_URI                = "uri";
+    private static final String FIELD_ETAG               = "etag";
+    private static final String FIELD_LAST_MODIFIED      = "last_modified";
+    private static final String FIELD_STATUS             = "status";
+    private static final String FIELD_HEADER             = "header.";
+    private static final String HEADER_SEPARATOR         = ": ";
+    private static final String BODY_SUFFIX              = ".body";
+    private static final String META_SUFFIX              = ".properties";
+    private static final int    NO_OF_LOCKS              = 64;
+
+    private        final Path     cacheFolder;
+    private        final Object[] locks;
+
+
+    /**
+     * Creates a response cache that stores the responses in the given folder
+     * @param cacheFolder The folder the responses will be stored in
+     */
+    public ResponseCache(final Path cacheFolder) {
+        this.cacheFolder = cacheFolder;
+        this.locks       = new Object[NO_OF_LOCKS];
+        for (int i = 0 ; i < NO_OF_LOCKS ; i++) { locks[i] = new Object(); }
+    }
+
+
+    /**
+     * Adds the If-None-Match and/or If-Modified-Since headers to the given request builder
+     * if validators for the given uri have been stored before
+     * @param uri The uri that will be requested
+     * @param builder The request builder for the given uri
+     * @return the given request builder
+     */
+    public HttpRequest.Builder addValidators(final String uri, final HttpRequest.Builder builder) {
+        final Properties meta = readMeta(uri);
+        if (null == meta || !Files.exists(getBodyPath(uri))) { return builder; }
+        final String eTag         = meta.getProperty(FIELD_ETAG);
+        final String lastModified = meta.getProperty(FIELD_LAST_MODIFIED);
+        if (null != eTag)         { builder.setHeader(HEADER_IF_NONE_MATCH, eTag); }
+        if (null != lastModified) { builder.setHeader(HEADER_IF_MODIFIED_SINCE, lastModified); }
+        return builder;
+    }
+
+    /**
+     * Returns true if the given response headers contain an ETag or Last-Modified validator
+     * @param headers The headers of the response
+     * @return true if the response can be stored in the response cache
+     */
+    public boolean isCacheable(final HttpHeaders headers) {
+        return headers.firstValue(HEADER_ETAG).isPresent() || headers.firstValue(HEADER_LAST_MODIFIED).isPresent();
+    }
+
+    /**
+     * Streams the given body to the disk and stores the validators found in the given headers
+     * for the given uri. The body will never be held in memory completely.
+     * @param uri The uri that was requested
+     * @param headers The headers of the response
+     * @param body The body of the response
+     * @return the path of the stored body
+     * @throws IOException
+     */
+    public Path store(final String uri, final HttpHeaders headers, final InputStream body) throws IOException {
+        return store(uri, 200, headers, body);
+    }
+
+    /**
+     * Streams the given body to the disk and stores the given status code, the given headers
+     * and the validators found in them for the given uri. The body will never be held in memory completely.
+     * @param uri The uri that was requested
+     * @param statusCode The status code of the response
+     * @param headers The headers of the response
+     * @param body The body of the response
+     * @return the path of the stored body
+     * @throws IOException
+     */
+    public Path store(final String uri, final int statusCode, final HttpHeaders headers, final InputStream body) throws IOException {
+        final Properties meta = new Properties();
+        meta.setProperty(FIELD_URI, uri);
+        meta.setProperty(FIELD_STATUS, Integer.toString(statusCode));
+        headers.firstValue(HEADER_ETAG).ifPresent(value -> meta.setProperty(FIELD_ETAG, value));
+        headers.firstValue(HEADER_LAST_MODIFIED).ifPresent(value -> meta.setProperty(FIELD_LAST_MODIFIED, value));
+        int headerCounter = 0;
+        for (Map.Entry<String, List<String>> header : headers.map().entrySet()) {
+            for (String value : header.getValue()) {
+                meta.setProperty(FIELD_HEADER + headerCounter++, header.getKey() + HEADER_SEPARATOR + value);
+            }
+        }
+
+        final Path bodyPath = getBodyPath(uri);
+        try {
+            Files.createDirectories(cacheFolder);
+            final Path bodyFile = Files.createTempFile(cacheFolder, null, BODY_SUFFIX);
+            Files.copy(body, bodyFile, StandardCopyOption.REPLACE_EXISTING);
+
+            // Concurrent stores of the same uri must not pair the body of one response with the validators of another
+            synchronized (getLock(uri)) {
+                Files.move(bodyFile, bodyPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                final Path metaFile = Files.createTempFile(cacheFolder, null, META_SUFFIX);
+                try (OutputStream outputStream = Files.newOutputStream(metaFile)) {
+                    meta.store(outputStream, null);
+                }
+                Files.move(metaFile, getMetaPath(uri), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error storing response for {} in response cache. {}", uri, e.getMessage());
+            remove(uri);
+            throw e;
+        }
+        return bodyPath;
+    }
+
+    /**
+     * Returns the path of the body that was stored for the given uri
+     * @param uri The uri that was requested
+     * @return the path of the body that was stored for the given uri
+     */
+    public Optional<Path> getBody(final String uri) {
+        final Path bodyPath = getBodyPath(uri);
+        return Files.exists(bodyPath) ? Optional.of(bodyPath) : Optional.empty();
+    }
+
+    /**
+     * Returns the response that was stored for the given uri with its status code, its headers
+     * and the stored body
+     * @param uri The uri that was requested
+     * @return the response that was stored for the given uri
+     */
+    public Optional<UpstreamResponse> getResponse(final String uri) {
+        final Properties meta = readMeta(uri);
+        if (null == meta || !Files.exists(getBodyPath(uri))) { return Optional.empty(); }
+        final Map<String, List<String>> headers = new HashMap<>();
+        meta.stringPropertyNames().stream()
+            .filter(name -> name.startsWith(FIELD_HEADER))
+            .sorted(Comparator.comparingInt(name -> Integer.parseInt(name.substring(FIELD_HEADER.length()))))
+            .map(meta::getProperty)
+            .filter(header -> header.contains(HEADER_SEPARATOR))
+            .forEach(header -> {
+                final int separatorIndex = header.indexOf(HEADER_SEPARATOR);
+                headers.computeIfAbsent(header.substring(0, separatorIndex), name -> new ArrayList<>()).add(header.substring(separatorIndex + HEADER_SEPARATOR.length()));
+            });
+        final int statusCode = Integer.parseInt(meta.getProperty(FIELD_STATUS, "200"));
+        return Optional.of(new UpstreamResponse(statusCode, HttpHeaders.of(headers, (name, value) -> true), getBodyPath(uri), true));
+    }
+
+    /**
+     * Removes the stored body and validators for the given uri
+     * @param uri The uri that was requested
+     */
+    public void remove(final String uri) {
+        synchronized (getLock(uri)) {
+            try {
+                Files.deleteIfExists(getMetaPath(uri));
+                Files.deleteIfExists(getBodyPath(uri));
+            } catch (IOException e) {
+                LOGGER.error("Error removing response for {} from response cache. {}", uri, e.getMessage());
+            }
+        }
+    }
+
+    // Striped locks, all stores and removals of the same uri use the same lock
+    private Object getLock(final String uri) { return locks[Math.floorMod(uri.hashCode(), NO_OF_LOCKS)]; }
+
+    private Properties readMeta(final String uri) {
+        final Path metaPath = getMetaPath(uri);
+        if (!Files.exists(metaPath)) { return null; }
+        final Properties meta = new Properties();
+        try (InputStream inputStream = Files.newInputStream(metaPath)) {
+            meta.load(inputStream);
+        } catch (IOException e) {
+            LOGGER.error("Error reading validators for {} from response cache. {}", uri, e.getMessage());
+            return null;
+        }
+        // Protect against hash collisions
+        return uri.equals(meta.getProperty(FIELD_URI)) ? meta : null;
+    }
+
+    private Path getBodyPath(final String uri) { return cacheFolder.resolve(Helper.getSHA1(uri) + BODY_SUFFIX); }
+
+    private Path getMetaPath(final String uri) { return cacheFolder.resolve(Helper.getSHA1(uri) + META_SUFFIX); }
+}
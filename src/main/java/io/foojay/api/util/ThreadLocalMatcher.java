@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Keeps one reusable Matcher of the given pattern per thread. A Matcher is not thread safe,
+ * so static matchers must not be shared by scrapers that run in parallel, but creating a new
+ * Matcher on each call should be avoided too. Use the Matcher returned by reset() only on the
+ * calling thread and don't keep it beyond the current call.
+ * The Matcher of a thread keeps a reference to its last input until the next reset(), which is
+ * fine for short inputs like filenames. Large inputs (e.g. a release body or a page) should be
+ * matched via open() in a try-with-resources block, which releases the input when it's closed.
+ */
+public class ThreadLocalMatcher {
+    private final Pattern              pattern;
+    private final ThreadLocal<Matcher> matcher;
+
+
+    public ThreadLocalMatcher(final Pattern pattern) {
+        this.pattern = pattern;
+        this.matcher = ThreadLocal.withInitial(() -> pattern.matcher(""));
+    }
+
+
+    public Pattern pattern() { return pattern; }
+
+    /**
+     * Returns the Matcher of the current thread reset to the given input
+     * @param input The character sequence to be matched
+     * @return the Matcher of the current thread reset to the given input
+     */
+    public Matcher reset(final CharSequence input) { return matcher.get().reset(input); }
+
+    /**
+     * Returns a scope with the Matcher of the current thread reset to the given input, closing
+     * the scope resets the Matcher to an empty input so the given input will not be retained
+     * @param input The character sequence to be matched
+     * @return a scope with the Matcher of the current thread reset to the given input
+     */
+    public Scope open(final CharSequence input) { return new Scope(reset(input)); }
+
+
+    public static final class Scope implements AutoCloseable {
+        private final Matcher matcher;
+
+
+        private Scope(final Matcher matcher) { this.matcher = matcher; }
+
+
+        public Matcher matcher() { return matcher; }
+
+        @Override public void close() { matcher.reset(""); }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Manages the HttpClients that are used for all upstream calls. There is one client per
+ * host class so that connections and TLS sessions to the same upstream hosts can be reused
+ * and HTTP/2 will be used where the upstream server supports it. All clients share one
+ * executor. Depending on FOOJAY_API_UPSTREAM_MODE responses will be recorded to or replayed
+ * from the UpstreamFixtures. Requests to hosts with an open CircuitBreaker fail fast.
+ */
+public enum UpstreamClient {
+    INSTANCE;
+
+    public enum HostClass {
+        GITHUB,
+        DEFAULT;
+
+        public static HostClass fromUri(final String uri) {
+            final String host = URI.create(uri).getHost();
+            if (null == host) { return DEFAULT; }
+            final String lowerCaseHost = host.toLowerCase();
+            if (lowerCaseHost.equals("github.com") || lowerCaseHost.endsWith(".github.com") || lowerCaseHost.endsWith(".githubusercontent.com")) {
+                return GITHUB;
+            }
+            return DEFAULT;
+        }
+    }
+
+    private final ExecutorService            executor;
+    private final Map<HostClass, HttpClient> clients;
+    private final Duration                   requestTimeout;
+    private final UpstreamMode               mode;
+
+
+    UpstreamClient() {
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        executor       = Executors.newFixedThreadPool(Config.INSTANCE.getFoojayHttpThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "upstream-http-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        requestTimeout = Duration.ofSeconds(Config.INSTANCE.getFoojayRequestTimeout());
+        mode           = Config.INSTANCE.getFoojayUpstreamMode();
+        clients        = new EnumMap<>(HostClass.class);
+        final Duration connectTimeout = Duration.ofSeconds(Config.INSTANCE.getFoojayConnectTimeout());
+        for (HostClass hostClass : HostClass.values()) {
+            clients.put(hostClass, HttpClient.newBuilder()
+                                             .followRedirects(Redirect.NORMAL)
+                                             .version(Version.HTTP_2)
+                                             .connectTimeout(connectTimeout)
+                                             .executor(executor)
+                                             .build());
+        }
+    }
+
+
+    public HttpClient getClient(final String uri) { return clients.get(HostClass.fromUri(uri)); }
+
+    public ExecutorService getExecutor() { return executor; }
+
+    public Duration getRequestTimeout() { return requestTimeout; }
+
+    /**
+     * Returns a GET request builder for the given uri with the default headers and the
+     * configured request timeout
+     * @param uri The uri that should be requested
+     * @return a GET request builder for the given uri
+     */
+    public HttpRequest.Builder newRequestBuilder(final String uri) {
+        return HttpRequest.newBuilder()
+                          .uri(URI.create(uri))
+                          .setHeader("User-Agent", "DiscoAPI")
+                          .timeout(requestTimeout)
+                          .GET();
+    }
+
+    public UpstreamMode getMode() { return mode; }
+
+    public <T> HttpResponse<T> send(final HttpRequest request, final BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        final HostClass       hostClass = HostClass.fromUri(request.uri().toString());
+        final String          host      = request.uri().getHost();
+        final HttpResponse<T> response;
+        if (!CircuitBreaker.INSTANCE.allowRequest(host)) { throw new IOException("Circuit for " + host + " is open"); }
+        try {
+            switch (mode) {
+                case REPLAY:
+                    response = UpstreamFixtures.INSTANCE.replay(request, bodyHandler);
+                    break;
+                case RECORD:
+                    final HttpRequest completeRequest = UpstreamFixtures.INSTANCE.withoutValidators(request);
+                    response = UpstreamFixtures.INSTANCE.record(completeRequest, clients.get(hostClass).send(completeRequest, BodyHandlers.ofByteArray()), bodyHandler);
+                    break;
+                default:
+                    response = clients.get(hostClass).send(request, bodyHandler);
+                    break;
+            }
+        } catch (IOException e) {
+            CircuitBreaker.INSTANCE.recordFailure(host);
+            throw e;
+        }
+        CircuitBreaker.INSTANCE.recordResponse(host, response.statusCode());
+        if (HostClass.GITHUB == hostClass) { GithubBudget.INSTANCE.update(response.statusCode(), response.headers()); }
+        return response;
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(final HttpRequest request, final BodyHandler<T> bodyHandler) {
+        if (UpstreamMode.LIVE != mode) {
+            // Recording and replaying is done synchronously on the shared executor
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return send(request, bodyHandler);
+                } catch (IOException | InterruptedException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        }
+        final HostClass hostClass = HostClass.fromUri(request.uri().toString());
+        final String    host      = request.uri().getHost();
+        if (!CircuitBreaker.INSTANCE.allowRequest(host)) { return CompletableFuture.failedFuture(new IOException("Circuit for " + host + " is open")); }
+        return clients.get(hostClass).sendAsync(request, bodyHandler).whenComplete((httpResponse, throwable) -> {
+            if (null == throwable) {
+                CircuitBreaker.INSTANCE.recordResponse(host, httpResponse.statusCode());
+                if (HostClass.GITHUB == hostClass) { GithubBudget.INSTANCE.update(httpResponse.statusCode(), httpResponse.headers()); }
+            } else {
+                CircuitBreaker.INSTANCE.recordFailure(host);
+            }
+        });
+    }
+}
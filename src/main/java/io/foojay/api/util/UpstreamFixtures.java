@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLSession;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+
+/**
+ * Records upstream responses to a local folder (FOOJAY_API_UPSTREAM_MODE=record) and replays
+ * them instead of calling the upstream servers (FOOJAY_API_UPSTREAM_MODE=replay). The responses
+ * are stored in a ResponseCache on the fixtures folder. In replay mode each response will be
+ * delayed by the configured latency plus the time its body needs at the configured bandwidth,
+ * which makes it possible to time a complete cache update deterministically without network access.
+ */
+public enum UpstreamFixtures {
+    INSTANCE;
+
+    private static final Logger        LOGGER = LoggerFactory.getLogger(UpstreamFixtures.class);
+
+    private        final ResponseCache fixtures;
+    private        final long          latency;
+    private        final long          bandwidth;
+
+
+    UpstreamFixtures() {
+        fixtures  = new ResponseCache(Paths.get(Config.INSTANCE.getFoojayFixturesFolder()));
+        latency   = Config.INSTANCE.getFoojayReplayLatency();
+        bandwidth = Config.INSTANCE.getFoojayReplayBandwidth();
+    }
+
+
+    /**
+     * Stores the given response for the uri of the given request and returns it
+     * converted by the given body handler
+     * @param request The request that was sent
+     * @param response The response that was received
+     * @param bodyHandler The body handler the caller asked for
+     * @return the given response converted by the given body handler
+     * @throws IOException
+     */
+    public <T> HttpResponse<T> record(final HttpRequest request, final HttpResponse<byte[]> response, final BodyHandler<T> bodyHandler) throws IOException {
+        final String uri = request.uri().toString();
+        try {
+            fixtures.store(uri, response.statusCode(), response.headers(), new ByteArrayInputStream(response.body()));
+            LOGGER.debug("Recorded response ({}) for {}", response.statusCode(), uri);
+        } catch (IOException e) {
+            LOGGER.error("Error recording response for {}. {}", uri, e.getMessage());
+        }
+        return createResponse(request, response.statusCode(), response.headers(), response.version(), response.body(), bodyHandler);
+    }
+
+    /**
+     * Returns the recorded response for the uri of the given request converted by the given body
+     * handler. If no response was recorded for the uri, a 404 response with an empty body will be returned.
+     * @param request The request that should be replayed
+     * @param bodyHandler The body handler the caller asked for
+     * @return the recorded response for the uri of the given request
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public <T> HttpResponse<T> replay(final HttpRequest request, final BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        final String                     uri      = request.uri().toString();
+        final Optional<UpstreamResponse> recorded = fixtures.getResponse(uri);
+        if (recorded.isEmpty()) {
+            LOGGER.warn("No recorded response found for {}", uri);
+            return createResponse(request, 404, HttpHeaders.of(Map.of(), (name, value) -> true), Version.HTTP_1_1, new byte[0], bodyHandler);
+        }
+        final byte[] body;
+        try (InputStream inputStream = recorded.get().getBodyStream()) {
+            body = inputStream.readAllBytes();
+        }
+
+        final long delay = latency + (bandwidth > 0 ? body.length * 1000L / bandwidth : 0);
+        if (delay > 0) { Thread.sleep(delay); }
+
+        return createResponse(request, recorded.get().getStatusCode(), recorded.get().getHeaders(), Version.HTTP_1_1, body, bodyHandler);
+    }
+
+    /**
+     * Returns a copy of the given request without the If-None-Match and If-Modified-Since headers,
+     * which makes sure that complete responses will be recorded instead of 304 Not Modified
+     * @param request The request that should be sent
+     * @return a copy of the given request without the conditional headers
+     */
+    public HttpRequest withoutValidators(final HttpRequest request) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(request.uri()).expectContinue(request.expectContinue()).GET();
+        request.timeout().ifPresent(builder::timeout);
+        request.version().ifPresent(builder::version);
+        request.headers().map().forEach((name, values) -> {
+            if (ResponseCache.HEADER_IF_NONE_MATCH.equalsIgnoreCase(name) || ResponseCache.HEADER_IF_MODIFIED_SINCE.equalsIgnoreCase(name)) { return; }
+            values.forEach(value -> builder.header(name, value));
+        });
+        return builder.build();
+    }
+
+    private <T> HttpResponse<T> createResponse(final HttpRequest request, final int statusCode, final HttpHeaders headers, final Version version, final byte[] body, final BodyHandler<T> bodyHandler) throws IOException {
+        final ResponseInfo      responseInfo = new ResponseInfo() {
+            @Override public int statusCode() { return statusCode; }
+            @Override public HttpHeaders headers() { return headers; }
+            @Override public Version version() { return version; }
+        };
+        final BodySubscriber<T> subscriber   = bodyHandler.apply(responseInfo);
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override public void request(final long n) {}
+            @Override public void cancel() {}
+        });
+        if (body.length > 0) { subscriber.onNext(List.of(ByteBuffer.wrap(body))); }
+        subscriber.onComplete();
+        final T responseBody;
+        try {
+            responseBody = subscriber.getBody().toCompletableFuture().get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Error creating response for " + request.uri() + ". " + e.getMessage(), e);
+        }
+        return new HttpResponse<>() {
+            @Override public int statusCode() { return statusCode; }
+            @Override public HttpRequest request() { return request; }
+            @Override public Optional<HttpResponse<T>> previousResponse() { return Optional.empty(); }
+            @Override public HttpHeaders headers() { return headers; }
+            @Override public T body() { return responseBody; }
+            @Override public Optional<SSLSession> sslSession() { return Optional.empty(); }
+            @Override public URI uri() { return request.uri(); }
+            @Override public Version version() { return version; }
+        };
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+public enum UpstreamMode {
+    LIVE, RECORD, REPLAY, NOT_FOUND;
+
+    public static UpstreamMode fromText(final String text) {
+        if (null == text) { return NOT_FOUND; }
+        switch (text.trim().toLowerCase()) {
+            case "live"  : return LIVE;
+            case "record": return RECORD;
+            case "replay": return REPLAY;
+            default      : return NOT_FOUND;
+        }
+    }
+}
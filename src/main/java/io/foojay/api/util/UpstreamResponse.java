@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpHeaders;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+
+/**
+ * The response of an upstream server. The body is either a file in the ResponseCache
+ * or the not yet consumed input stream of the http response, which means it can be
+ * parsed in a streaming fashion via getBodyStream() without holding it in memory.
+ */
+public class UpstreamResponse implements AutoCloseable {
+    private final int         statusCode;
+    private final HttpHeaders headers;
+    private final Path        bodyFile;
+    private final InputStream bodyStream;
+    private final boolean     fromCache;
+    private       String      body;
+
+
+    public UpstreamResponse(final int statusCode, final HttpHeaders headers, final Path bodyFile, final boolean fromCache) {
+        this.statusCode = statusCode;
+        this.headers    = headers;
+        this.bodyFile   = bodyFile;
+        this.bodyStream = null;
+        this.fromCache  = fromCache;
+    }
+    public UpstreamResponse(final int statusCode, final HttpHeaders headers, final InputStream bodyStream) {
+        this.statusCode = statusCode;
+        this.headers    = headers;
+        this.bodyFile   = null;
+        this.bodyStream = null == bodyStream ? InputStream.nullInputStream() : bodyStream;
+        this.fromCache  = false;
+    }
+
+
+    public int getStatusCode() { return statusCode; }
+
+    public HttpHeaders getHeaders() { return headers; }
+
+    /**
+     * Returns a stream of the body. If the body was not stored in the ResponseCache
+     * the stream can only be consumed once.
+     * @return a stream of the body
+     * @throws IOException
+     */
+    public InputStream getBodyStream() throws IOException {
+        return null == bodyFile ? bodyStream : Files.newInputStream(bodyFile);
+    }
+
+    /**
+     * Returns the complete body as String. Prefer getBodyStream() for large bodies.
+     * @return the complete body as String
+     * @throws IOException
+     */
+    public String getBody() throws IOException {
+        if (null == body) {
+            try (InputStream inputStream = getBodyStream()) {
+                body = new String(inputStream.readAllBytes(), UTF_8);
+            }
+        }
+        return body;
+    }
+
+    /**
+     * Returns true if the upstream server answered with 304 Not Modified and
+     * the body was taken from the ResponseCache
+     * @return true if the body was taken from the ResponseCache
+     */
+    public boolean isFromCache() { return fromCache; }
+
+    @Override public void close() throws IOException {
+        if (null != bodyStream) { bodyStream.close(); }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api;
+
+import com.mongodb.client.model.changestream.OperationType;
+import io.foojay.api.pkg.ArchiveType;
+import io.foojay.api.pkg.OperatingSystem;
+import io.foojay.api.pkg.Pkg;
+import io.foojay.api.pkg.TestPkgs;
+import io.foojay.api.util.PkgCache;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+
+public class ClusterManagerTest {
+
+    @Test
+    public void applyTest() {
+        final PkgCache<String, Pkg> pkgCache           = new PkgCache<>(pkgs -> List.of());
+        final Map<String, String>   pkgIdsByDocumentId = new HashMap<>();
+        final Pkg                   pkg1               = TestPkgs.createZuluPkg(OperatingSystem.LINUX, ArchiveType.TAR_GZ);
+        final Pkg                   pkg2               = TestPkgs.createZuluPkg(OperatingSystem.WINDOWS, ArchiveType.ZIP);
+
+        PkgCache.Draft<String, Pkg> draft = pkgCache.draft();
+        assert ClusterManager.apply(draft, pkgIdsByDocumentId, OperationType.INSERT, "doc1", pkg1);
+        assert ClusterManager.apply(draft, pkgIdsByDocumentId, OperationType.INSERT, "doc2", pkg2);
+        // Update of a document that has been deleted before the lookup
+        assert ClusterManager.apply(draft, pkgIdsByDocumentId, OperationType.UPDATE, "doc3", null);
+        pkgCache.publish(draft);
+        assert pkgCache.size() == 2;
+        assert pkgIdsByDocumentId.get("doc1").equals(pkg1.getId());
+
+        // Delete events only contain the document id
+        draft = pkgCache.draft();
+        assert ClusterManager.apply(draft, pkgIdsByDocumentId, OperationType.DELETE, "doc1", null);
+        assert ClusterManager.apply(draft, pkgIdsByDocumentId, OperationType.DELETE, "unknown", null);
+        // Only the changed packages need new ephemeral ids
+        assert draft.getRemoved().equals(Set.of(pkg1.getId()));
+        assert draft.getAdded().isEmpty();
+        pkgCache.publish(draft);
+        assert pkgCache.size() == 1;
+        assert !pkgCache.containsKey(pkg1.getId());
+        assert !pkgIdsByDocumentId.containsKey("doc1");
+
+        // A dropped collection can't be applied incrementally
+        assert !ClusterManager.apply(pkgCache.draft(), pkgIdsByDocumentId, OperationType.DROP, null, null);
+    }
+
+    /**
+     * Runs against the mongodb configured by the FOOJAY_API_MONGODB_* environment variables,
+     * following the change stream additionally needs mongodb to run as (single node) replica set
+     */
+    @Test
+    public void leaseTest() {
+        MongoDbManager.INSTANCE.connect();
+        Assumptions.assumeTrue(MongoDbManager.INSTANCE.isConnected(), "No mongodb configured");
+
+        final String leaseName = "test-" + UUID.randomUUID();
+        assert MongoDbManager.INSTANCE.acquireLease(leaseName, "node1", 60);
+        // Renewal by the owner
+        assert MongoDbManager.INSTANCE.acquireLease(leaseName, "node1", 60);
+        assert !MongoDbManager.INSTANCE.acquireLease(leaseName, "node2", 60);
+
+        MongoDbManager.INSTANCE.releaseLease(leaseName, "node1");
+        assert MongoDbManager.INSTANCE.acquireLease(leaseName, "node2", 60);
+        MongoDbManager.INSTANCE.releaseLease(leaseName, "node2");
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+
+public class MongoDbManagerTest {
+
+    @Test
+    public void hasIndexTest() {
+        final List<Document> indexes = List.of(new Document("v", 2).append("key", new Document("_id", 1)).append("name", "_id_"),
+                                               new Document("v", 2).append("key", new Document("id", 1)).append("name", "id_1").append("unique", true),
+                                               new Document("v", 2).append("key", new Document("filename", 1).append("id", 1)).append("name", "filename_1_id_1"));
+
+        assert MongoDbManager.hasIndex(indexes, "id", true);
+        assert MongoDbManager.hasIndex(indexes, "filename", false);
+        // A compound index can be used to filter but doesn't make a single field unique
+        assert !MongoDbManager.hasIndex(indexes, "filename", true);
+        assert !MongoDbManager.hasIndex(indexes, "hour", false);
+        assert !MongoDbManager.hasIndex(List.of(new Document("key", new Document("id", 1))), "id", true);
+    }
+
+    /**
+     * Runs against the mongodb configured by the FOOJAY_API_MONGODB_* environment variables,
+     * e.g. a local mongod started with docker run -p 27017:27017 mongo
+     */
+    @Test
+    public void ensureIndexesTest() {
+        MongoDbManager.INSTANCE.connect();
+        Assumptions.assumeTrue(MongoDbManager.INSTANCE.isConnected(), "No mongodb configured");
+
+        assert MongoDbManager.INSTANCE.ensureIndexes();
+        assert MongoDbManager.INSTANCE.getMissingIndexes().isEmpty();
+        // Creating existing indexes again is a no-op
+        assert MongoDbManager.INSTANCE.ensureIndexes();
+    }
+
+    @Test
+    public void incrementDownloadsTest() {
+        MongoDbManager.INSTANCE.connect();
+        Assumptions.assumeTrue(MongoDbManager.INSTANCE.isConnected(), "No mongodb configured");
+
+        final String pkgId = "test-" + UUID.randomUUID();
+        try {
+            assert MongoDbManager.INSTANCE.incrementDownloads(Map.of(pkgId, 2L)).equals(Set.of(pkgId));
+            assert MongoDbManager.INSTANCE.incrementDownloads(Map.of(pkgId, 3L)).equals(Set.of(pkgId));
+            assert MongoDbManager.INSTANCE.getDowloads().get(pkgId) == 5L;
+        } finally {
+            MongoDbManager.INSTANCE.removeDownloads(List.of(pkgId));
+        }
+        assert !MongoDbManager.INSTANCE.getDowloads().containsKey(pkgId);
+    }
+}
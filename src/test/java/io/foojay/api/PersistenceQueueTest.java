@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api;
+
+import io.foojay.api.pkg.ArchiveType;
+import io.foojay.api.pkg.OperatingSystem;
+import io.foojay.api.pkg.Pkg;
+import io.foojay.api.pkg.TestPkgs;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+public class PersistenceQueueTest {
+
+    @Test
+    public void coalesceTest() {
+        final RecordingStore   store = new RecordingStore();
+        final PersistenceQueue queue = new PersistenceQueue(store);
+        final Pkg              pkg1  = TestPkgs.createZuluPkg(OperatingSystem.LINUX, ArchiveType.TAR_GZ);
+        final Pkg              pkg2  = TestPkgs.createZuluPkg(OperatingSystem.WINDOWS, ArchiveType.ZIP);
+        final Pkg              pkg3  = TestPkgs.createZuluPkg(OperatingSystem.MACOS, ArchiveType.TAR_GZ);
+
+        // Upsert followed by a flag change stays an upsert of the newer package
+        queue.upsert(List.of(pkg1));
+        final Pkg pkg1Flagged = new Pkg(pkg1);
+        pkg1Flagged.setLatestBuildAvailable(true);
+        queue.updateLatestBuildAvailable(List.of(pkg1Flagged));
+        // Removal wins over everything before, a flag change after a removal is dropped
+        queue.upsert(List.of(pkg2));
+        queue.remove(List.of(pkg2));
+        queue.updateLatestBuildAvailable(List.of(pkg2));
+        queue.updateLatestBuildAvailable(List.of(pkg3));
+        assert queue.size() == 3;
+
+        assert queue.drain();
+        assert queue.isEmpty();
+        assert store.upserts.size() == 1 && store.upserts.get(0) == pkg1Flagged;
+        assert store.removals.size() == 1 && store.removals.get(0) == pkg2;
+        assert store.flagUpdates.size() == 1 && store.flagUpdates.get(0) == pkg3;
+    }
+
+    @Test
+    public void retryTest() {
+        final RecordingStore   store = new RecordingStore();
+        final PersistenceQueue queue = new PersistenceQueue(store);
+        final Pkg              pkg1  = TestPkgs.createZuluPkg(OperatingSystem.LINUX, ArchiveType.TAR_GZ);
+        final Pkg              pkg2  = TestPkgs.createZuluPkg(OperatingSystem.WINDOWS, ArchiveType.ZIP);
+
+        store.down.set(true);
+        queue.upsert(List.of(pkg1, pkg2));
+        queue.remove(List.of(pkg2));
+        assert !queue.drain();
+        assert queue.size() == 2;
+        // Only the pending upsert might be missing in the database
+        assert queue.getPendingUpserts().equals(Set.of(pkg1.getId()));
+
+        store.down.set(false);
+        assert queue.drain();
+        assert queue.isEmpty();
+        assert store.upserts.size() == 1 && store.upserts.get(0) == pkg1;
+        assert store.removals.size() == 1 && store.removals.get(0) == pkg2;
+    }
+
+
+    private static class RecordingStore implements PersistenceQueue.Store {
+        private final AtomicBoolean down        = new AtomicBoolean(false);
+        private final List<Pkg>     upserts     = new ArrayList<>();
+        private final List<Pkg>     flagUpdates = new ArrayList<>();
+        private final List<Pkg>     removals    = new ArrayList<>();
+
+
+        @Override public boolean upsert(final Collection<Pkg> pkgs) { return !down.get() && upserts.addAll(pkgs); }
+
+        @Override public boolean updateLatestBuildAvailable(final Collection<Pkg> pkgs) { return !down.get() && flagUpdates.addAll(pkgs); }
+
+        @Override public boolean remove(final Collection<Pkg> pkgs) { return !down.get() && removals.addAll(pkgs); }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.pkg;
+
+
+/**
+ * Creates packages for tests with the field based Pkg constructor
+ */
+public final class TestPkgs {
+
+    private TestPkgs() {}
+
+
+    /**
+     * Returns a Zulu 17.0.1 JDK for x64 on the given operating system, the filename and the
+     * direct download uri (and with it the id) depend on the operating system and the archive type
+     * @param operatingSystem The operating system of the package
+     * @param archiveType The archive type of the package
+     * @return a Zulu 17.0.1 JDK for x64 on the given operating system
+     */
+    public static Pkg createZuluPkg(final OperatingSystem operatingSystem, final ArchiveType archiveType) {
+        final String filename = "zulu17.30.15-ca-jdk17.0.1-" + operatingSystem.getApiString() + "_x64" + archiveType.getFileEndings().get(0);
+        return new Pkg(Distro.ZULU, "17.0.1", "17.30.15", true, Architecture.X64, operatingSystem, operatingSystem.getLibCType(), PackageType.JDK, ReleaseStatus.GA,
+                       archiveType, TermOfSupport.LTS, false, true, filename, "https://cdn.azul.com/zulu/bin/" + filename, "");
+    }
+}
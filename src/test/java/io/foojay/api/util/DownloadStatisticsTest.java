@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.util;
+
+import io.foojay.api.pkg.Architecture;
+import io.foojay.api.pkg.Distro;
+import io.foojay.api.pkg.OperatingSystem;
+import io.foojay.api.pkg.Pkg;
+import io.foojay.api.pkg.VersionNumber;
+import io.foojay.api.util.DownloadStatistics.HourIncrement;
+import io.foojay.api.util.DownloadStatistics.Key;
+import io.foojay.api.util.DownloadStatistics.Resolution;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+
+public class DownloadStatisticsTest {
+    private static final Instant START = Instant.parse("2021-03-01T00:00:00Z");
+
+
+    @Test
+    public void rollupTest() {
+        final DownloadStatistics statistics = new DownloadStatistics(Duration.ofMinutes(10), Duration.ofHours(2), Duration.ofDays(30));
+        final Pkg                zulu       = createPkg(Distro.ZULU, 17, OperatingSystem.LINUX, Architecture.AARCH64, "zulu17-linux_aarch64.tar.gz");
+        final Pkg                corretto   = createPkg(Distro.CORRETTO, 11, OperatingSystem.WINDOWS, Architecture.X64, "corretto11-windows_x64.zip");
+
+        // One download of each package every minute for three days
+        for (int minute = 0 ; minute < 3 * 24 * 60 ; minute++) {
+            statistics.record(zulu, START.plusSeconds(minute * 60L));
+            if (minute % 2 == 0) { statistics.record(corretto, START.plusSeconds(minute * 60L)); }
+        }
+        final Instant now = START.plus(Duration.ofDays(3));
+        assert statistics.getNoOfBuckets(Resolution.MINUTE) == 3 * 24 * 60;
+
+        // Hour buckets will only be rolled up to days after they have been persisted
+        statistics.rollup(now);
+        assert statistics.getNoOfBuckets(Resolution.MINUTE) == 10;
+        assert statistics.getNoOfBuckets(Resolution.DAY)    == 0;
+
+        final List<HourIncrement> persisted = new ArrayList<>();
+        assert statistics.flush(persistAll(persisted));
+        assert persisted.size() == 3 * 24;
+        assert persisted.stream().mapToLong(increment -> increment.getPkgs().get(zulu.getId())).sum() == 3 * 24 * 60;
+        assert statistics.flush(increments -> { throw new AssertionError("Nothing to persist"); });
+
+        statistics.rollup(now);
+        assert statistics.getNoOfBuckets(Resolution.DAY)  == 3;
+        assert statistics.getNoOfBuckets(Resolution.HOUR) == 2;
+
+        // Totals don't change with the resolution
+        assert statistics.getDownloadsForId(zulu.getId(), START, now) == 3 * 24 * 60;
+        assert statistics.getDownloadsForId(corretto.getId(), START, now) == 3 * 24 * 30;
+        assert statistics.getDownloads(START, now, key -> Distro.ZULU == key.getDistro() && Architecture.AARCH64 == key.getArchitecture()) == 3 * 24 * 60;
+        assert statistics.getDownloads(START, now, key -> key.getMajorVersion() == 11) == 3 * 24 * 30;
+        assert statistics.getDownloads(START, START.plus(Duration.ofDays(1)), key -> true) == 24 * 90;
+
+        // The last minutes are still available with minute resolution
+        assert statistics.getDownloadsForId(zulu.getId(), now.minusSeconds(300), now) == 5;
+
+        final Map<OperatingSystem, Long> perOperatingSystem = statistics.getDownloadsPer(START, now, Key::getOperatingSystem);
+        assert perOperatingSystem.get(OperatingSystem.LINUX)   == 3 * 24 * 60;
+        assert perOperatingSystem.get(OperatingSystem.WINDOWS) == 3 * 24 * 30;
+    }
+
+    @Test
+    public void failedFlushTest() {
+        final DownloadStatistics statistics = new DownloadStatistics();
+        final Pkg                zulu       = createPkg(Distro.ZULU, 17, OperatingSystem.LINUX, Architecture.AARCH64, "zulu17-linux_aarch64.tar.gz");
+
+        statistics.record(zulu, START);
+        assert !statistics.flush(increments -> Set.of());
+        statistics.record(zulu, START.plusSeconds(61));
+
+        final List<HourIncrement> persisted = new ArrayList<>();
+        assert statistics.flush(persistAll(persisted));
+        assert persisted.size() == 1;
+        assert persisted.get(0).getStart() == START.getEpochSecond();
+        assert persisted.get(0).getPkgs().get(zulu.getId()) == 2;
+        assert persisted.get(0).getAggregates().get("ZULU:17:LINUX:AARCH64") == 2;
+    }
+
+    @Test
+    public void partialFlushTest() {
+        final DownloadStatistics statistics = new DownloadStatistics();
+        final Pkg                zulu       = createPkg(Distro.ZULU, 17, OperatingSystem.LINUX, Architecture.AARCH64, "zulu17-linux_aarch64.tar.gz");
+        final long               firstHour  = START.getEpochSecond();
+
+        statistics.record(zulu, START);
+        statistics.record(zulu, START.plus(Duration.ofHours(1)));
+        // Only the first hour has been written
+        assert !statistics.flush(increments -> Set.of(firstHour));
+
+        final List<HourIncrement> persisted = new ArrayList<>();
+        assert statistics.flush(persistAll(persisted));
+        assert persisted.size() == 1;
+        assert persisted.get(0).getStart() == firstHour + 3600;
+        assert persisted.get(0).getPkgs().get(zulu.getId()) == 1;
+    }
+
+    @Test
+    public void loadTest() {
+        final Pkg           zulu      = createPkg(Distro.ZULU, 17, OperatingSystem.LINUX, Architecture.AARCH64, "zulu17-linux_aarch64.tar.gz");
+        final HourIncrement increment = new HourIncrement(START.getEpochSecond());
+        increment.getPkgs().put(zulu.getId(), 42L);
+        increment.getAggregates().put(Key.of(zulu).toString(), 42L);
+        increment.getAggregates().put("UNKNOWN:17:LINUX:AARCH64", 7L);
+
+        final Collection<HourIncrement> restored   = List.of(increment);
+        final DownloadStatistics        statistics = new DownloadStatistics();
+        statistics.load(restored);
+        statistics.rollup(START.plus(Duration.ofDays(10)));
+
+        assert statistics.getNoOfBuckets(Resolution.DAY) == 1;
+        assert statistics.getDownloadsForId(zulu.getId(), START, START.plus(Duration.ofDays(1))) == 42;
+        assert statistics.getDownloads(START, START.plus(Duration.ofDays(1)), key -> Distro.ZULU == key.getDistro()) == 42;
+        // Loaded downloads have been persisted already
+        assert statistics.flush(increments -> { throw new AssertionError("Nothing to persist"); });
+    }
+
+
+    private static Function<Collection<HourIncrement>, Set<Long>> persistAll(final List<HourIncrement> persisted) {
+        return increments -> {
+            persisted.addAll(increments);
+            return increments.stream().map(HourIncrement::getStart).collect(Collectors.toSet());
+        };
+    }
+
+    private static Pkg createPkg(final Distro distro, final int majorVersion, final OperatingSystem operatingSystem, final Architecture architecture, final String filename) {
+        final Pkg pkg = new Pkg();
+        pkg.setDistribution(distro.get());
+        pkg.setVersionNumber(new VersionNumber(majorVersion));
+        pkg.setOperatingSystem(operatingSystem);
+        pkg.setArchitecture(architecture);
+        pkg.setFileName(filename);
+        pkg.setDirectDownloadUri("https://cdn.example.com/" + filename);
+        return pkg;
+    }
+}
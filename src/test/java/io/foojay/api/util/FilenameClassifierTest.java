@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.foojay.api.pkg.Architecture;
+import io.foojay.api.pkg.ArchiveType;
+import io.foojay.api.pkg.OperatingSystem;
+import io.foojay.api.pkg.PackageType;
+import io.foojay.api.pkg.ReleaseStatus;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+
+
+public class FilenameClassifierTest {
+    private static final Logger       LOGGER  = LoggerFactory.getLogger(FilenameClassifierTest.class);
+    private static final List<String> SAMPLES = List.of("OpenJDK11U-jre_x86-32_windows_hotspot_11.0.8_10.msi",
+                                                        "amazon-corretto-8.222.10.3-windows-x86-jre.zip",
+                                                        "amazon-corretto-8.232.09.1-macosx-x64.tar.gz",
+                                                        "bellsoft-jre11.0.8+10-windows-i586.zip",
+                                                        "zulu8.44.0.9-ca-jdk8.0.242-win_i686.zip",
+                                                        "zulu11.41.75-ca-fx-jre11.0.8-linux_musl_aarch64.tar.gz",
+                                                        "openjdk-16-ea+25_linux-x64_bin.tar.gz",
+                                                        "https://download.java.net/java/early_access/jdk16/25/GPL/openjdk-16-ea+25_osx-x64_bin.tar.gz",
+                                                        "https://download.java.net/java/GA/jdk15.0.1/51f4f36ad4ef43e39d0dfdbaf6549e32/9/GPL/openjdk-15.0.1_windows-x64_bin.zip",
+                                                        "sapmachine-jdk-15.0.1_linux-ppc64le_bin.tar.gz",
+                                                        "java-11-openjdk-11.0.9.11-1.windows.redhat.x86_64.msi",
+                                                        "graalvm-ce-java11-darwin-amd64-20.3.0.tar.gz",
+                                                        "mandrel-java11-linux-amd64-20.3.0.0.Final.tar.gz",
+                                                        "java-1.8.0-openjdk-1.8.0.275-1.b01.ojdkbuild.windows.x86_64.zip",
+                                                        "java-11-openjdk-dcevm-osx.tar.gz",
+                                                        "Alibaba_Dragonwell_8.5.4_x64_Linux.tar.gz",
+                                                        "serverjre-8u271-solaris-sparcv9.tar.Z",
+                                                        "jdk-preview_aix-ppc64_bin.src.tar.gz",
+                                                        "ZULU-JDK-WIN-X64.EXE",
+                                                        "no-match",
+                                                        "",
+                                                        "jdk-11_linux-x64_bin.tar.gz.sha256",
+                                                        "naïve-jdk-ünix-x64.tar.gz");
+
+
+    @Test
+    public void matchesLookupOrder() {
+        final List<String> filenames = getFilenames();
+        for (String filename : filenames) {
+            final FilenameClassifier.Classification classification = FilenameClassifier.INSTANCE.classify(filename);
+            assert Objects.equals(classification.getOperatingSystem().orElse(null), findFirst(filename, Constants.OPERATING_SYSTEM_LOOKUP.entrySet(), false)) : filename;
+            assert Objects.equals(classification.getArchitecture().orElse(null), findFirst(filename, Constants.ARCHITECTURE_LOOKUP.entrySet(), false)) : filename;
+            assert Objects.equals(classification.getArchiveType().orElse(null), findFirst(filename, Constants.ARCHIVE_TYPE_LOOKUP.entrySet(), false)) : filename;
+            assert Objects.equals(classification.getArchiveTypeBySuffix().orElse(null), findFirst(filename, Constants.ARCHIVE_TYPE_LOOKUP.entrySet(), true)) : filename;
+            assert Objects.equals(classification.getPackageType().orElse(null), findFirst(filename, Constants.PACKAGE_TYPE_LOOKUP.entrySet(), false)) : filename;
+            assert Objects.equals(classification.getReleaseStatus().orElse(null), findFirst(filename, Constants.RELEASE_STATUS_LOOKUP.entrySet(), false)) : filename;
+        }
+    }
+
+    @Test
+    public void classify() {
+        FilenameClassifier.Classification classification = FilenameClassifier.INSTANCE.classify("zulu11.41.75-ca-fx-jre11.0.8-linux_musl_aarch64.tar.gz");
+        assert OperatingSystem.ALPINE_LINUX == classification.getOperatingSystem().get();
+        assert Architecture.AARCH64         == classification.getArchitecture().get();
+        assert ArchiveType.TAR_GZ           == classification.getArchiveTypeBySuffix().get();
+        assert PackageType.JRE              == classification.getPackageType().get();
+        assert classification.getReleaseStatus().isEmpty();
+
+        classification = FilenameClassifier.INSTANCE.classify("jdk-11_linux-x64_bin.tar.gz.sha256");
+        assert ArchiveType.TAR_GZ == classification.getArchiveType().get();
+        assert classification.getArchiveTypeBySuffix().isEmpty();
+
+        assert ReleaseStatus.EA == Helper.fetchReleaseStatus("openjdk-16-ea+25_linux-x64_bin.tar.gz");
+        assert OperatingSystem.NOT_FOUND == Helper.fetchOperatingSystem("no-match");
+    }
+
+    /**
+     * Compares the lookup tables with the classifier on the filenames in disco.json, the samples and
+     * the generated filenames. Not part of the default test run, run it with ./gradlew benchmark
+     */
+    @Tag("benchmark")
+    @Test
+    public void benchmark() {
+        final List<String> filenames      = getFilenames();
+        final int          discoFilenames = getDiscoFilenames().size();
+        final int          warmupRounds   = 5;
+        final int          rounds         = 20;
+
+        for (int round = 0 ; round < warmupRounds ; round++) {
+            classifyWithLookupTables(filenames);
+            classifyWithClassifier(filenames);
+        }
+
+        long lookupTableMatches = 0;
+        final long lookupTableStart = System.nanoTime();
+        for (int round = 0 ; round < rounds ; round++) { lookupTableMatches += classifyWithLookupTables(filenames); }
+        final long lookupTableNanos = System.nanoTime() - lookupTableStart;
+
+        long classifierMatches = 0;
+        final long classifierStart = System.nanoTime();
+        for (int round = 0 ; round < rounds ; round++) { classifierMatches += classifyWithClassifier(filenames); }
+        final long classifierNanos = System.nanoTime() - classifierStart;
+
+        LOGGER.info("Classified {} filenames ({} from {}) {} times: lookup tables {} ms ({} ns/filename), classifier {} ms ({} ns/filename)",
+                    filenames.size(), discoFilenames, Constants.CACHE_DATA_FILE, rounds,
+                    lookupTableNanos / 1_000_000, lookupTableNanos / ((long) rounds * filenames.size()),
+                    classifierNanos / 1_000_000, classifierNanos / ((long) rounds * filenames.size()));
+        assert lookupTableMatches == classifierMatches;
+    }
+
+
+    private static long classifyWithLookupTables(final List<String> filenames) {
+        long matches = 0;
+        for (String filename : filenames) {
+            if (null != findFirst(filename, Constants.OPERATING_SYSTEM_LOOKUP.entrySet(), false)) { matches++; }
+            if (null != findFirst(filename, Constants.ARCHITECTURE_LOOKUP.entrySet(), false))     { matches++; }
+            if (null != findFirst(filename, Constants.ARCHIVE_TYPE_LOOKUP.entrySet(), true))      { matches++; }
+            if (null != findFirst(filename, Constants.PACKAGE_TYPE_LOOKUP.entrySet(), false))     { matches++; }
+            if (null != findFirst(filename, Constants.RELEASE_STATUS_LOOKUP.entrySet(), false))   { matches++; }
+        }
+        return matches;
+    }
+
+    private static long classifyWithClassifier(final List<String> filenames) {
+        long matches = 0;
+        for (String filename : filenames) {
+            if (Helper.fetchOperatingSystem(filename) != OperatingSystem.NOT_FOUND) { matches++; }
+            if (Helper.fetchArchitecture(filename)    != Architecture.NOT_FOUND)    { matches++; }
+            if (Helper.fetchArchiveType(filename)     != ArchiveType.NOT_FOUND)     { matches++; }
+            if (Helper.fetchPackageType(filename)     != PackageType.NOT_FOUND)     { matches++; }
+            if (Helper.fetchReleaseStatus(filename)   != ReleaseStatus.NOT_FOUND)   { matches++; }
+        }
+        return matches;
+    }
+
+    // The way the lookup tables have been used before the classifier was introduced
+    private static <T> T findFirst(final String text, final Set<Entry<String, T>> lookup, final boolean endsWith) {
+        return lookup.stream()
+                     .filter(entry -> endsWith ? text.endsWith(entry.getKey()) : text.contains(entry.getKey()))
+                     .findFirst()
+                     .map(Entry::getValue)
+                     .orElse(null);
+    }
+
+    // The filenames of the cached packages in disco.json, the samples and filenames that contain every lookup key
+    private static List<String> getFilenames() {
+        final List<String> filenames = new ArrayList<>(SAMPLES);
+        filenames.addAll(getDiscoFilenames());
+        final List<String> osKeys            = new ArrayList<>(Constants.OPERATING_SYSTEM_LOOKUP.keySet());
+        final List<String> archKeys          = new ArrayList<>(Constants.ARCHITECTURE_LOOKUP.keySet());
+        final List<String> packageTypeKeys   = new ArrayList<>(Constants.PACKAGE_TYPE_LOOKUP.keySet());
+        final List<String> archiveTypeKeys   = new ArrayList<>(Constants.ARCHIVE_TYPE_LOOKUP.keySet());
+        final List<String> releaseStatusKeys = new ArrayList<>(Constants.RELEASE_STATUS_LOOKUP.keySet());
+        final int          noOfFilenames     = Math.max(Math.max(osKeys.size(), archKeys.size()), Math.max(archiveTypeKeys.size(), packageTypeKeys.size()));
+        for (int i = 0 ; i < noOfFilenames ; i++) {
+            filenames.add("openjdk-" + packageTypeKeys.get(i % packageTypeKeys.size()) + "11.0.9" + releaseStatusKeys.get(i % releaseStatusKeys.size()) + "_" +
+                          osKeys.get(i % osKeys.size()) + "-" + archKeys.get(i % archKeys.size()) + "_bin" + archiveTypeKeys.get(i % archiveTypeKeys.size()));
+        }
+        return filenames;
+    }
+
+    // The filenames and direct download uris of the cached packages in disco.json
+    private static List<String> getDiscoFilenames() {
+        final List<String> filenames = new ArrayList<>();
+        try (InputStream inputStream = FilenameClassifierTest.class.getResourceAsStream("/io/foojay/api/" + Constants.CACHE_DATA_FILE)) {
+            if (null != inputStream) {
+                final JsonElement element = JsonParser.parseReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+                if (element.isJsonArray()) {
+                    for (JsonElement pkg : (JsonArray) element) {
+                        final JsonObject pkgObj = pkg.getAsJsonObject();
+                        if (pkgObj.has("filename")) { filenames.add(pkgObj.get("filename").getAsString()); }
+                        if (pkgObj.has("direct_download_uri")) { filenames.add(pkgObj.get("direct_download_uri").getAsString()); }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Without disco.json only the samples and generated filenames will be used
+        }
+        return filenames;
+    }
+}
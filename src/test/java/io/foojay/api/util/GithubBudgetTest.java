@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.util;
+
+import io.foojay.api.pkg.Distro;
+import io.foojay.api.util.GithubBudget.Reservation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+
+public class GithubBudgetTest {
+
+    @Test
+    public void releaseReservationsTest() {
+        final GithubBudget budget    = GithubBudget.INSTANCE;
+        final int          available = budget.getAvailable();
+        final int          cost      = budget.getEstimatedCost(Distro.CORRETTO);
+
+        // Scheduling the same distro twice (e.g. refresh and cleanup) reserves its cost twice
+        final List<Reservation> refresh = budget.schedule(List.of(Distro.CORRETTO, Distro.ZULU), Map.of(Distro.CORRETTO, 100_000), Map.of());
+        final List<Reservation> cleanup = budget.schedule(List.of(Distro.CORRETTO), Map.of(Distro.CORRETTO, 100_000), Map.of());
+        assert refresh.size() == 2 && cleanup.size() == 1;
+        assert budget.getAvailable() == available - 2 * cost;
+
+        // The first fetch ends, the reservation of the other one stays
+        final Reservation        started = refresh.stream().filter(reservation -> Distro.CORRETTO == reservation.getDistro()).findFirst().get();
+        final GithubBudget.Fetch fetch   = budget.beginFetch(started);
+        budget.releaseIfNotStarted(started);
+        assert budget.getAvailable() == available - 2 * cost;
+        budget.endFetch(fetch);
+        assert budget.getAvailable() == available - cost;
+
+        // A fetch that never started (e.g. dropped by shutdownNow()) releases its reservation through the caller
+        cleanup.forEach(budget::releaseIfNotStarted);
+        refresh.forEach(budget::releaseIfNotStarted);
+        assert budget.getAvailable() == available;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.util;
+
+import io.foojay.api.util.HeavyHitters.Counter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+
+public class HeavyHittersTest {
+
+    @Test
+    public void topTest() {
+        final HeavyHitters<String> heavyHitters = new HeavyHitters<>(3);
+        heavyHitters.offer("a", 5);
+        heavyHitters.offer("b", 3);
+        heavyHitters.offer("c");
+        heavyHitters.offer("b");
+        heavyHitters.offer("b");
+
+        final List<Counter<String>> top = heavyHitters.getTop(2);
+        assert top.size() == 2;
+        assert top.stream().map(Counter::getItem).collect(Collectors.toSet()).equals(Set.of("a", "b"));
+        assert top.stream().allMatch(counter -> counter.getCount() == 5);
+
+        // The new item replaces the item with the lowest count and inherits its count as error
+        heavyHitters.offer("d");
+        assert heavyHitters.getCount("c") == 0;
+        assert heavyHitters.getCount("d") == 2;
+        assert heavyHitters.getTop(3).get(2).getError() == 1;
+        assert heavyHitters.getTotal() == 12;
+        assert heavyHitters.getTop(10).size() == 3;
+    }
+
+    @Test
+    public void zipfTest() {
+        final int                  capacity     = 100;
+        final HeavyHitters<String> heavyHitters = new HeavyHitters<>(capacity);
+        final Map<String, Long>    exact        = new HashMap<>();
+        final Random               random       = new Random(42);
+        final int                  noOfItems    = 10_000;
+        final int                  noOfEvents   = 500_000;
+
+        // Zipf distributed item ids
+        final double[] cumulative = new double[noOfItems];
+        double sum = 0;
+        for (int i = 0 ; i < noOfItems ; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0 ; i < noOfEvents ; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            if (index < 0) { index = -index - 1; }
+            final String item = "pkg" + index;
+            heavyHitters.offer(item);
+            exact.merge(item, 1L, Long::sum);
+        }
+
+        // Each estimate brackets the real count
+        for (Counter<String> counter : heavyHitters.getTop(capacity)) {
+            final long real = exact.get(counter.getItem());
+            assert counter.getCount() >= real;
+            assert counter.getGuaranteedCount() <= real;
+        }
+
+        // Every item above total / capacity is monitored and the top 10 match the exact top 10
+        exact.forEach((item, count) -> { if (count > noOfEvents / capacity) { assert heavyHitters.getCount(item) >= count; } });
+        final List<String> exactTop = exact.entrySet()
+                                           .stream()
+                                           .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                                           .limit(10)
+                                           .map(Map.Entry::getKey)
+                                           .collect(Collectors.toList());
+        final List<String> top      = heavyHitters.getTop(10).stream().map(Counter::getItem).collect(Collectors.toList());
+        assert top.containsAll(exactTop);
+    }
+}
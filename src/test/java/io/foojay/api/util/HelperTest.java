@@ -144,4 +144,29 @@ public class HelperTest {
         final String numberString3 = "text";
         assert !Helper.isPositiveInteger(numberString3);
     }
+
+    @Test
+    public void hrefsFromHtmlTest() {
+        final String html = "<html><head><script>var link = '<a href=\"script.zip\">';</script></head><body>\n"
+                            + "<!-- <a href=\"commented.zip\"> --->\n"
+                            + "<a href=\"https://cdn.azul.com/zulu/bin/zulu8.44.0.9-ca-jdk8.0.242-win_i686.zip\">zulu8.44.0.9-ca-jdk8.0.242-win_i686.zip</a>\n"
+                            + "<A HREF='jdk/openjdk-15_linux-x64_bin.tar.gz' class=link>linux</A><a href=jdk.msi>msi</a><a href=\"jdk.tar.gz.sha256\">sha256</a>\n"
+                            + "<td> jdk-8u281-linux-x64.tar.gz</td><td>jre-8u281-windows-i586.exe </td><td>readme</td> 1 < 2 <td>\u00A0jdk-8u281-linux-arm32-vfp-hflt.tar.gz</td>\n"
+                            + "<style>td { color: red; }</STYLE >jdk-8u281-macosx-x64.dmg<script type=\"text/javascript\"></script>jre-8u281-solaris-sparcv9.tar.gz</body></html>";
+
+        Set<String> fileHrefs = Helper.getFileHrefsFromString(html);
+        assert fileHrefs.size() == 3;
+        assert fileHrefs.contains("https://cdn.azul.com/zulu/bin/zulu8.44.0.9-ca-jdk8.0.242-win_i686.zip");
+        assert fileHrefs.contains("jdk/openjdk-15_linux-x64_bin.tar.gz");
+        assert fileHrefs.contains("jdk.msi");
+
+        Set<String> downloadHrefs = Helper.getDownloadHrefsFromString(html);
+        assert downloadHrefs.size() == 5;
+        assert downloadHrefs.contains("jdk-8u281-linux-x64.tar.gz");
+        assert downloadHrefs.contains("jre-8u281-windows-i586.exe");
+        assert downloadHrefs.contains("jdk-8u281-linux-arm32-vfp-hflt.tar.gz");
+        // Text directly after the end tag of a style or script element
+        assert downloadHrefs.contains("jdk-8u281-macosx-x64.dmg");
+        assert downloadHrefs.contains("jre-8u281-solaris-sparcv9.tar.gz");
+    }
 }
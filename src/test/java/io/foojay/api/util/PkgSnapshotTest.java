@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.util;
+
+import io.foojay.api.pkg.ArchiveType;
+import io.foojay.api.pkg.OperatingSystem;
+import io.foojay.api.pkg.Pkg;
+import io.foojay.api.pkg.TestPkgs;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+
+public class PkgSnapshotTest {
+
+    @Test
+    public void writeAndReadTest() throws IOException {
+        final Path folder = Files.createTempDirectory("discoapi");
+        final Path path   = folder.resolve("pkgs.snapshot");
+        try {
+            final Pkg pkg1 = TestPkgs.createZuluPkg(OperatingSystem.LINUX, ArchiveType.TAR_GZ);
+            final Pkg pkg2 = TestPkgs.createZuluPkg(OperatingSystem.WINDOWS, ArchiveType.ZIP);
+            pkg2.setLatestBuildAvailable(false);
+            pkg2.setJavaFXBundled(true);
+            pkg2.setDirectlyDownloadable(false);
+            pkg2.setDownloadSiteUri("https://www.azul.com/downloads/");
+
+            PkgSnapshot.write(path, List.of(pkg1, pkg2), Set.of(pkg2.getId()), 1234L);
+            final Optional<PkgSnapshot> snapshot = PkgSnapshot.read(path);
+            assert snapshot.isPresent();
+            assert snapshot.get().getEphemeralIdEpoch() == 1234L;
+            assert snapshot.get().getPkgs().size() == 2;
+            assert snapshot.get().getPendingPkgIds().equals(Set.of(pkg2.getId()));
+
+            final Map<String, Pkg> pkgs = snapshot.get().getPkgs().stream().collect(Collectors.toMap(Pkg::getId, Function.identity()));
+            final Pkg read1 = pkgs.get(pkg1.getId());
+            final Pkg read2 = pkgs.get(pkg2.getId());
+            assert null != read1 && null != read2;
+            assert read1.isLatestBuildAvailable() && !read1.isJavaFXBundled() && read1.isDirectlyDownloadable();
+            assert !read2.isLatestBuildAvailable() && read2.isJavaFXBundled() && !read2.isDirectlyDownloadable();
+            assert read2.getOperatingSystem() == OperatingSystem.WINDOWS;
+            assert read2.getArchiveType() == ArchiveType.ZIP;
+            assert read1.getSemver().toString().equals(pkg1.getSemver().toString());
+            assert read2.getDownloadSiteUri().equals("https://www.azul.com/downloads/");
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(folder);
+        }
+    }
+
+    @Test
+    public void rejectCorruptSnapshotTest() throws IOException {
+        final Path folder = Files.createTempDirectory("discoapi");
+        final Path path   = folder.resolve("pkgs.snapshot");
+        try {
+            assert PkgSnapshot.read(path).isEmpty();
+
+            final Pkg pkg = TestPkgs.createZuluPkg(OperatingSystem.LINUX, ArchiveType.TAR_GZ);
+            PkgSnapshot.write(path, List.of(pkg), Set.of(), 0L);
+            final byte[] bytes = Files.readAllBytes(path);
+            bytes[bytes.length / 2] ^= 0xFF;
+            Files.write(path, bytes);
+            assert PkgSnapshot.read(path).isEmpty();
+
+            // Truncated
+            Files.write(path, new byte[] { 0x44, 0x53, 0x4E, 0x50 });
+            assert PkgSnapshot.read(path).isEmpty();
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(folder);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.foojay.api.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+
+public class UpstreamFixturesTest {
+
+    @Test
+    public void recordReplayTest() throws IOException, InterruptedException {
+        // Hosts in the .invalid TLD never resolve, replaying them only works without a network call
+        final String        uri      = "https://fixtures.invalid/" + UUID.randomUUID();
+        final String        body     = "[{\"tag_name\":\"jdk-17.0.1+12\"}]";
+        final HttpHeaders   headers  = HttpHeaders.of(Map.of(ResponseCache.HEADER_ETAG, List.of("\"abc\""), "Link", List.of("<next>; rel=\"next\"", "<last>; rel=\"last\"")), (name, value) -> true);
+        final HttpRequest   request  = HttpRequest.newBuilder(URI.create(uri)).GET().build();
+        final ResponseCache fixtures = new ResponseCache(Paths.get(Config.INSTANCE.getFoojayFixturesFolder()));
+        try {
+            final HttpResponse<String> recorded = UpstreamFixtures.INSTANCE.record(request, createResponse(request, headers, body.getBytes(UTF_8)), BodyHandlers.ofString());
+            assert recorded.statusCode() == 200;
+            assert body.equals(recorded.body());
+
+            final HttpResponse<String> replayed = UpstreamFixtures.INSTANCE.replay(request, BodyHandlers.ofString());
+            assert replayed.statusCode() == 200;
+            assert body.equals(replayed.body());
+            assert headers.map().equals(replayed.headers().map());
+
+            final HttpRequest          unknownRequest = HttpRequest.newBuilder(URI.create(uri + "/unknown")).GET().build();
+            final HttpResponse<String> unknown        = UpstreamFixtures.INSTANCE.replay(unknownRequest, BodyHandlers.ofString());
+            assert unknown.statusCode() == 404;
+            assert unknown.body().isEmpty();
+        } finally {
+            fixtures.remove(uri);
+        }
+        assert fixtures.getResponse(uri).isEmpty();
+    }
+
+    private HttpResponse<byte[]> createResponse(final HttpRequest request, final HttpHeaders headers, final byte[] body) {
+        return new HttpResponse<>() {
+            @Override public int statusCode() { return 200; }
+            @Override public HttpRequest request() { return request; }
+            @Override public Optional<HttpResponse<byte[]>> previousResponse() { return Optional.empty(); }
+            @Override public HttpHeaders headers() { return headers; }
+            @Override public byte[] body() { return body; }
+            @Override public Optional<SSLSession> sslSession() { return Optional.empty(); }
+            @Override public URI uri() { return request.uri(); }
+            @Override public Version version() { return Version.HTTP_1_1; }
+        };
+    }
+}